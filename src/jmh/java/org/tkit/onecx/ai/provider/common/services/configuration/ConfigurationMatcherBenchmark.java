@@ -0,0 +1,121 @@
+package org.tkit.onecx.ai.provider.common.services.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.tkit.onecx.ai.provider.domain.daos.ConfigurationDAO;
+import org.tkit.onecx.ai.provider.domain.models.Configuration;
+import org.tkit.onecx.ai.provider.domain.models.Filter;
+import org.tkit.onecx.ai.provider.domain.models.enums.FilterKey;
+
+/**
+ * Compares the compiled {@link ConfigurationMatcher} with the previous regular expression based resolution. The time
+ * of the matcher should stay flat over the number of configurations, also if most filter values contain wildcards.
+ * <p>
+ * Run with {@code mvn -Pjmh test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.tkit.onecx.ai.provider.common.services.configuration.ConfigurationMatcherBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigurationMatcherBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    int configurations;
+
+    /**
+     * {@code mixed} filter values or {@code wildcards} with several wildcards sharing the prefix of the value.
+     */
+    @Param({ "mixed", "wildcards" })
+    String shape;
+
+    @Param({ "onecx-app-4711-admin", "unknown-app" })
+    String filterValue;
+
+    private List<Configuration> candidates;
+
+    private ConfigurationMatcher matcher;
+
+    @Setup
+    public void setup() {
+        candidates = new ArrayList<>(configurations);
+        candidates.add(config("*"));
+        for (int i = 1; i < configurations; i++) {
+            candidates.add(config("wildcards".equals(shape) ? wildcards(i) : mixed(i)));
+        }
+        matcher = ConfigurationMatcher.of(candidates.stream()
+                .map(c -> new ConfigurationDAO.FilterValue(c.getId(), c.getFilter().getValue()))
+                .toList());
+    }
+
+    @Benchmark
+    public String matcher() {
+        return matcher.match(filterValue);
+    }
+
+    @Benchmark
+    public Configuration regex() {
+        return candidates.stream()
+                .filter(c -> c.getFilter() != null
+                        && c.getFilter().getValue() != null
+                        && filterValue.matches(c.getFilter().getValue().replace("*", ".*")))
+                .max((c1, c2) -> {
+                    int len1 = c1.getFilter().getValue().replace("*", "").length();
+                    int len2 = c2.getFilter().getValue().replace("*", "").length();
+                    return Integer.compare(len1, len2);
+                })
+                .orElse(null);
+    }
+
+    private static String mixed(int i) {
+        return switch (i % 4) {
+            case 0 -> "onecx-app-" + i + "-*";
+            case 1 -> "onecx-*-" + i;
+            case 2 -> "*-product-" + i + "-ui";
+            default -> "onecx-app-" + i;
+        };
+    }
+
+    private static String wildcards(int i) {
+        return switch (i % 4) {
+            case 0 -> "onecx-*-" + i + "-*";
+            case 1 -> "onecx-*app*" + i;
+            case 2 -> "*-*" + i + "*-admin";
+            default -> "onecx*-*" + i + "*";
+        };
+    }
+
+    private static Configuration config(String value) {
+        var configuration = new Configuration();
+        configuration.setId(value);
+        var filter = new Filter();
+        filter.setKey(FilterKey.APP_ID);
+        filter.setValue(value);
+        configuration.setFilter(filter);
+        return configuration;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ConfigurationMatcherBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -1,5 +1,7 @@
 package org.tkit.onecx.ai.provider.common.models;
 
+import java.util.Map;
+
 import io.quarkus.runtime.annotations.ConfigDocFilename;
 import io.quarkus.runtime.annotations.ConfigPhase;
 import io.quarkus.runtime.annotations.ConfigRoot;
@@ -24,6 +26,54 @@ public interface DispatchConfig {
     @WithName("provider")
     ProviderConfig providerConfig();
 
+    /**
+     * Configuration resolution cache related configuration
+     */
+    @WithName("configuration-cache")
+    ConfigurationCacheConfig configurationCacheConfig();
+
+    /**
+     * Entity change events related configuration
+     */
+    @WithName("change-events")
+    ChangeEventsConfig changeEventsConfig();
+
+    /**
+     * Chat response cache related configuration
+     */
+    @WithName("response-cache")
+    ResponseCacheConfig responseCacheConfig();
+
+    /**
+     * Scheduling of chat requests across tenants
+     */
+    @WithName("scheduler")
+    SchedulerConfig schedulerConfig();
+
+    /**
+     * Hedged model calls of latency-critical configurations
+     */
+    @WithName("hedge")
+    HedgeConfig hedgeConfig();
+
+    /**
+     * Strategy used to find the configuration matching the request filter
+     */
+    @WithName("configuration-match-strategy")
+    @WithDefault("DATABASE")
+    ConfigurationMatchStrategy configurationMatchStrategy();
+
+    enum ConfigurationMatchStrategy {
+        /**
+         * Best match is evaluated by the database and only the matching configuration is loaded
+         */
+        DATABASE,
+        /**
+         * Filter values of all configurations are loaded and compiled into an in-memory matcher
+         */
+        INDEX
+    }
+
     interface MCPConfig {
 
         /**
@@ -67,6 +117,49 @@ public interface DispatchConfig {
         @WithName("tool-execution-retry-delay")
         @WithDefault("1000")
         long toolExecutionRetryDelay();
+
+        /**
+         * Maximum number of pooled MCP clients
+         */
+        @WithName("client-pool-max-size")
+        @WithDefault("200")
+        long clientPoolMaxSize();
+
+        /**
+         * Time in seconds after which an unused pooled MCP client is closed
+         */
+        @WithName("client-pool-idle-timeout")
+        @WithDefault("300")
+        long clientPoolIdleTimeout();
+
+        /**
+         * Time in seconds after which cached tool specifications of an MCP server are reloaded in the background
+         */
+        @WithName("tool-catalog-ttl")
+        @WithDefault("300")
+        long toolCatalogTtl();
+
+        /**
+         * Overall time in milliseconds to discover the tools of all MCP servers of a configuration, slower servers are
+         * skipped
+         */
+        @WithName("discovery-timeout")
+        @WithDefault("5000")
+        long discoveryTimeout();
+
+        /**
+         * Maximum number of concurrent tool calls per MCP server
+         */
+        @WithName("tool-call-concurrency")
+        @WithDefault("8")
+        int toolCallConcurrency();
+
+        /**
+         * Maximum number of cached tool results, least recently used results are evicted first
+         */
+        @WithName("tool-result-cache-max-size")
+        @WithDefault("10000")
+        long toolResultCacheMaxSize();
     }
 
     interface ProviderConfig {
@@ -91,5 +184,380 @@ public interface DispatchConfig {
         @WithName("log-requests")
         @WithDefault("false")
         boolean logRequests();
+
+        /**
+         * Maximum number of providers with a pooled chat model and HTTP client
+         */
+        @WithName("model-pool-max-size")
+        @WithDefault("100")
+        long modelPoolMaxSize();
+
+        /**
+         * Time in seconds after which an unused pooled chat model is removed
+         */
+        @WithName("model-pool-idle-timeout")
+        @WithDefault("600")
+        long modelPoolIdleTimeout();
+
+        /**
+         * Whether concurrent identical chat requests without tools share one provider call
+         */
+        @WithName("coalesce-requests")
+        @WithDefault("true")
+        boolean coalesceRequests();
+
+        /**
+         * Maximum time in milliseconds a call waits in the queue of a provider with a concurrency limit
+         */
+        @WithName("queue-timeout")
+        @WithDefault("2000")
+        long queueTimeout();
+
+        /**
+         * Seconds returned in the Retry-After header when a call to an overloaded provider is rejected
+         */
+        @WithName("retry-after")
+        @WithDefault("5")
+        long retryAfter();
+
+        /**
+         * End-to-end time in seconds of a chat request after which no fallback provider is tried anymore
+         */
+        @WithName("failover-deadline")
+        @WithDefault("120")
+        long failoverDeadline();
+
+        /**
+         * Adaptive concurrency limit per provider
+         */
+        @WithName("adaptive-limit")
+        AdaptiveLimitConfig adaptiveLimit();
+
+        /**
+         * Passive ejection of the replica endpoints of a provider
+         */
+        @WithName("replicas")
+        ReplicaConfig replicas();
+
+        /**
+         * Circuit breaker per provider
+         */
+        @WithName("circuit-breaker")
+        CircuitBreakerConfig circuitBreaker();
+    }
+
+    interface CircuitBreakerConfig {
+
+        /**
+         * Whether calls to a provider which fails or answers slowly are rejected for some time
+         */
+        @WithName("enabled")
+        @WithDefault("true")
+        boolean enabled();
+
+        /**
+         * Number of recent calls of a provider from which the failure and slow call rates are computed
+         */
+        @WithName("window-size")
+        @WithDefault("20")
+        int windowSize();
+
+        /**
+         * Minimum number of calls in the window before the circuit can open
+         */
+        @WithName("minimum-calls")
+        @WithDefault("10")
+        int minimumCalls();
+
+        /**
+         * Rate of failed calls in the window at which the circuit opens
+         */
+        @WithName("failure-rate")
+        @WithDefault("0.5")
+        double failureRate();
+
+        /**
+         * Duration in milliseconds after which a call counts as slow
+         */
+        @WithName("slow-call-duration")
+        @WithDefault("30000")
+        long slowCallDuration();
+
+        /**
+         * Rate of slow calls in the window at which the circuit opens
+         */
+        @WithName("slow-call-rate")
+        @WithDefault("0.8")
+        double slowCallRate();
+
+        /**
+         * Seconds the circuit stays open before trial calls are let through
+         */
+        @WithName("open-duration")
+        @WithDefault("30")
+        long openDuration();
+
+        /**
+         * Number of trial calls which have to succeed in the half-open state before the circuit closes
+         */
+        @WithName("half-open-calls")
+        @WithDefault("3")
+        int halfOpenCalls();
+    }
+
+    interface ReplicaConfig {
+
+        /**
+         * Failed calls in a row after which a replica is ejected
+         */
+        @WithName("ejection-failures")
+        @WithDefault("3")
+        int ejectionFailures();
+
+        /**
+         * Time in seconds a replica is ejected, multiplied by the number of ejections in a row
+         */
+        @WithName("ejection-time")
+        @WithDefault("30")
+        long ejectionTime();
+
+        /**
+         * Factor of the latency of the fastest replica beyond which a replica is ejected
+         */
+        @WithName("latency-factor")
+        @WithDefault("3.0")
+        double latencyFactor();
+
+        /**
+         * Whether the turns of a conversation are routed to the same replica to reuse its prompt cache
+         */
+        @WithName("affinity")
+        @WithDefault("true")
+        boolean affinity();
+
+        /**
+         * Factor of the average calls in flight per replica up to which a conversation stays on its replica
+         */
+        @WithName("affinity-load-factor")
+        @WithDefault("1.25")
+        double affinityLoadFactor();
+    }
+
+    interface AdaptiveLimitConfig {
+
+        /**
+         * Whether the concurrent calls per provider are limited by a limit adjusted to the latency and errors. Calls
+         * beyond the limit are rejected without queueing, the limiter is therefore opt-in.
+         */
+        @WithName("enabled")
+        @WithDefault("false")
+        boolean enabled();
+
+        /**
+         * Limit of a provider before any call was observed, the {@code maxConcurrentRequests} of the provider if set
+         */
+        @WithName("initial-limit")
+        @WithDefault("20")
+        int initialLimit();
+
+        /**
+         * Lowest limit of a provider
+         */
+        @WithName("min-limit")
+        @WithDefault("1")
+        int minLimit();
+
+        /**
+         * Highest limit of a provider
+         */
+        @WithName("max-limit")
+        @WithDefault("200")
+        int maxLimit();
+
+        /**
+         * Factor by which the recent latency may exceed the long-term latency before the limit is reduced
+         */
+        @WithName("tolerance")
+        @WithDefault("1.5")
+        double tolerance();
+
+        /**
+         * Weight of a new limit estimate, smaller values change the limit more slowly
+         */
+        @WithName("smoothing")
+        @WithDefault("0.2")
+        double smoothing();
+    }
+
+    interface ConfigurationCacheConfig {
+
+        /**
+         * Whether resolved dispatch configurations are cached
+         */
+        @WithName("enabled")
+        @WithDefault("true")
+        boolean enabled();
+
+        /**
+         * Maximum number of cached configuration resolutions
+         */
+        @WithName("max-size")
+        @WithDefault("10000")
+        long maxSize();
+
+        /**
+         * Time in seconds after which a cached configuration resolution expires
+         */
+        @WithName("ttl")
+        @WithDefault("300")
+        long ttl();
+    }
+
+    interface ResponseCacheConfig {
+
+        /**
+         * Maximum total size in bytes of the cached chat responses
+         */
+        @WithName("max-size-bytes")
+        @WithDefault("67108864")
+        long maxSizeBytes();
+
+        /**
+         * Time in seconds after which a cached chat response expires
+         */
+        @WithName("ttl")
+        @WithDefault("3600")
+        long ttl();
+
+        /**
+         * Minimum cosine similarity of two questions to reuse the cached answer in semantic mode
+         */
+        @WithName("semantic-threshold")
+        @WithDefault("0.9")
+        double semanticThreshold();
+
+        /**
+         * Maximum number of answers compared by similarity per tenant and configuration
+         */
+        @WithName("semantic-max-entries")
+        @WithDefault("1000")
+        int semanticMaxEntries();
+
+        /**
+         * Maximum number of similarity indexes, one per tenant and configuration
+         */
+        @WithName("semantic-max-indexes")
+        @WithDefault("1000")
+        int semanticMaxIndexes();
+    }
+
+    interface SchedulerConfig {
+
+        /**
+         * Whether chat requests are queued per tenant and dispatched by weighted fair queuing. A slot is held for the
+         * whole chat including tool rounds and streaming, the scheduler is therefore opt-in for deployments whose
+         * providers are the bottleneck.
+         */
+        @WithName("enabled")
+        @WithDefault("false")
+        boolean enabled();
+
+        /**
+         * Maximum number of chat requests of all tenants dispatched at the same time, should match the capacity of
+         * the providers
+         */
+        @WithName("max-concurrent")
+        @WithDefault("64")
+        int maxConcurrent();
+
+        /**
+         * Maximum number of waiting chat requests per tenant, further requests are rejected with 429
+         */
+        @WithName("max-queued-per-tenant")
+        @WithDefault("100")
+        int maxQueuedPerTenant();
+
+        /**
+         * Maximum time in milliseconds a chat request waits for a dispatch slot
+         */
+        @WithName("queue-timeout")
+        @WithDefault("10000")
+        long queueTimeout();
+
+        /**
+         * Weight of tenants without a configured weight
+         */
+        @WithName("default-weight")
+        @WithDefault("1")
+        int defaultWeight();
+
+        /**
+         * Weight per tenant id, a tenant with weight 2 gets twice the slots of a tenant with weight 1 when both have
+         * waiting requests
+         */
+        @WithName("tenant-weights")
+        Map<String, Integer> tenantWeights();
+    }
+
+    interface HedgeConfig {
+
+        /**
+         * Whether slow model calls of latency-critical configurations are hedged
+         */
+        @WithName("enabled")
+        @WithDefault("true")
+        boolean enabled();
+
+        /**
+         * Percentile of the recent latencies of the configuration after which the hedged call is sent
+         */
+        @WithName("percentile")
+        @WithDefault("0.95")
+        double percentile();
+
+        /**
+         * Minimum time in milliseconds before the hedged call is sent
+         */
+        @WithName("min-delay")
+        @WithDefault("100")
+        long minDelay();
+
+        /**
+         * Maximum fraction of the calls of a configuration which are hedged
+         */
+        @WithName("max-rate")
+        @WithDefault("0.1")
+        double maxRate();
+    }
+
+    interface ChangeEventsConfig {
+
+        /**
+         * Whether entity changes are published to and received from other instances
+         */
+        @WithName("enabled")
+        @WithDefault("true")
+        boolean enabled();
+
+        /**
+         * Postgres notification channel for entity change events
+         */
+        @WithName("channel")
+        @WithDefault("onecx_ai_entity_change")
+        String channel();
+
+        /**
+         * Time in milliseconds to wait for new notifications before checking the listener state
+         */
+        @WithName("poll-timeout")
+        @WithDefault("500")
+        long pollTimeout();
+
+        /**
+         * Delay in milliseconds before the listener reconnects after a failure
+         */
+        @WithName("reconnect-delay")
+        @WithDefault("5000")
+        long reconnectDelay();
     }
 }
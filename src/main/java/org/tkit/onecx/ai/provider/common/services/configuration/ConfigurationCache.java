@@ -0,0 +1,113 @@
+package org.tkit.onecx.ai.provider.common.services.configuration;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.tenant.TenantContext;
+import org.tkit.onecx.ai.provider.domain.models.Configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tenant aware cache for configurations resolved by the dispatch request context.
+ */
+@Slf4j
+@ApplicationScoped
+public class ConfigurationCache {
+
+    static final String CACHE_NAME = "onecx.ai.dispatch.configuration";
+
+    static final String MATCHER_CACHE_NAME = "onecx.ai.dispatch.configuration.matcher";
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private Cache<CacheKey, Optional<Configuration>> resolutions;
+
+    private Cache<MatcherKey, ConfigurationMatcher> matchers;
+
+    @PostConstruct
+    void init() {
+        var config = dispatchConfig.configurationCacheConfig();
+        resolutions = Caffeine.newBuilder()
+                .maximumSize(config.maxSize())
+                .expireAfterWrite(Duration.ofSeconds(config.ttl()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, resolutions, CACHE_NAME);
+        matchers = Caffeine.newBuilder()
+                .maximumSize(config.maxSize())
+                .expireAfterWrite(Duration.ofSeconds(config.ttl()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, matchers, MATCHER_CACHE_NAME);
+    }
+
+    /**
+     * Returns the configuration resolved for the filter of the current tenant, using the loader on a cache miss.
+     * Negative resolutions are cached as well.
+     */
+    public Configuration get(String filterKey, String filterValue, Supplier<Configuration> loader) {
+        if (!dispatchConfig.configurationCacheConfig().enabled()) {
+            return loader.get();
+        }
+        var key = new CacheKey(TenantContext.currentTenantId(), filterKey, filterValue);
+        return resolutions.get(key, k -> Optional.ofNullable(loader.get())).orElse(null);
+    }
+
+    /**
+     * Returns the compiled matcher for the filter key of the current tenant, using the loader on a cache miss.
+     */
+    public ConfigurationMatcher getMatcher(String filterKey, Supplier<ConfigurationMatcher> loader) {
+        if (!dispatchConfig.configurationCacheConfig().enabled()) {
+            return loader.get();
+        }
+        return matchers.get(new MatcherKey(TenantContext.currentTenantId(), filterKey), k -> loader.get());
+    }
+
+    /**
+     * Configurations depend on providers and MCP servers, every change of the tenant invalidates its entries.
+     */
+    void onEntityChange(@Observes EntityChangeEvent event) {
+        invalidateTenant(event.tenantId());
+    }
+
+    /**
+     * Removes all cached resolutions and matchers of the current tenant.
+     */
+    public void invalidateCurrentTenant() {
+        invalidateTenant(TenantContext.currentTenantId());
+    }
+
+    /**
+     * Removes all cached resolutions and matchers of the tenant.
+     */
+    public void invalidateTenant(String tenantId) {
+        log.debug("Invalidate configuration cache for tenant: {}", tenantId);
+        matchers.asMap().keySet().removeIf(key -> Objects.equals(key.tenantId(), tenantId));
+        resolutions.asMap().keySet().removeIf(key -> Objects.equals(key.tenantId(), tenantId));
+    }
+
+    record CacheKey(String tenantId, String filterKey, String filterValue) {
+    }
+
+    record MatcherKey(String tenantId, String filterKey) {
+    }
+}
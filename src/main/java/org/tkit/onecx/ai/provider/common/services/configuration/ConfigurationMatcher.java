@@ -0,0 +1,161 @@
+package org.tkit.onecx.ai.provider.common.services.configuration;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.tkit.onecx.ai.provider.domain.daos.ConfigurationDAO;
+
+/**
+ * Compiled index of configuration filter values.
+ * <p>
+ * Filter values are stored in a character trie where {@code *} is a wildcard matching any sequence of characters.
+ * Matching walks the trie once for the requested value, so the cost depends on the length of the value and not on
+ * the number of configurations. If several filter values match, the one with the most literal characters wins; ties
+ * are resolved by the order in which the configurations were added.
+ */
+public final class ConfigurationMatcher {
+
+    private static final char WILDCARD = '*';
+
+    private final Node root;
+
+    private final String defaultId;
+
+    private ConfigurationMatcher(Node root, String defaultId) {
+        this.root = root;
+        this.defaultId = defaultId;
+    }
+
+    /**
+     * Creates a matcher for the filter values of the configurations.
+     */
+    public static ConfigurationMatcher of(Collection<ConfigurationDAO.FilterValue> filterValues) {
+        var builder = builder();
+        filterValues.forEach(f -> builder.add(f.configurationId(), f.value()));
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the id of the most specific configuration matching the filter value. For a {@code null} value the
+     * first configuration without filter value is returned.
+     */
+    public String match(String filterValue) {
+        if (filterValue == null) {
+            return defaultId;
+        }
+        // nodes compare by identity, a node reached on several paths is active once
+        Set<Node> active = new HashSet<>();
+        activate(active, root);
+        for (int i = 0; i < filterValue.length() && !active.isEmpty(); i++) {
+            char c = filterValue.charAt(i);
+            Set<Node> next = new HashSet<>();
+            for (Node node : active) {
+                if (node.wildcard) {
+                    activate(next, node);
+                }
+                Node child = node.children.get(c);
+                if (child != null) {
+                    activate(next, child);
+                }
+            }
+            active = next;
+        }
+
+        Node best = null;
+        for (Node node : active) {
+            if (node.id != null && (best == null || node.specificity > best.specificity
+                    || (node.specificity == best.specificity && node.order < best.order))) {
+                best = node;
+            }
+        }
+        return best != null ? best.id : null;
+    }
+
+    private static void activate(Set<Node> nodes, Node node) {
+        nodes.add(node);
+        // wildcard matches the empty sequence as well
+        if (node.star != null) {
+            nodes.add(node.star);
+        }
+    }
+
+    public static final class Builder {
+
+        private final Node root = new Node(false);
+
+        private String defaultId;
+
+        private int order;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds the configuration id for the filter value. A {@code null} value marks the default configuration.
+         */
+        public Builder add(String id, String filterValue) {
+            int position = order++;
+            if (id == null) {
+                return this;
+            }
+            if (filterValue == null) {
+                if (defaultId == null) {
+                    defaultId = id;
+                }
+                return this;
+            }
+            Node node = root;
+            int literals = 0;
+            for (int i = 0; i < filterValue.length(); i++) {
+                char c = filterValue.charAt(i);
+                if (c == WILDCARD) {
+                    if (!node.wildcard) {
+                        if (node.star == null) {
+                            node.star = new Node(true);
+                        }
+                        node = node.star;
+                    }
+                } else {
+                    node = node.children.computeIfAbsent(c, k -> new Node(false));
+                    literals++;
+                }
+            }
+            if (node.id == null) {
+                node.id = id;
+                node.specificity = literals;
+                node.order = position;
+            }
+            return this;
+        }
+
+        public ConfigurationMatcher build() {
+            return new ConfigurationMatcher(root, defaultId);
+        }
+    }
+
+    private static final class Node {
+
+        private final boolean wildcard;
+
+        private final Map<Character, Node> children = new HashMap<>();
+
+        private Node star;
+
+        private String id;
+
+        private int specificity;
+
+        private int order;
+
+        private Node(boolean wildcard) {
+            this.wildcard = wildcard;
+        }
+    }
+}
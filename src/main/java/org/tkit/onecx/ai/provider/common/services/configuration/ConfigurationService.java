@@ -1,11 +1,13 @@
 package org.tkit.onecx.ai.provider.common.services.configuration;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
 import org.tkit.onecx.ai.provider.domain.daos.ConfigurationDAO;
 import org.tkit.onecx.ai.provider.domain.daos.MCPServerDAO;
 import org.tkit.onecx.ai.provider.domain.daos.ProviderDAO;
@@ -40,6 +42,12 @@ public class ConfigurationService {
     @Inject
     ProviderMapper providerMapper;
 
+    @Inject
+    ConfigurationCache configurationCache;
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
     @Transactional
     public Configuration createConfiguration(Configuration configuration) {
         if (configuration.getProvider() != null) {
@@ -50,6 +58,17 @@ public class ConfigurationService {
             configuration.setProvider(provider);
 
         }
+        if (configuration.getFallbackProviders() != null) {
+            var fallbackProviders = new ArrayList<Provider>();
+            configuration.getFallbackProviders().forEach(fallbackProvider -> {
+                var existingProvider = providerDAO.findById(fallbackProvider.getId());
+                if (existingProvider == null) {
+                    existingProvider = providerDAO.create(fallbackProvider);
+                }
+                fallbackProviders.add(existingProvider);
+            });
+            configuration.setFallbackProviders(fallbackProviders);
+        }
         var mcpServers = configuration.getMcpServers();
         var mcpServersToAdd = new HashSet<MCPServer>();
         mcpServers.forEach(mcpServer -> {
@@ -88,9 +107,19 @@ public class ConfigurationService {
             }
             mcpServersToAdd.add(existingMcpServer);
         });
+        var fallbackProviders = new ArrayList<Provider>();
+        if (updateAIConfigurationRequestDTO.getFallbackProviders() != null) {
+            updateAIConfigurationRequestDTO.getFallbackProviders().forEach(fallbackProvider -> {
+                var existingProvider = providerDAO.findById(fallbackProvider.getId());
+                if (existingProvider == null) {
+                    existingProvider = providerDAO.create(providerMapper.map(fallbackProvider));
+                }
+                fallbackProviders.add(existingProvider);
+            });
+        }
         configurationMapper.mapUpdate(aiConfiguration, updateAIConfigurationRequestDTO,
                 new HashSet<>(mcpServersToAdd),
-                provider);
+                provider, fallbackProviders);
 
         return configurationDAO.update(aiConfiguration);
     }
@@ -106,24 +135,20 @@ public class ConfigurationService {
                         ? requestContext.getFilter().getValue()
                         : null;
 
-        var configurations = configurationDAO.findAllConfigurationsByFilterKey(filterKey);
+        return configurationCache.get(filterKey, filterValue, () -> resolveConfiguration(filterKey, filterValue));
+    }
 
-        if (filterValue == null) {
-            return configurations.stream()
-                    .filter(c -> c.getFilter() == null || c.getFilter().getValue() == null)
-                    .findFirst()
-                    .orElse(null);
+    private Configuration resolveConfiguration(String filterKey, String filterValue) {
+        var configurationId = switch (dispatchConfig.configurationMatchStrategy()) {
+            case DATABASE -> configurationDAO.findBestMatchingConfigurationId(filterKey, filterValue);
+            case INDEX -> configurationCache.getMatcher(filterKey,
+                    () -> ConfigurationMatcher.of(configurationDAO.findFilterValuesByFilterKey(filterKey)))
+                    .match(filterValue);
+        };
+        if (configurationId == null) {
+            return null;
         }
-
-        return configurations.stream()
-                .filter(c -> c.getFilter() != null
-                        && c.getFilter().getValue() != null
-                        && filterValue.matches(c.getFilter().getValue().replace("*", ".*")))
-                .max((c1, c2) -> {
-                    int len1 = c1.getFilter().getValue().replace("*", "").length();
-                    int len2 = c2.getFilter().getValue().replace("*", "").length();
-                    return Integer.compare(len1, len2);
-                })
-                .orElse(null);
+        // provider and MCP servers are fetched with the configuration, cached instances are used detached
+        return configurationDAO.findConfigurationForDispatch(configurationId);
     }
 }
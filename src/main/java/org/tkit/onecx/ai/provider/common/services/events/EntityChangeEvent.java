@@ -0,0 +1,15 @@
+package org.tkit.onecx.ai.provider.common.services.events;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Change of a tenant entity, published to all instances of the service.
+ *
+ * @param origin id of the instance which changed the entity
+ * @param tenantId tenant of the changed entity
+ * @param type type of the changed entity
+ * @param id id of the changed entity
+ */
+@RegisterForReflection
+public record EntityChangeEvent(String origin, String tenantId, EntityType type, String id) {
+}
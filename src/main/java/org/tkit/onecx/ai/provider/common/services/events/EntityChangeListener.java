@@ -0,0 +1,119 @@
+package org.tkit.onecx.ai.provider.common.services.events;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Optional;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.postgresql.PGConnection;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Listens on the Postgres channel for entity changes of other instances and fires them as local events. The
+ * {@code LISTEN} is bound to its session for the lifetime of the application, so it uses its own connection with the
+ * settings of the default datasource instead of holding one of the pool.
+ */
+@Slf4j
+@ApplicationScoped
+public class EntityChangeListener {
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @ConfigProperty(name = "quarkus.datasource.jdbc.url")
+    String url;
+
+    @ConfigProperty(name = "quarkus.datasource.username")
+    Optional<String> username;
+
+    @ConfigProperty(name = "quarkus.datasource.password")
+    Optional<String> password;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    Event<EntityChangeEvent> events;
+
+    private volatile boolean running;
+
+    private Thread thread;
+
+    void onStart(@Observes StartupEvent ev) {
+        if (!dispatchConfig.changeEventsConfig().enabled()) {
+            return;
+        }
+        running = true;
+        thread = Thread.ofPlatform().daemon().name("entity-change-listener").start(this::listen);
+    }
+
+    void onStop(@Observes ShutdownEvent ev) {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    void listen() {
+        var config = dispatchConfig.changeEventsConfig();
+        while (running) {
+            try (var connection = connect(); var statement = connection.createStatement()) {
+                statement.execute("LISTEN \"" + config.channel() + "\"");
+                var pgConnection = connection.unwrap(PGConnection.class);
+                log.info("Listening for entity change events on channel: {}", config.channel());
+                while (running) {
+                    var notifications = pgConnection.getNotifications((int) config.pollTimeout());
+                    if (notifications != null) {
+                        for (var notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (Exception ex) {
+                if (running) {
+                    log.warn("Entity change listener failed, reconnecting in {} ms, error: {}", config.reconnectDelay(),
+                            ex.getMessage());
+                    sleep(config.reconnectDelay());
+                }
+            }
+        }
+    }
+
+    Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, username.orElse(null), password.orElse(null));
+    }
+
+    void handle(String payload) {
+        try {
+            var event = objectMapper.readValue(payload, EntityChangeEvent.class);
+            if (EntityChangeNotifier.ORIGIN.equals(event.origin())) {
+                return;
+            }
+            log.debug("Received entity change event: {}", event);
+            events.fire(event);
+        } catch (Exception ex) {
+            log.warn("Failed to process entity change event {}, error: {}", payload, ex.getMessage());
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
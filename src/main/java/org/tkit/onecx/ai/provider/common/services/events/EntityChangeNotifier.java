@@ -0,0 +1,90 @@
+package org.tkit.onecx.ai.provider.common.services.events;
+
+import java.util.UUID;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.tenant.TenantContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.agroal.api.AgroalDataSource;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes entity changes to the local observers and, over Postgres {@code NOTIFY}, to the other instances.
+ */
+@Slf4j
+@ApplicationScoped
+public class EntityChangeNotifier {
+
+    /**
+     * Id of this instance, used to skip own notifications received by the {@link EntityChangeListener}.
+     */
+    static final String ORIGIN = UUID.randomUUID().toString();
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    Event<EntityChangeEvent> events;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * Notifies the change of the entity of the current tenant. Inside a transaction the local observers are notified
+     * after the commit, so that they do not reload the old state, and the {@code NOTIFY} is sent with the transaction.
+     */
+    public void notifyChange(EntityType type, String id) {
+        var event = new EntityChangeEvent(ORIGIN, TenantContext.currentTenantId(), type, id);
+        if (transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                    // nothing to do
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        events.fire(event);
+                    }
+                }
+            });
+        } else {
+            events.fire(event);
+        }
+        if (dispatchConfig.changeEventsConfig().enabled()) {
+            publish(event);
+        }
+    }
+
+    /**
+     * Postgres delivers the notification on commit of the transaction of the connection, a rolled back change is not
+     * published.
+     */
+    void publish(EntityChangeEvent event) {
+        try (var connection = dataSource.getConnection();
+                var statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, dispatchConfig.changeEventsConfig().channel());
+            statement.setString(2, objectMapper.writeValueAsString(event));
+            statement.execute();
+        } catch (Exception ex) {
+            // other instances keep their entries until the cache expires
+            log.warn("Failed to publish entity change event {}, error: {}", event, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package org.tkit.onecx.ai.provider.common.services.events;
+
+public enum EntityType {
+    CONFIGURATION,
+    PROVIDER,
+    MCP_SERVER
+}
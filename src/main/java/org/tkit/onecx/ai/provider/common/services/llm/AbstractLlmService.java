@@ -2,32 +2,53 @@ package org.tkit.onecx.ai.provider.common.services.llm;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.Response;
 
+import org.eclipse.microprofile.context.ManagedExecutor;
 import org.eclipse.microprofile.faulttolerance.Fallback;
 import org.eclipse.microprofile.faulttolerance.Retry;
 import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.mcp.McpServerBusyException;
+import org.tkit.onecx.ai.provider.common.services.mcp.McpServerLimiter;
 import org.tkit.onecx.ai.provider.common.services.mcp.McpService;
 import org.tkit.onecx.ai.provider.common.services.mcp.McpTool;
+import org.tkit.onecx.ai.provider.common.services.mcp.McpToolIndex;
 import org.tkit.onecx.ai.provider.common.services.mcp.McpToolRegistry;
+import org.tkit.onecx.ai.provider.common.services.mcp.McpToolResultCache;
 import org.tkit.onecx.ai.provider.domain.models.Configuration;
 import org.tkit.onecx.ai.provider.domain.models.Provider;
 
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.chat.request.ChatRequest;
 import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatMessageDTOV1;
 import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatRequestDTOV1;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -40,12 +61,49 @@ public abstract class AbstractLlmService {
     @Inject
     DispatchConfig dispatchConfig;
 
+    @Inject
+    McpServerLimiter serverLimiter;
+
+    @Inject
+    McpToolResultCache toolResultCache;
+
+    @Inject
+    ManagedExecutor executor;
+
+    @Inject
+    ChatRequestCoalescer coalescer;
+
+    @Inject
+    ProviderBulkhead bulkhead;
+
+    @Inject
+    AdaptiveProviderLimiter adaptiveLimiter;
+
+    @Inject
+    ProviderReplicaRouter replicaRouter;
+
+    @Inject
+    ChatRequestHedger hedger;
+
+    @Inject
+    ProviderCircuitBreaker circuitBreaker;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
     protected static final String HEALTHY = "HEALTHY";
     protected static final String UNHEALTHY = "UNHEALTHY";
     protected static final String HEALTH_CHECK_PROMPT = "ping";
 
+    private static final int TOOL_SELECTION_HISTORY = 4;
+
     public abstract Response chat(Configuration configuration, ChatRequestDTOV1 chatRequestDTO);
 
+    /**
+     * Chat with the answer streamed as server-sent events, see {@link ChatStreamWriter}.
+     */
+    public abstract Response chatStream(Configuration configuration, ChatRequestDTOV1 chatRequestDTO);
+
     /**
      * Creates a tool registry from the MCP servers defined in the context.
      */
@@ -53,6 +111,42 @@ public abstract class AbstractLlmService {
         return mcpService.createToolRegistry(aiConfiguration);
     }
 
+    /**
+     * Selects the tools relevant to the chat if the configuration limits the number of tools, see
+     * {@link McpToolIndex}. The last user message and recent history are the query.
+     */
+    protected ToolSelection selectTools(Configuration configuration, McpToolRegistry toolRegistry,
+            List<ChatMessage> messages) {
+        List<ToolSpecification> allTools = toolRegistry.getToolSpecifications();
+        Integer maxTools = configuration.getMaxTools();
+        if (maxTools == null || maxTools <= 0 || allTools.size() <= maxTools) {
+            return ToolSelection.all(allTools);
+        }
+        String query = messages.subList(Math.max(0, messages.size() - TOOL_SELECTION_HISTORY), messages.size()).stream()
+                .map(AbstractLlmService::messageText)
+                .filter(Objects::nonNull)
+                .collect(Collectors.joining(" "));
+        List<ToolSpecification> selected = McpToolIndex.of(allTools).top(query, maxTools);
+        log.info("Selected {} of {} tool(s) for this request", selected.size(), allTools.size());
+        return new ToolSelection(allTools, selected);
+    }
+
+    protected ChatRequest toolChatRequest(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        ChatRequest.Builder chatRequestBuilder = ChatRequest.builder().messages(messages);
+        if (!toolSpecifications.isEmpty()) {
+            chatRequestBuilder.toolSpecifications(toolSpecifications);
+        }
+        return chatRequestBuilder.build();
+    }
+
+    private static String messageText(ChatMessage message) {
+        return switch (message) {
+            case UserMessage userMessage when userMessage.hasSingleText() -> userMessage.singleText();
+            case AiMessage aiMessage -> aiMessage.text();
+            default -> null;
+        };
+    }
+
     /**
      * Checks if the LLM response contains tool execution requests.
      */
@@ -77,37 +171,69 @@ public abstract class AbstractLlmService {
         AiMessage aiMessage = response.aiMessage();
         resultMessages.add(aiMessage);
 
-        for (ToolExecutionRequest toolRequest : aiMessage.toolExecutionRequests()) {
-            String toolName = toolRequest.name();
-
-            log.info("LLM requested tool execution: {} with arguments: {}", toolName, toolRequest.arguments());
+        List<ToolExecutionRequest> toolRequests = aiMessage.toolExecutionRequests();
+        if (toolRequests.size() == 1) {
+            resultMessages.add(executeToolRequest(toolRequests.getFirst(), toolRegistry));
+            return resultMessages;
+        }
 
-            var toolOpt = toolRegistry.findByName(toolName);
-            if (toolOpt.isEmpty()) {
-                log.error("Tool '{}' not found in registry", toolName);
-                resultMessages.add(ToolExecutionResultMessage.from(
-                        toolRequest,
-                        "Error: Tool '" + toolName + "' not found"));
-                continue;
+        // independent tool calls run concurrently, results keep the order of the requests
+        var executions = toolRequests.stream()
+                .map(toolRequest -> CompletableFuture.supplyAsync(() -> executeToolRequest(toolRequest, toolRegistry),
+                        executor))
+                .toList();
+        for (var execution : executions) {
+            try {
+                resultMessages.add(execution.join());
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw ex;
             }
-            String result = executeToolRequestWithRetry(toolOpt.get(), toolRequest);
-            log.info("Tool '{}' executed successfully", toolName);
-
-            resultMessages.add(ToolExecutionResultMessage.from(toolRequest, result));
         }
 
         return resultMessages;
     }
 
-    @Retry
-    @Fallback(fallbackMethod = "toolExecutionFallback")
+    private ToolExecutionResultMessage executeToolRequest(ToolExecutionRequest toolRequest, McpToolRegistry toolRegistry) {
+        String toolName = toolRequest.name();
+
+        log.info("LLM requested tool execution: {} with arguments: {}", toolName, toolRequest.arguments());
+
+        var toolOpt = toolRegistry.findByName(toolName);
+        if (toolOpt.isEmpty()) {
+            log.error("Tool '{}' not found in registry", toolName);
+            return ToolExecutionResultMessage.from(toolRequest, "Error: Tool '" + toolName + "' not found");
+        }
+        String result;
+        try {
+            result = executeToolRequestWithRetry(toolOpt.get(), toolRequest);
+        } catch (McpServerBusyException ex) {
+            log.warn("Tool '{}' not executed: {}", toolName, ex.getMessage());
+            return ToolExecutionResultMessage.from(toolRequest, "Error: MCP server of tool '" + toolName + "' is busy");
+        }
+        log.info("Tool '{}' executed successfully", toolName);
+
+        return ToolExecutionResultMessage.from(toolRequest, result);
+    }
+
+    /**
+     * Calls that found the MCP server busy are neither retried nor fall back, the pooled client of the server is only
+     * evicted after failed calls.
+     */
+    @Retry(abortOn = McpServerBusyException.class)
+    @Fallback(fallbackMethod = "toolExecutionFallback", skipOn = McpServerBusyException.class)
     protected String executeToolRequestWithRetry(McpTool tool, ToolExecutionRequest toolRequest) {
-        return tool.execute(toolRequest);
+        return toolResultCache.get(tool, toolRequest,
+                () -> serverLimiter.execute(tool.serverUrl(), () -> mcpService.executeTool(tool, toolRequest)));
     }
 
     protected String toolExecutionFallback(McpTool tool, ToolExecutionRequest toolRequest) {
         log.error("Tool execution failed after {} retries for tool: {}", dispatchConfig.mcpConfig().maxToolExecutionRetries(),
                 toolRequest.name());
+        // the call itself failed (busy servers skip the fallback), the connection of the pooled client might be broken
+        mcpService.evictClient(tool.mcpClient());
         return "Error: Tool execution failed for '" + toolRequest.name() + "'";
     }
 
@@ -131,16 +257,133 @@ public abstract class AbstractLlmService {
         return chatMessageDTOV1;
     }
 
-    @Retry
-    @Fallback(fallbackMethod = "modelChatFallback")
-    protected ChatResponse modelChatRequestWithRetries(ChatModel chatModel, ChatRequest chatRequest) {
+    /**
+     * Each attempt is admitted and sampled by the adaptive limit of the provider, counted by its circuit breaker and
+     * routed to the endpoint of the provider with the fewest calls in flight which did not fail in an earlier attempt.
+     * Attempts rejected by the limit or the open circuit are not retried.
+     *
+     * @param failedEndpoints base URLs of the endpoints which failed in earlier attempts, filled by the attempts
+     */
+    @Retry(abortOn = { ProviderOverloadedException.class, ProviderUnavailableException.class })
+    @Fallback(fallbackMethod = "modelChatFallback", skipOn = { ProviderOverloadedException.class,
+            ProviderUnavailableException.class })
+    protected ChatResponse modelChatRequestWithRetries(Provider provider, String affinityKey,
+            Function<String, ? extends ChatModel> chatModels, ChatRequest chatRequest, Set<String> failedEndpoints) {
+        return adaptiveLimiter.execute(provider, () -> circuitBreaker.execute(provider,
+                () -> replicaRouter.execute(provider, affinityKey, failedEndpoints,
+                        baseUrl -> modelChatRequest(chatModels.apply(baseUrl), chatRequest))));
+    }
+
+    protected ChatResponse modelChatRequest(ChatModel chatModel, ChatRequest chatRequest) {
         return chatModel.chat(chatRequest);
     }
 
-    protected ChatResponse modelChatFallback(ChatModel chatModel, ChatRequest chatRequest) {
+    /**
+     * Sends the chat request to the model of the selected provider endpoint once a slot of the provider is free and
+     * the provider is below its adaptive limit. Requests to a provider with open circuit fail fast, a retry selects
+     * the endpoint again.
+     *
+     * @param affinityKey requests with the same key are preferably sent to the same endpoint, may be {@code null}
+     * @param chatModels model per base URL of the provider endpoints
+     * @throws ProviderOverloadedException if the provider has no free slot
+     * @throws ProviderUnavailableException if the circuit of the provider is open
+     */
+    protected ChatResponse providerChatRequest(Provider provider, String affinityKey,
+            Function<String, ? extends ChatModel> chatModels, ChatRequest chatRequest) {
+        circuitBreaker.rejectIfOpen(provider);
+        return bulkhead.execute(provider,
+                () -> modelChatRequestWithRetries(provider, affinityKey, chatModels, chatRequest, new HashSet<>()));
+    }
+
+    /**
+     * Sends the chat request to the model, concurrent identical requests to the same provider share the call.
+     */
+    protected ChatResponse coalescedModelChatRequest(Provider provider, String affinityKey,
+            Function<String, ? extends ChatModel> chatModels, ChatRequest chatRequest) {
+        var key = new ChatRequestCoalescer.Key(provider.getId(), provider.getModificationCount(), chatRequest);
+        return coalescer.execute(key, () -> providerChatRequest(provider, affinityKey, chatModels, chatRequest));
+    }
+
+    /**
+     * Conversation of the chat request, the turns of a conversation are routed to the same provider endpoint.
+     */
+    protected static String conversationId(ChatRequestDTOV1 chatRequestDTO) {
+        return chatRequestDTO.getConversation() == null ? null : chatRequestDTO.getConversation().getConversationId();
+    }
+
+    /**
+     * Failover over the providers of the configuration for one chat request.
+     */
+    protected ProviderFailover failover(Configuration configuration) {
+        return new ProviderFailover(configuration,
+                TimeUnit.SECONDS.toNanos(dispatchConfig.providerConfig().failoverDeadline()), meterRegistry);
+    }
+
+    protected static Response providerOverloaded(ProviderOverloadedException ex) {
+        return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, ex.getRetryAfter())
+                .entity(ex.getMessage())
+                .build();
+    }
+
+    protected static Response providerUnavailable(ProviderUnavailableException ex) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, ex.getRetryAfter())
+                .entity(ex.getMessage())
+                .build();
+    }
+
+    protected ChatResponse modelChatFallback(Provider provider, String affinityKey,
+            Function<String, ? extends ChatModel> chatModels, ChatRequest chatRequest, Set<String> failedEndpoints) {
         log.error("Chat request failed after retries. Unable to get response from LLM model");
         return null;
     }
 
+    /**
+     * Sends the chat request to the streaming model and passes the partial responses to the consumer in the calling
+     * thread.
+     *
+     * @return the complete response
+     */
+    protected ChatResponse streamChatRequest(StreamingChatModel chatModel, ChatRequest chatRequest,
+            Consumer<String> partialResponseConsumer) throws InterruptedException {
+        BlockingQueue<StreamSignal> signals = new LinkedBlockingQueue<>();
+        chatModel.chat(chatRequest, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                signals.add(new StreamSignal(partialResponse, null, null));
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                signals.add(new StreamSignal(null, completeResponse, null));
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                signals.add(new StreamSignal(null, null, error));
+            }
+        });
+
+        long timeout = dispatchConfig.providerConfig().timeout();
+        while (true) {
+            var signal = signals.poll(timeout, TimeUnit.SECONDS);
+            if (signal == null) {
+                throw new IllegalStateException("No response from model within " + timeout + " seconds");
+            }
+            if (signal.error() != null) {
+                throw new IllegalStateException("Streaming chat request failed: " + signal.error().getMessage(),
+                        signal.error());
+            }
+            if (signal.response() != null) {
+                return signal.response();
+            }
+            partialResponseConsumer.accept(signal.partialResponse());
+        }
+    }
+
     public abstract String getHealthStatus(Provider provider);
+
+    private record StreamSignal(String partialResponse, ChatResponse response, Throwable error) {
+    }
 }
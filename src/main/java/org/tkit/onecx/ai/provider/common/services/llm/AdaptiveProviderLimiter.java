@@ -0,0 +1,174 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Concurrency limit per provider adjusted to the observed latency and errors. The limit shrinks when the recent
+ * latency grows beyond the long-term latency of the provider or when calls fail, and grows while the provider is
+ * busy and answers as fast as usual. Calls beyond the limit are rejected with a {@link ProviderOverloadedException}.
+ * <p>
+ * The recent latency is compared to the long-term average instead of the minimum, the latency of a model depends on
+ * the length of the answer. Each attempt of a model call is one sample, rejections of other limits and interrupted
+ * calls are no samples.
+ */
+@Slf4j
+@ApplicationScoped
+public class AdaptiveProviderLimiter {
+
+    static final String METRIC_NAME = "onecx.ai.dispatch.provider.limit";
+
+    private static final double SHORT_WEIGHT = 0.2;
+
+    private static final double LONG_WEIGHT = 0.01;
+
+    private static final double BACKOFF = 0.9;
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the call if the provider is below its limit. A {@code null} result counts as failed call.
+     */
+    public <T> T execute(Provider provider, Supplier<T> call) {
+        var config = dispatchConfig.providerConfig().adaptiveLimit();
+        if (!config.enabled() || provider.getId() == null) {
+            return call.get();
+        }
+        var limit = limits.computeIfAbsent(provider.getId(), id -> new Limit(provider, config));
+        if (!limit.tryAcquire()) {
+            meterRegistry.counter(METRIC_NAME + ".rejected", "provider", provider.getId()).increment();
+            log.warn("Rejected call to provider '{}' at concurrency limit {}", provider.getName(), limit.limit());
+            throw new ProviderOverloadedException("Provider '" + provider.getName() + "' is overloaded",
+                    dispatchConfig.providerConfig().retryAfter());
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        boolean sampled = true;
+        try {
+            T result = call.get();
+            failed = result == null;
+            return result;
+        } catch (ProviderOverloadedException | ProviderUnavailableException | ReplicaFailedException ex) {
+            // rejected by another limit or the open circuit or failed at a single endpoint of the provider
+            sampled = false;
+            throw ex;
+        } finally {
+            // a call cancelled by an interrupt, like the losing call of a hedge, says nothing about the provider
+            if (sampled && !Thread.currentThread().isInterrupted()) {
+                limit.release(System.nanoTime() - start, failed);
+            } else {
+                limit.cancel();
+            }
+        }
+    }
+
+    void onEntityChange(@Observes EntityChangeEvent event) {
+        if (event.type() == EntityType.PROVIDER && event.id() != null) {
+            var limit = limits.remove(event.id());
+            if (limit != null) {
+                limit.meters().forEach(meterRegistry::remove);
+            }
+        }
+    }
+
+    private final class Limit {
+
+        private final DispatchConfig.AdaptiveLimitConfig config;
+
+        private final List<Meter> meters;
+
+        private double limit;
+
+        private int inFlight;
+
+        private double shortRtt;
+
+        private double longRtt;
+
+        Limit(Provider provider, DispatchConfig.AdaptiveLimitConfig config) {
+            this.config = config;
+            Integer maxConcurrent = provider.getMaxConcurrentRequests();
+            this.limit = maxConcurrent != null && maxConcurrent > 0
+                    ? Math.max(config.minLimit(), Math.min(config.maxLimit(), maxConcurrent))
+                    : config.initialLimit();
+            this.meters = List.of(
+                    Gauge.builder(METRIC_NAME, this, Limit::limit).tag("provider", provider.getId())
+                            .register(meterRegistry),
+                    Gauge.builder(METRIC_NAME + ".in.flight", this, Limit::inFlight).tag("provider", provider.getId())
+                            .register(meterRegistry));
+        }
+
+        List<Meter> meters() {
+            return meters;
+        }
+
+        synchronized double limit() {
+            return (int) limit;
+        }
+
+        synchronized double inFlight() {
+            return inFlight;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (inFlight >= (int) limit) {
+                return false;
+            }
+            inFlight++;
+            return true;
+        }
+
+        synchronized void cancel() {
+            inFlight--;
+        }
+
+        synchronized void release(long rtt, boolean failed) {
+            int busy = inFlight;
+            inFlight--;
+            if (failed) {
+                limit = Math.max(config.minLimit(), limit * BACKOFF);
+                return;
+            }
+            if (longRtt == 0) {
+                shortRtt = rtt;
+                longRtt = rtt;
+            }
+            shortRtt = shortRtt * (1 - SHORT_WEIGHT) + rtt * SHORT_WEIGHT;
+            longRtt = longRtt * (1 - LONG_WEIGHT) + rtt * LONG_WEIGHT;
+            if (longRtt > 2 * shortRtt) {
+                // recover quickly after a slow period instead of waiting for the long-term average
+                longRtt *= 0.95;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, config.tolerance() * longRtt / shortRtt));
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            if (newLimit > limit && busy < limit / 2) {
+                // the limit is not reached, a larger limit would not be verified by the latency
+                return;
+            }
+            newLimit = limit * (1 - config.smoothing()) + newLimit * config.smoothing();
+            limit = Math.max(config.minLimit(), Math.min(config.maxLimit(), newLimit));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Shares one model call between concurrent identical chat requests to the same provider. The first request calls the
+ * model, requests arriving while the call is in flight wait for and receive its response. Nothing is kept after the
+ * call completes.
+ */
+@ApplicationScoped
+public class ChatRequestCoalescer {
+
+    static final String METRIC_NAME = "onecx.ai.dispatch.chat.coalesced";
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Map<Key, CompletableFuture<ChatResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private Counter coalesced;
+
+    @PostConstruct
+    void init() {
+        coalesced = meterRegistry.counter(METRIC_NAME);
+        Gauge.builder(METRIC_NAME + ".in.flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns the response of the identical in-flight call or calls the model. Calls of providers without id are not
+     * shared, they can not be told apart.
+     */
+    public ChatResponse execute(Key key, Supplier<ChatResponse> call) {
+        if (!dispatchConfig.providerConfig().coalesceRequests() || key.providerId() == null) {
+            return call.get();
+        }
+        var future = new CompletableFuture<ChatResponse>();
+        var existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        }
+        try {
+            var response = call.get();
+            future.complete(response);
+            return response;
+        } catch (RuntimeException | Error ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Identical model calls, the chat request compares messages and parameters.
+     */
+    public record Key(String providerId, Integer providerVersion, ChatRequest chatRequest) {
+    }
+}
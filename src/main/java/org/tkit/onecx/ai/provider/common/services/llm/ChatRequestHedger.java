@@ -0,0 +1,184 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hedged model calls for latency-critical configurations. A second call is sent to another replica or provider when
+ * the first call did not answer within the configured percentile of the recent latencies of the configuration. The
+ * first response wins and the other call is cancelled. Hedges are throttled by a token bucket which earns a fraction
+ * of a token per call, the hedge rate stays below this fraction.
+ */
+@Slf4j
+@ApplicationScoped
+public class ChatRequestHedger {
+
+    static final String METRIC_NAME = "onecx.ai.dispatch.chat.hedge";
+
+    private static final int LATENCY_WINDOW = 200;
+
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
+    private static final double MAX_TOKENS = 10;
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    ManagedExecutor executor;
+
+    private final Map<String, Hedge> hedges = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the call and, for latency-critical configurations, the hedged call if the first call is slow. A
+     * {@code null} result counts as failed call, the other call is awaited then.
+     *
+     * @param hedge the hedged call or {@code null} if there is no other replica or provider
+     * @return the first non-null result or {@code null}
+     */
+    public <T> T execute(Configuration configuration, Supplier<T> call, Supplier<T> hedge) {
+        var config = dispatchConfig.hedgeConfig();
+        if (hedge == null || !Boolean.TRUE.equals(configuration.getLatencyCritical()) || configuration.getId() == null
+                || !config.enabled()) {
+            return call.get();
+        }
+        var state = hedges.computeIfAbsent(configuration.getId(), id -> new Hedge());
+        long delay = state.delay(config);
+        long start = System.nanoTime();
+        if (delay < 0) {
+            T result = call.get();
+            if (result != null) {
+                state.record(System.nanoTime() - start);
+            }
+            return result;
+        }
+        var calls = new ExecutorCompletionService<T>(executor);
+        List<Future<T>> running = new ArrayList<>(2);
+        running.add(calls.submit(call::get));
+        Future<T> hedged = null;
+        try {
+            Future<T> done = calls.poll(delay, TimeUnit.NANOSECONDS);
+            if (done == null) {
+                if (state.tryHedge()) {
+                    log.debug("Hedge call of configuration '{}' after {} ms", configuration.getName(),
+                            TimeUnit.NANOSECONDS.toMillis(delay));
+                    hedged = calls.submit(hedge::get);
+                    running.add(hedged);
+                } else {
+                    meterRegistry.counter(METRIC_NAME + ".throttled", "configuration", configuration.getId())
+                            .increment();
+                }
+                done = calls.take();
+            }
+            RuntimeException failure = null;
+            for (int pending = running.size() - 1;; pending--) {
+                try {
+                    T result = done.get();
+                    if (result != null) {
+                        state.record(System.nanoTime() - start);
+                        if (hedged != null) {
+                            meterRegistry.counter(METRIC_NAME, "configuration", configuration.getId(), "result",
+                                    done == hedged ? "win" : "loss").increment();
+                        }
+                        return result;
+                    }
+                } catch (ExecutionException ex) {
+                    failure = failure != null ? failure : unwrap(ex);
+                }
+                if (pending == 0) {
+                    break;
+                }
+                done = calls.take();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            running.forEach(future -> future.cancel(true));
+        }
+    }
+
+    void onEntityChange(@Observes EntityChangeEvent event) {
+        if (event.type() == EntityType.CONFIGURATION && event.id() != null) {
+            hedges.remove(event.id());
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException ex) {
+        if (ex.getCause() instanceof RuntimeException cause) {
+            return cause;
+        }
+        if (ex.getCause() instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(ex.getCause());
+    }
+
+    private static final class Hedge {
+
+        private final long[] latencies = new long[LATENCY_WINDOW];
+
+        private int samples;
+
+        private int next;
+
+        private double tokens;
+
+        /**
+         * Earns a fraction of a token for the call and returns the delay of the hedge in nanoseconds, {@code -1} until
+         * enough latencies are known.
+         */
+        synchronized long delay(DispatchConfig.HedgeConfig config) {
+            tokens = Math.min(MAX_TOKENS, tokens + config.maxRate());
+            if (samples < MIN_LATENCY_SAMPLES) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(latencies, samples);
+            Arrays.sort(sorted);
+            long percentile = sorted[Math.max(0, (int) Math.ceil(config.percentile() * samples) - 1)];
+            return Math.max(TimeUnit.MILLISECONDS.toNanos(config.minDelay()), percentile);
+        }
+
+        synchronized boolean tryHedge() {
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        synchronized void record(long latency) {
+            latencies[next] = latency;
+            next = (next + 1) % LATENCY_WINDOW;
+            samples = Math.min(LATENCY_WINDOW, samples + 1);
+        }
+    }
+}
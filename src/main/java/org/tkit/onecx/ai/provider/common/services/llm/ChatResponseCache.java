@@ -0,0 +1,272 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.common.services.tenant.TenantContext;
+import org.tkit.onecx.ai.provider.domain.models.Configuration;
+import org.tkit.onecx.ai.provider.domain.models.enums.ResponseCacheMode;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatMessageDTOV1;
+import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatRequestDTOV1;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache of chat responses shared by all users of a tenant. A response is reused for the same configuration version,
+ * system message and conversation. Conversations of configurations with MCP servers are not cached, tool results
+ * may change between calls.
+ * <p>
+ * In {@link ResponseCacheMode#SEMANTIC} mode the answer of a similar first question of the same configuration is
+ * reused as well. A user who gets an unfitting answer can send the request again with the AI context
+ * {@code response-cache=refresh}, the new answer then replaces the cached one.
+ */
+@Slf4j
+@ApplicationScoped
+public class ChatResponseCache {
+
+    static final String CACHE_NAME = "onecx.ai.dispatch.chat.responses";
+
+    static final String SEMANTIC_NAME = CACHE_NAME + ".semantic";
+
+    static final String CONTEXT_KEY = "response-cache";
+
+    static final String CONTEXT_REFRESH = "refresh";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final int EMBEDDING_DIMENSIONS = 512;
+
+    // fixed seed, so the index buckets do not change between restarts
+    private static final long HYPERPLANE_SEED = 0x5eed_cac4eL;
+
+    // rough size of the objects around the cached strings
+    private static final int ENTRY_OVERHEAD = 256;
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private Cache<ResponseKey, String> responses;
+
+    private Cache<ResponseScope, SemanticResponseIndex> indexes;
+
+    private HashingEmbeddingModel embeddingModel;
+
+    private float[][] hyperplanes;
+
+    private Counter semanticHits;
+
+    private Counter semanticMisses;
+
+    private Counter overrides;
+
+    private Timer semanticLookup;
+
+    @PostConstruct
+    void init() {
+        var config = dispatchConfig.responseCacheConfig();
+        responses = Caffeine.newBuilder()
+                .maximumWeight(config.maxSizeBytes())
+                .<ResponseKey, String> weigher((key, message) -> key.weight() + 2 * message.length())
+                .expireAfterWrite(Duration.ofSeconds(config.ttl()))
+                // evict on the writing thread, so the cache never holds more bytes than configured
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, CACHE_NAME);
+        Gauge.builder(CACHE_NAME + ".bytes", responses,
+                cache -> cache.policy().eviction().flatMap(eviction -> eviction.weightedSize()).orElse(0L))
+                .register(meterRegistry);
+
+        embeddingModel = new HashingEmbeddingModel(EMBEDDING_DIMENSIONS);
+        hyperplanes = SemanticResponseIndex.hyperplanes(EMBEDDING_DIMENSIONS, HYPERPLANE_SEED);
+        indexes = Caffeine.newBuilder()
+                .maximumSize(config.semanticMaxIndexes())
+                .expireAfterAccess(Duration.ofSeconds(config.ttl()))
+                .build();
+        semanticHits = meterRegistry.counter(SEMANTIC_NAME + ".hits");
+        semanticMisses = meterRegistry.counter(SEMANTIC_NAME + ".misses");
+        overrides = meterRegistry.counter(CACHE_NAME + ".overrides");
+        semanticLookup = meterRegistry.timer(SEMANTIC_NAME + ".lookup");
+        Gauge.builder(SEMANTIC_NAME + ".bytes", indexes,
+                cache -> cache.asMap().values().stream().mapToLong(SemanticResponseIndex::bytes).sum())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cache key of the chat request or {@code null} if the response must not be cached.
+     */
+    public ResponseKey key(Configuration configuration, ChatRequestDTOV1 chatRequest) {
+        var mode = configuration.getResponseCache();
+        if ((mode != ResponseCacheMode.EXACT && mode != ResponseCacheMode.SEMANTIC)
+                || (configuration.getMcpServers() != null && !configuration.getMcpServers().isEmpty())
+                || chatRequest.getChatMessage() == null || chatRequest.getChatMessage().getMessage() == null) {
+            return null;
+        }
+        String tenantId = TenantContext.currentTenantId();
+        if (tenantId == null) {
+            return null;
+        }
+        var provider = configuration.getProvider();
+        return new ResponseKey(tenantId, configuration.getId(), configuration.getModificationCount(),
+                provider.getId(), provider.getModificationCount(), configuration.getLlmSystemMessage(),
+                mode, hash(chatRequest));
+    }
+
+    /**
+     * Returns a new response message for the cached response or {@code null} on a cache miss or if the user asked
+     * for a fresh answer.
+     */
+    public CachedResponse get(ResponseKey key, ChatRequestDTOV1 chatRequest) {
+        if (isRefresh(chatRequest)) {
+            overrides.increment();
+            return null;
+        }
+        String message = responses.getIfPresent(key);
+        if (message != null) {
+            return new CachedResponse(response(message), ResponseCacheMode.EXACT);
+        }
+        if (key.mode() != ResponseCacheMode.SEMANTIC || !isFirstQuestion(chatRequest)) {
+            return null;
+        }
+        var index = indexes.getIfPresent(key.scope());
+        if (index == null) {
+            semanticMisses.increment();
+            return null;
+        }
+        message = semanticLookup.record(() -> index.find(vector(chatRequest), threshold()));
+        if (message == null) {
+            semanticMisses.increment();
+            return null;
+        }
+        semanticHits.increment();
+        return new CachedResponse(response(message), ResponseCacheMode.SEMANTIC);
+    }
+
+    /**
+     * Caches the response if the chat was answered successfully.
+     */
+    public void put(ResponseKey key, ChatRequestDTOV1 chatRequest, Response response) {
+        if (response.getStatus() != Response.Status.OK.getStatusCode()
+                || !(response.getEntity() instanceof ChatMessageDTOV1 message) || message.getMessage() == null) {
+            return;
+        }
+        responses.put(key, message.getMessage());
+        if (key.mode() == ResponseCacheMode.SEMANTIC && isFirstQuestion(chatRequest)) {
+            var maxEntries = dispatchConfig.responseCacheConfig().semanticMaxEntries();
+            var ttl = Duration.ofSeconds(dispatchConfig.responseCacheConfig().ttl());
+            indexes.get(key.scope(), scope -> new SemanticResponseIndex(hyperplanes, maxEntries, ttl))
+                    .add(vector(chatRequest), message.getMessage(), threshold());
+        }
+    }
+
+    void onEntityChange(@Observes EntityChangeEvent event) {
+        if (event.type() == EntityType.CONFIGURATION && event.id() != null) {
+            responses.asMap().keySet().removeIf(key -> event.id().equals(key.configurationId()));
+            indexes.asMap().keySet().removeIf(scope -> event.id().equals(scope.configurationId()));
+        }
+    }
+
+    private float[] vector(ChatRequestDTOV1 chatRequest) {
+        return embeddingModel.embed(chatRequest.getChatMessage().getMessage()).content().vector();
+    }
+
+    private double threshold() {
+        return dispatchConfig.responseCacheConfig().semanticThreshold();
+    }
+
+    private static ChatMessageDTOV1 response(String message) {
+        ChatMessageDTOV1 response = new ChatMessageDTOV1();
+        response.setMessage(message);
+        response.setType(ChatMessageDTOV1.TypeEnum.ASSISTANT);
+        response.setCreationDate(new Date().getTime());
+        return response;
+    }
+
+    /**
+     * Only questions without history are compared by similarity, follow-up questions depend on the earlier answers.
+     */
+    private static boolean isFirstQuestion(ChatRequestDTOV1 chatRequest) {
+        return chatRequest.getConversation() == null || chatRequest.getConversation().getHistory() == null
+                || chatRequest.getConversation().getHistory().isEmpty();
+    }
+
+    private static boolean isRefresh(ChatRequestDTOV1 chatRequest) {
+        Map<String, String> aiContext = chatRequest.getRequestContext() != null
+                ? chatRequest.getRequestContext().getAiContext()
+                : null;
+        return aiContext != null && CONTEXT_REFRESH.equals(aiContext.get(CONTEXT_KEY));
+    }
+
+    /**
+     * Hash of the conversation, messages differing only in whitespace share the hash.
+     */
+    static String hash(ChatRequestDTOV1 chatRequest) {
+        List<ChatMessageDTOV1> messages = new ArrayList<>();
+        if (chatRequest.getConversation() != null && chatRequest.getConversation().getHistory() != null) {
+            messages.addAll(chatRequest.getConversation().getHistory());
+        }
+        messages.add(chatRequest.getChatMessage());
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            for (ChatMessageDTOV1 message : messages) {
+                digest.update(String.valueOf(message.getType()).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                String text = Objects.requireNonNullElse(message.getMessage(), "");
+                digest.update(WHITESPACE.matcher(text.strip()).replaceAll(" ").getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0x1e);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public record ResponseKey(String tenantId, String configurationId, Integer configurationVersion, String providerId,
+            Integer providerVersion, String systemMessage, ResponseCacheMode mode, String messagesHash) {
+
+        ResponseScope scope() {
+            return new ResponseScope(tenantId, configurationId, configurationVersion, providerId, providerVersion,
+                    systemMessage);
+        }
+
+        int weight() {
+            return ENTRY_OVERHEAD + 2 * (messagesHash.length() + (systemMessage == null ? 0 : systemMessage.length()));
+        }
+    }
+
+    record ResponseScope(String tenantId, String configurationId, Integer configurationVersion, String providerId,
+            Integer providerVersion, String systemMessage) {
+    }
+
+    public record CachedResponse(ChatMessageDTOV1 message, ResponseCacheMode tier) {
+    }
+}
@@ -0,0 +1,60 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatMessageDTOV1;
+import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ProblemDetailResponseDTOV1;
+
+/**
+ * Writes the events of a streamed chat as server-sent events.
+ * <ul>
+ * <li>{@code token} - chat message with the next part of the answer</li>
+ * <li>{@code message} - chat message with the complete answer, last event of a successful stream</li>
+ * <li>{@code error} - problem detail, last event of a failed stream</li>
+ * </ul>
+ */
+public class ChatStreamWriter {
+
+    static final String EVENT_TOKEN = "token";
+    static final String EVENT_MESSAGE = "message";
+    static final String EVENT_ERROR = "error";
+
+    static final String ERROR_CODE = "CHAT_STREAM_ERROR";
+
+    private final OutputStream output;
+
+    private final ObjectMapper objectMapper;
+
+    public ChatStreamWriter(OutputStream output, ObjectMapper objectMapper) {
+        this.output = output;
+        this.objectMapper = objectMapper;
+    }
+
+    public void token(String token) throws IOException {
+        var message = new ChatMessageDTOV1();
+        message.setMessage(token);
+        message.setType(ChatMessageDTOV1.TypeEnum.ASSISTANT);
+        write(EVENT_TOKEN, message);
+    }
+
+    public void message(ChatMessageDTOV1 message) throws IOException {
+        write(EVENT_MESSAGE, message);
+    }
+
+    public void error(String detail) throws IOException {
+        var problem = new ProblemDetailResponseDTOV1();
+        problem.setErrorCode(ERROR_CODE);
+        problem.setDetail(detail);
+        write(EVENT_ERROR, problem);
+    }
+
+    private void write(String event, Object data) throws IOException {
+        var frame = "event: " + event + "\ndata: " + objectMapper.writeValueAsString(data) + "\n\n";
+        output.write(frame.getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+}
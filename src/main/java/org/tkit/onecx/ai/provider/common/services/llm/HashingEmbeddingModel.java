@@ -0,0 +1,90 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+/**
+ * CPU-only embedding model hashing the words and character trigrams of a text into a fixed number of dimensions.
+ * Needs no model files or native libraries and embeds a question in microseconds. It captures reordered and slightly
+ * changed wording, not synonyms.
+ */
+public class HashingEmbeddingModel implements EmbeddingModel {
+
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be", "can", "could",
+            "do", "does", "for", "from", "i", "in", "is", "it", "me", "my", "of", "on", "or", "please", "the", "to",
+            "we", "with", "you", "your");
+
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+
+    private final int dimensions;
+
+    public HashingEmbeddingModel(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return Response.from(textSegments.stream()
+                .map(segment -> Embedding.from(vector(segment.text())))
+                .toList());
+    }
+
+    @Override
+    public int dimension() {
+        return dimensions;
+    }
+
+    /**
+     * Returns the L2 normalized vector of the text, so the dot product of two vectors is their cosine similarity.
+     */
+    float[] vector(String text) {
+        float[] vector = new float[dimensions];
+        if (text != null) {
+            for (String word : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+                if (word.isEmpty() || STOP_WORDS.contains(word)) {
+                    continue;
+                }
+                add(vector, word, 1f);
+                String padded = "#" + word + "#";
+                for (int i = 0; i + 3 <= padded.length(); i++) {
+                    add(vector, padded.substring(i, i + 3), TRIGRAM_WEIGHT);
+                }
+            }
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    private void add(float[] vector, String feature, float weight) {
+        int hash = mix(feature.hashCode());
+        // the sign bit spreads collisions around zero instead of adding them up
+        vector[Math.floorMod(hash, dimensions)] += hash < 0 ? -weight : weight;
+    }
+
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
@@ -3,11 +3,15 @@ package org.tkit.onecx.ai.provider.common.services.llm;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import org.tkit.onecx.ai.provider.common.services.configuration.ConfigurationService;
+import org.tkit.onecx.ai.provider.common.services.tenant.TenantContext;
 import org.tkit.onecx.ai.provider.domain.models.Provider;
 import org.tkit.onecx.ai.provider.domain.models.enums.ProviderType;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatRequestDTOV1;
 import lombok.extern.slf4j.Slf4j;
 
@@ -18,26 +22,77 @@ import lombok.extern.slf4j.Slf4j;
 @ApplicationScoped
 public class LlmServiceFactory {
 
+    static final String RESPONSE_CACHE_HEADER = "X-Response-Cache";
+
     @Inject
     OllamaLlmService ollamaLlmService;
 
     @Inject
     ConfigurationService configurationService;
 
+    @Inject
+    ChatResponseCache responseCache;
+
+    @Inject
+    TenantDispatchScheduler scheduler;
+
+    @Inject
+    ObjectMapper objectMapper;
+
     /**
      * Routes the chat request to the appropriate LLM service based on provider type.
      */
     public Response chat(ChatRequestDTOV1 chatRequestDTO) {
         var configuration = configurationService.findConfigurationsByRequestContext(chatRequestDTO.getRequestContext());
         if (configuration == null) {
-            log.error("No configuration found for request context: {}", chatRequestDTO.getRequestContext());
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity("No configuration found for the given request context")
-                    .build();
+            return configurationNotFound(chatRequestDTO);
         }
         AbstractLlmService service = getServiceForProvider(configuration.getProvider().getType());
+        var cacheKey = responseCache.key(configuration, chatRequestDTO);
+        if (cacheKey != null) {
+            var cached = responseCache.get(cacheKey, chatRequestDTO);
+            if (cached != null) {
+                log.info("Chat response served from {} cache", cached.tier());
+                return Response.ok(cached.message()).header(RESPONSE_CACHE_HEADER, cached.tier()).build();
+            }
+        }
         log.info("Routing chat request to {} service", configuration.getProvider().getType());
-        return service.chat(configuration, chatRequestDTO);
+        Response response;
+        try (var slot = scheduler.acquire(TenantContext.currentTenantId())) {
+            response = service.chat(configuration, chatRequestDTO);
+        } catch (ProviderOverloadedException ex) {
+            return AbstractLlmService.providerOverloaded(ex);
+        }
+        if (cacheKey != null) {
+            responseCache.put(cacheKey, chatRequestDTO, response);
+        }
+        return response;
+    }
+
+    /**
+     * Routes the streaming chat request to the appropriate LLM service based on provider type.
+     */
+    public Response chatStream(ChatRequestDTOV1 chatRequestDTO) {
+        var configuration = configurationService.findConfigurationsByRequestContext(chatRequestDTO.getRequestContext());
+        if (configuration == null) {
+            return configurationNotFound(chatRequestDTO);
+        }
+        AbstractLlmService service = getServiceForProvider(configuration.getProvider().getType());
+        log.info("Routing streaming chat request to {} service", configuration.getProvider().getType());
+        var response = service.chatStream(configuration, chatRequestDTO);
+        if (!(response.getEntity() instanceof StreamingOutput output)) {
+            return response;
+        }
+        // the slot is held while the answer is streamed, the tenant is resolved on the request thread
+        String tenantId = TenantContext.currentTenantId();
+        StreamingOutput scheduled = out -> {
+            try (var slot = scheduler.acquire(tenantId)) {
+                output.write(out);
+            } catch (ProviderOverloadedException ex) {
+                new ChatStreamWriter(out, objectMapper).error(ex.getMessage());
+            }
+        };
+        return Response.fromResponse(response).entity(scheduled).build();
     }
 
     public String getProviderHealthStatus(Provider provider) {
@@ -45,6 +100,13 @@ public class LlmServiceFactory {
         return service.getHealthStatus(provider);
     }
 
+    private Response configurationNotFound(ChatRequestDTOV1 chatRequestDTO) {
+        log.error("No configuration found for request context: {}", chatRequestDTO.getRequestContext());
+        return Response.status(Response.Status.NOT_FOUND)
+                .entity("No configuration found for the given request context")
+                .build();
+    }
+
     /**
      * Returns the appropriate service for the given provider type.
      */
@@ -1,21 +1,33 @@
 package org.tkit.onecx.ai.provider.common.services.llm;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import org.tkit.onecx.ai.provider.common.services.mcp.McpToolRegistry;
 import org.tkit.onecx.ai.provider.domain.models.Configuration;
 import org.tkit.onecx.ai.provider.domain.models.Provider;
 
-import dev.langchain4j.agent.tool.ToolSpecification;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.request.ChatRequest;
 import dev.langchain4j.model.chat.response.ChatResponse;
 import dev.langchain4j.model.ollama.OllamaChatModel;
+import dev.langchain4j.model.ollama.OllamaStreamingChatModel;
 import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatRequestDTOV1;
 import io.quarkiverse.langchain4j.jaxrsclient.JaxRsHttpClientBuilderFactory;
 import lombok.extern.slf4j.Slf4j;
@@ -28,39 +40,30 @@ public class OllamaLlmService extends AbstractLlmService {
     private static final String UNHEALTHY = "UNHEALTHY";
     private static final String HEALTH_CHECK_PROMPT = "ping";
 
-    @Override
-    public Response chat(Configuration configuration, ChatRequestDTOV1 chatRequestDTO) {
-        // Resolve configuration by queryContext
-        Provider provider = configuration.getProvider();
-        // Build message list: history (if present) + current message
-        List<ChatMessage> messages = new ArrayList<>();
+    static final String TTFT_METRIC = "onecx.ai.dispatch.chat.stream.ttft";
 
-        if (chatRequestDTO.getConversation() != null
-                && chatRequestDTO.getConversation().getHistory() != null
-                && !chatRequestDTO.getConversation().getHistory().isEmpty()) {
-            messages.addAll(mapToLangChainMessages(chatRequestDTO.getConversation().getHistory()));
-        }
+    @Inject
+    OllamaModelRegistry modelRegistry;
 
-        messages.add(new UserMessage(chatRequestDTO.getChatMessage().getMessage()));
+    @Inject
+    ObjectMapper objectMapper;
 
-        OllamaChatModel model = buildModel(provider);
+    @Override
+    public Response chat(Configuration configuration, ChatRequestDTOV1 chatRequestDTO) {
+        List<ChatMessage> messages = buildMessages(chatRequestDTO);
+        String conversationId = conversationId(chatRequestDTO);
+        ProviderFailover failover = failover(configuration);
 
         // Create tool registry from MCP servers (if configured)
         McpToolRegistry toolRegistry = createToolRegistry(configuration);
         try {
-            List<ToolSpecification> toolSpecifications = toolRegistry.getToolSpecifications();
-
-            // Build initial chat request
-            ChatRequest.Builder chatRequestBuilder = ChatRequest.builder()
-                    .messages(messages);
-
-            if (!toolSpecifications.isEmpty()) {
-                log.info("Using {} tool(s) for this request", toolSpecifications.size());
-                chatRequestBuilder.toolSpecifications(toolSpecifications);
+            ToolSelection tools = selectTools(configuration, toolRegistry, messages);
+            if (!tools.offered().isEmpty()) {
+                log.info("Using {} tool(s) for this request", tools.offered().size());
             }
 
-            ChatRequest chatRequest = chatRequestBuilder.build();
-            ChatResponse chatResponse = modelChatRequestWithRetries(model, chatRequest);
+            // Send initial chat request
+            ChatResponse chatResponse = chatWithTools(configuration, failover, conversationId, messages, tools);
 
             if (chatResponse == null) {
                 log.error("Failed to get response from model after retries");
@@ -84,12 +87,7 @@ public class OllamaLlmService extends AbstractLlmService {
                 }
 
                 // Send follow-up request with tool results
-                ChatRequest followUpRequest = ChatRequest.builder()
-                        .messages(messages)
-                        .toolSpecifications(toolSpecifications)
-                        .build();
-
-                chatResponse = modelChatRequestWithRetries(model, followUpRequest);
+                chatResponse = chatWithTools(configuration, failover, conversationId, messages, tools);
 
                 // Check if follow-up request failed
                 if (chatResponse == null) {
@@ -105,19 +103,156 @@ public class OllamaLlmService extends AbstractLlmService {
             }
 
             // Get final response text
+            failover.served();
             String responseMessage = chatResponse.aiMessage().text();
             var responseDTO = mapToChatMessageResponseDTO(responseMessage);
             return Response.ok(responseDTO).build();
+        } catch (ProviderOverloadedException e) {
+            return providerOverloaded(e);
+        } catch (ProviderUnavailableException e) {
+            return providerUnavailable(e);
         } catch (Exception e) {
             log.error("Unexpected error during chat processing", e);
             return Response.status(Response.Status.BAD_REQUEST)
                     .entity("Unexpected error: " + e.getMessage())
                     .build();
-        } finally {
-            toolRegistry.close();
         }
     }
 
+    @Override
+    public Response chatStream(Configuration configuration, ChatRequestDTOV1 chatRequestDTO) {
+        long start = System.nanoTime();
+        List<ChatMessage> messages = buildMessages(chatRequestDTO);
+        String conversationId = conversationId(chatRequestDTO);
+        StreamingOutput output = out -> streamChat(configuration, conversationId, messages,
+                new ChatStreamWriter(out, objectMapper), start);
+        return Response.ok(output, MediaType.SERVER_SENT_EVENTS_TYPE).build();
+    }
+
+    /**
+     * Tool rounds are executed as in {@link #chat(Configuration, ChatRequestDTOV1)}, partial responses of the model
+     * are written as soon as they are received. The time to the first token is tagged with whether the conversation
+     * was routed to its provider endpoint.
+     */
+    void streamChat(Configuration configuration, String conversationId, List<ChatMessage> messages,
+            ChatStreamWriter writer, long start) throws IOException {
+        var failover = failover(configuration);
+        var firstToken = new AtomicBoolean(true);
+        var emitted = new AtomicBoolean();
+        Consumer<String> tokenConsumer = token -> {
+            if (firstToken.compareAndSet(true, false)) {
+                var affinity = replicaRouter.routesByAffinity(failover.provider(), conversationId);
+                meterRegistry.timer(TTFT_METRIC, "affinity", String.valueOf(affinity))
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            emitted.set(true);
+            try {
+                writer.token(token);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        McpToolRegistry toolRegistry = createToolRegistry(configuration);
+        try {
+            ToolSelection tools = selectTools(configuration, toolRegistry, messages);
+            int iterations = 0;
+            while (true) {
+                var chatRequest = toolChatRequest(messages, tools.offered());
+                var failure = new AtomicReference<IllegalStateException>();
+                ChatResponse chatResponse = failover.call(provider -> {
+                    emitted.set(false);
+                    try {
+                        circuitBreaker.rejectIfOpen(provider);
+                        return bulkhead.execute(provider, () -> replicaRouter.stream(provider, conversationId,
+                                baseUrl -> circuitBreaker.stream(provider, () -> streamChatRequest(
+                                        modelRegistry.get(provider, baseUrl, OllamaStreamingChatModel.class,
+                                                this::buildStreamingModel),
+                                        chatRequest, tokenConsumer))));
+                    } catch (IllegalStateException e) {
+                        // tokens already written to the client can not be taken back by another provider
+                        if (emitted.get()) {
+                            throw e;
+                        }
+                        failure.set(e);
+                        return null;
+                    }
+                });
+                if (chatResponse == null) {
+                    throw failure.get();
+                }
+                if (tools.widenIfUnknownTool(chatResponse)) {
+                    log.info("Model requested a tool outside of the selected tools, retry with all tools");
+                    continue;
+                }
+
+                if (!hasToolExecutionRequests(chatResponse)) {
+                    failover.served();
+                    writer.message(mapToChatMessageResponseDTO(chatResponse.aiMessage().text()));
+                    return;
+                }
+                if (iterations >= dispatchConfig.mcpConfig().maxIterations()) {
+                    log.warn("Reached maximum tool execution iterations ({})", dispatchConfig.mcpConfig().maxIterations());
+                    failover.served();
+                    writer.message(mapToChatMessageResponseDTO(chatResponse.aiMessage().text()));
+                    return;
+                }
+                iterations++;
+                log.info("Tool execution iteration {}", iterations);
+                messages.addAll(executeToolRequests(chatResponse, toolRegistry));
+            }
+        } catch (UncheckedIOException e) {
+            // client closed the connection
+            log.warn("Chat stream aborted: {}", e.getMessage());
+        } catch (ProviderOverloadedException | ProviderUnavailableException e) {
+            writer.error(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.error("Chat stream interrupted");
+        } catch (Exception e) {
+            log.error("Unexpected error during chat stream processing", e);
+            writer.error("Unexpected error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Model call of a chat round. Calls of latency-critical configurations are hedged with another endpoint of the
+     * provider or, without replica endpoints, with the next fallback provider.
+     */
+    private ChatResponse chatWithTools(Configuration configuration, ProviderFailover failover, String conversationId,
+            List<ChatMessage> messages, ToolSelection tools) {
+        return failover.call(provider -> {
+            // without affinity key the hedge goes to the endpoint with the fewest calls in flight
+            var hedgeProvider = ProviderReplicaRouter.endpoints(provider).size() > 1 ? provider : failover.next();
+            return hedger.execute(configuration,
+                    () -> sendChatRequest(provider, conversationId, messages, tools, true),
+                    hedgeProvider == null ? null : () -> sendChatRequest(hedgeProvider, null, messages, tools, false));
+        });
+    }
+
+    /**
+     * @param coalesce whether the call may share an identical call in flight, the hedged call must not join the
+     *        call it hedges
+     */
+    private ChatResponse sendChatRequest(Provider provider, String conversationId, List<ChatMessage> messages,
+            ToolSelection tools, boolean coalesce) {
+        Function<String, OllamaChatModel> models = baseUrl -> modelRegistry.get(provider, baseUrl,
+                OllamaChatModel.class, this::buildModel);
+        if (tools.offered().isEmpty()) {
+            var chatRequest = toolChatRequest(messages, List.of());
+            return coalesce ? coalescedModelChatRequest(provider, conversationId, models, chatRequest)
+                    : providerChatRequest(provider, conversationId, models, chatRequest);
+        }
+        ChatResponse chatResponse = providerChatRequest(provider, conversationId, models,
+                toolChatRequest(messages, tools.offered()));
+        if (tools.widenIfUnknownTool(chatResponse)) {
+            log.info("Model requested a tool outside of the selected tools, retry with all tools");
+            chatResponse = providerChatRequest(provider, conversationId, models,
+                    toolChatRequest(messages, tools.offered()));
+        }
+        return chatResponse;
+    }
+
     @Override
     public String getHealthStatus(Provider provider) {
         if (provider == null || provider.getLlmUrl() == null || provider.getLlmUrl().isBlank()
@@ -125,13 +260,18 @@ public class OllamaLlmService extends AbstractLlmService {
             log.warn("Provider configuration incomplete for health check");
             return UNHEALTHY;
         }
+        if (circuitBreaker.state(provider) == ProviderCircuitBreaker.State.OPEN) {
+            // the provider failed recently, trial calls of chat requests close the circuit again
+            log.warn("Circuit of provider '{}' is open, skipping health check", provider.getName());
+            return UNHEALTHY;
+        }
         try {
-            OllamaChatModel model = buildModel(provider);
-
             ChatRequest healthCheckRequest = ChatRequest.builder()
                     .messages(List.of(new UserMessage(HEALTH_CHECK_PROMPT)))
                     .build();
-            ChatResponse response = modelChatRequestWithRetries(model, healthCheckRequest);
+            ChatResponse response = modelChatRequestWithRetries(provider, null,
+                    baseUrl -> modelRegistry.get(provider, baseUrl, OllamaChatModel.class, this::buildModel),
+                    healthCheckRequest, new HashSet<>());
             if (response == null || response.aiMessage() == null) {
                 log.warn("Ollama model health check failed for model '{}' at '{}'", provider.getModelName(),
                         provider.getLlmUrl());
@@ -145,9 +285,9 @@ public class OllamaLlmService extends AbstractLlmService {
         }
     }
 
-    private OllamaChatModel buildModel(Provider provider) {
+    private OllamaChatModel buildModel(Provider provider, String baseUrl) {
         return OllamaChatModel.builder()
-                .baseUrl(provider.getLlmUrl())
+                .baseUrl(baseUrl)
                 .modelName(provider.getModelName())
                 .customHeaders(createCustomHeaders(provider))
                 .timeout(Duration.ofSeconds(dispatchConfig.providerConfig().timeout()))
@@ -157,6 +297,32 @@ public class OllamaLlmService extends AbstractLlmService {
                 .build();
     }
 
+    private OllamaStreamingChatModel buildStreamingModel(Provider provider, String baseUrl) {
+        return OllamaStreamingChatModel.builder()
+                .baseUrl(baseUrl)
+                .modelName(provider.getModelName())
+                .customHeaders(createCustomHeaders(provider))
+                .timeout(Duration.ofSeconds(dispatchConfig.providerConfig().timeout()))
+                .logRequests(dispatchConfig.providerConfig().logRequests())
+                .logResponses(dispatchConfig.providerConfig().logResponse())
+                .httpClientBuilder(new JaxRsHttpClientBuilderFactory().create())
+                .build();
+    }
+
+    private List<ChatMessage> buildMessages(ChatRequestDTOV1 chatRequestDTO) {
+        // Build message list: history (if present) + current message
+        List<ChatMessage> messages = new ArrayList<>();
+
+        if (chatRequestDTO.getConversation() != null
+                && chatRequestDTO.getConversation().getHistory() != null
+                && !chatRequestDTO.getConversation().getHistory().isEmpty()) {
+            messages.addAll(mapToLangChainMessages(chatRequestDTO.getConversation().getHistory()));
+        }
+
+        messages.add(new UserMessage(chatRequestDTO.getChatMessage().getMessage()));
+        return messages;
+    }
+
     private Map<String, String> createCustomHeaders(Provider provider) {
         Map<String, String> customHeaders = new HashMap<>();
         if (provider.getApiKey() != null && !provider.getApiKey().isBlank()) {
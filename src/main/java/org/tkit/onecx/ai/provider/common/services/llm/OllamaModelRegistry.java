@@ -0,0 +1,93 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps one chat model of each type, and with it one pooled HTTP client, per endpoint of a provider. A model is rebuilt
+ * when the provider was modified and removed after it was not used for the configured idle time.
+ */
+@Slf4j
+@ApplicationScoped
+public class OllamaModelRegistry {
+
+    static final String CACHE_NAME = "onecx.ai.dispatch.provider.models";
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private Cache<ModelKey, PooledModel> models;
+
+    private Counter builds;
+
+    private Counter reuses;
+
+    @PostConstruct
+    void init() {
+        var config = dispatchConfig.providerConfig();
+        models = Caffeine.newBuilder()
+                .maximumSize(config.modelPoolMaxSize())
+                .expireAfterAccess(Duration.ofSeconds(config.modelPoolIdleTimeout()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, models, CACHE_NAME);
+        builds = meterRegistry.counter(CACHE_NAME + ".builds");
+        reuses = meterRegistry.counter(CACHE_NAME + ".reuses");
+    }
+
+    /**
+     * Returns the pooled model of the provider endpoint, building it with the factory if the provider is new or was
+     * modified.
+     */
+    public <T> T get(Provider provider, String baseUrl, Class<T> type, BiFunction<Provider, String, T> factory) {
+        if (provider.getId() == null) {
+            builds.increment();
+            return factory.apply(provider, baseUrl);
+        }
+        var key = new ModelKey(provider.getId(), baseUrl, type);
+        var pooled = models.getIfPresent(key);
+        if (pooled != null && Objects.equals(pooled.modificationCount(), provider.getModificationCount())) {
+            reuses.increment();
+            return type.cast(pooled.model());
+        }
+        log.debug("Build {} for provider: {} at {}", type.getSimpleName(), provider.getId(), baseUrl);
+        var model = factory.apply(provider, baseUrl);
+        builds.increment();
+        models.put(key, new PooledModel(provider.getModificationCount(), model));
+        return model;
+    }
+
+    void onEntityChange(@Observes EntityChangeEvent event) {
+        if (event.type() == EntityType.PROVIDER && event.id() != null) {
+            models.asMap().keySet().removeIf(key -> key.providerId().equals(event.id()));
+        }
+    }
+
+    record ModelKey(String providerId, String baseUrl, Class<?> type) {
+    }
+
+    record PooledModel(Integer modificationCount, Object model) {
+    }
+}
@@ -0,0 +1,116 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Limits the number of concurrent calls per provider across all chat requests. Calls beyond the limit wait in a
+ * bounded queue, calls finding the queue full or waiting too long are rejected with a
+ * {@link ProviderOverloadedException}. Providers without {@code maxConcurrentRequests} are not limited.
+ */
+@Slf4j
+@ApplicationScoped
+public class ProviderBulkhead {
+
+    static final String METRIC_NAME = "onecx.ai.dispatch.provider.bulkhead";
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Map<String, Compartment> compartments = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        Gauge.builder(METRIC_NAME + ".queued", compartments,
+                map -> map.values().stream().mapToInt(compartment -> compartment.queued().get()).sum())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the call once a slot of the provider is free.
+     */
+    public <T, E extends Exception> T execute(Provider provider, Call<T, E> call) throws E {
+        Integer maxConcurrent = provider.getMaxConcurrentRequests();
+        if (maxConcurrent == null || maxConcurrent <= 0 || provider.getId() == null) {
+            return call.get();
+        }
+        int maxQueued = provider.getMaxQueuedRequests() == null ? 0 : Math.max(0, provider.getMaxQueuedRequests());
+        var compartment = compartments.compute(provider.getId(), (id, existing) -> existing != null
+                && existing.maxConcurrent() == maxConcurrent && existing.maxQueued() == maxQueued ? existing
+                        : new Compartment(maxConcurrent, maxQueued, new Semaphore(maxConcurrent, true),
+                                new AtomicInteger()));
+        acquire(provider, compartment);
+        try {
+            return call.get();
+        } finally {
+            compartment.permits().release();
+        }
+    }
+
+    void onEntityChange(@Observes EntityChangeEvent event) {
+        if (event.type() == EntityType.PROVIDER && event.id() != null) {
+            // calls in flight release the permits of the removed compartment
+            compartments.remove(event.id());
+        }
+    }
+
+    private void acquire(Provider provider, Compartment compartment) {
+        if (compartment.permits().tryAcquire()) {
+            return;
+        }
+        if (compartment.queued().incrementAndGet() > compartment.maxQueued()) {
+            compartment.queued().decrementAndGet();
+            throw reject(provider, "queue full");
+        }
+        try {
+            if (!compartment.permits().tryAcquire(dispatchConfig.providerConfig().queueTimeout(),
+                    TimeUnit.MILLISECONDS)) {
+                throw reject(provider, "queue timeout");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw reject(provider, "interrupted");
+        } finally {
+            compartment.queued().decrementAndGet();
+        }
+    }
+
+    private ProviderOverloadedException reject(Provider provider, String reason) {
+        log.warn("Rejected call to provider '{}': {}", provider.getName(), reason);
+        meterRegistry.counter(METRIC_NAME + ".rejected", "provider", provider.getId(), "reason", reason).increment();
+        return new ProviderOverloadedException("Provider '" + provider.getName() + "' is overloaded",
+                dispatchConfig.providerConfig().retryAfter());
+    }
+
+    /**
+     * Provider call, may throw checked exceptions like the streaming calls.
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+
+        T get() throws E;
+    }
+
+    private record Compartment(int maxConcurrent, int maxQueued, Semaphore permits, AtomicInteger queued) {
+    }
+}
@@ -0,0 +1,281 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Circuit breaker per provider over all chat requests. The circuit opens when the rate of failed or slow calls in the
+ * window of recent calls reaches its threshold, calls are then rejected with a {@link ProviderUnavailableException}
+ * without waiting for the timeout of the provider. After the open duration a few trial calls are let through, the
+ * circuit closes once they succeed and opens again on the first failed or slow trial call.
+ * <p>
+ * Each attempt of a model call is counted once the bulkhead and the adaptive limit admitted it, the time waiting for
+ * a slot is no part of a slow call. Calls cancelled by an interrupt are not counted, they say nothing about the
+ * provider, neither are failed calls of an endpoint while other endpoints of the provider are available, see
+ * {@link ReplicaFailedException}. {@link #rejectIfOpen(Provider)} rejects calls of an open circuit before they wait
+ * for a slot.
+ */
+@Slf4j
+@ApplicationScoped
+public class ProviderCircuitBreaker {
+
+    static final String METRIC_NAME = "onecx.ai.dispatch.provider.circuit";
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the call if the circuit of the provider is not open. A {@code null} result counts as failed call.
+     *
+     * @throws ProviderUnavailableException if the circuit is open
+     */
+    public <T, E extends Exception> T execute(Provider provider, Call<T, E> call) throws E {
+        return execute(provider, call, true);
+    }
+
+    /**
+     * Like {@link #execute(Provider, Call)}, the duration of a stream depends on the length of the answer and does not
+     * count as slow call.
+     */
+    public <T, E extends Exception> T stream(Provider provider, Call<T, E> call) throws E {
+        return execute(provider, call, false);
+    }
+
+    /**
+     * Rejects the call without counting it if the circuit of the provider is open.
+     *
+     * @throws ProviderUnavailableException if the circuit is open
+     */
+    public void rejectIfOpen(Provider provider) {
+        if (!dispatchConfig.providerConfig().circuitBreaker().enabled() || provider.getId() == null) {
+            return;
+        }
+        var circuit = circuits.get(provider.getId());
+        long now = System.nanoTime();
+        if (circuit != null && circuit.state(now) == State.OPEN) {
+            throw reject(provider, circuit, now);
+        }
+    }
+
+    /**
+     * Current state of the circuit of the provider, an open circuit whose open duration passed is half open.
+     */
+    public State state(Provider provider) {
+        var circuit = provider == null || provider.getId() == null ? null : circuits.get(provider.getId());
+        return circuit == null ? State.CLOSED : circuit.state(System.nanoTime());
+    }
+
+    void onEntityChange(@Observes EntityChangeEvent event) {
+        if (event.type() == EntityType.PROVIDER && event.id() != null) {
+            var circuit = circuits.remove(event.id());
+            if (circuit != null) {
+                meterRegistry.remove(circuit.gauge());
+            }
+        }
+    }
+
+    private <T, E extends Exception> T execute(Provider provider, Call<T, E> call, boolean slowCalls) throws E {
+        var config = dispatchConfig.providerConfig().circuitBreaker();
+        if (!config.enabled() || provider.getId() == null) {
+            return call.get();
+        }
+        var circuit = circuits.computeIfAbsent(provider.getId(), id -> new Circuit(provider, config));
+        long start = System.nanoTime();
+        long generation = circuit.tryAcquire(start);
+        if (generation < 0) {
+            throw reject(provider, circuit, start);
+        }
+        var outcome = Outcome.FAILURE;
+        try {
+            T result = call.get();
+            if (result != null) {
+                outcome = slowCalls && System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(
+                        config.slowCallDuration()) ? Outcome.SLOW : Outcome.SUCCESS;
+            }
+            return result;
+        } catch (ProviderOverloadedException | ProviderUnavailableException | ReplicaFailedException ex) {
+            outcome = Outcome.IGNORED;
+            throw ex;
+        } finally {
+            circuit.release(generation, Thread.currentThread().isInterrupted() ? Outcome.IGNORED : outcome);
+        }
+    }
+
+    private ProviderUnavailableException reject(Provider provider, Circuit circuit, long now) {
+        meterRegistry.counter(METRIC_NAME + ".rejected", "provider", provider.getId()).increment();
+        return new ProviderUnavailableException("Provider '" + provider.getName() + "' is unavailable",
+                circuit.retryAfter(now));
+    }
+
+    private final class Circuit {
+
+        private final String providerId;
+
+        private final String providerName;
+
+        private final DispatchConfig.CircuitBreakerConfig config;
+
+        private final Meter gauge;
+
+        private final Outcome[] window;
+
+        private int calls;
+
+        private int next;
+
+        private State state = State.CLOSED;
+
+        // permits of an earlier state are not counted after a transition
+        private long generation;
+
+        private long openUntil;
+
+        private int trials;
+
+        private int trialSuccesses;
+
+        Circuit(Provider provider, DispatchConfig.CircuitBreakerConfig config) {
+            this.providerId = provider.getId();
+            this.providerName = provider.getName();
+            this.config = config;
+            this.window = new Outcome[Math.max(1, config.windowSize())];
+            this.gauge = Gauge.builder(METRIC_NAME + ".state", this, circuit -> circuit.state(System.nanoTime())
+                    .ordinal()).tag("provider", providerId).register(meterRegistry);
+        }
+
+        Meter gauge() {
+            return gauge;
+        }
+
+        synchronized State state(long now) {
+            return state == State.OPEN && openUntil - now <= 0 ? State.HALF_OPEN : state;
+        }
+
+        synchronized long retryAfter(long now) {
+            return Math.max(1, (long) Math.ceil((openUntil - now) / (double) TimeUnit.SECONDS.toNanos(1)));
+        }
+
+        /**
+         * @return the generation of the permit or {@code -1} if the call is rejected
+         */
+        synchronized long tryAcquire(long now) {
+            if (state == State.OPEN) {
+                if (openUntil - now > 0) {
+                    return -1;
+                }
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (trials >= config.halfOpenCalls()) {
+                    return -1;
+                }
+                trials++;
+            }
+            return generation;
+        }
+
+        synchronized void release(long permit, Outcome outcome) {
+            if (permit != generation) {
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                switch (outcome) {
+                    case IGNORED -> trials--;
+                    case SUCCESS -> {
+                        trialSuccesses++;
+                        if (trialSuccesses >= config.halfOpenCalls()) {
+                            transition(State.CLOSED);
+                        }
+                    }
+                    default -> open(outcome);
+                }
+                return;
+            }
+            if (outcome == Outcome.IGNORED) {
+                return;
+            }
+            window[next] = outcome;
+            next = (next + 1) % window.length;
+            calls = Math.min(window.length, calls + 1);
+            if (calls < config.minimumCalls()) {
+                return;
+            }
+            int failures = 0;
+            int slow = 0;
+            for (int i = 0; i < calls; i++) {
+                failures += window[i] == Outcome.FAILURE ? 1 : 0;
+                slow += window[i] == Outcome.SLOW ? 1 : 0;
+            }
+            if (failures >= config.failureRate() * calls) {
+                open(Outcome.FAILURE);
+            } else if (slow >= config.slowCallRate() * calls) {
+                open(Outcome.SLOW);
+            }
+        }
+
+        private void open(Outcome reason) {
+            openUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.openDuration());
+            log.warn("Opened circuit of provider '{}' for {} seconds: {} calls", providerName, config.openDuration(),
+                    reason == Outcome.SLOW ? "slow" : "failed");
+            transition(State.OPEN);
+        }
+
+        private void transition(State target) {
+            state = target;
+            generation++;
+            trials = 0;
+            trialSuccesses = 0;
+            if (target == State.CLOSED) {
+                calls = 0;
+                next = 0;
+            }
+            meterRegistry.counter(METRIC_NAME + ".transitions", "provider", providerId, "state", target.name())
+                    .increment();
+        }
+    }
+
+    /**
+     * State of the circuit of a provider, the order is the value of the state gauge.
+     */
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        SLOW,
+        FAILURE,
+        IGNORED
+    }
+
+    /**
+     * Provider call, may throw checked exceptions like the streaming calls.
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+
+        T get() throws E;
+    }
+}
@@ -0,0 +1,123 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.tkit.onecx.ai.provider.domain.models.Configuration;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Failover over the provider and the fallback providers of a configuration for the model calls of one chat request.
+ * A provider which did not answer or rejected the call is not used again for the following calls of the request. No
+ * further provider is tried once the deadline of the request passed.
+ */
+@Slf4j
+final class ProviderFailover {
+
+    static final String TIER_METRIC = "onecx.ai.dispatch.chat.tier";
+
+    static final String FAILOVER_METRIC = "onecx.ai.dispatch.provider.failover";
+
+    private final List<Provider> providers;
+
+    private final long deadline;
+
+    private final MeterRegistry meterRegistry;
+
+    private int tier;
+
+    ProviderFailover(Configuration configuration, long timeoutNanos, MeterRegistry meterRegistry) {
+        this.providers = providers(configuration);
+        this.deadline = System.nanoTime() + timeoutNanos;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs the call with the current provider and the next providers while the call returns {@code null} or the
+     * provider is overloaded or its circuit is open.
+     *
+     * @return the response of the first provider which answered or {@code null}
+     * @throws ProviderOverloadedException if the last tried provider is overloaded
+     * @throws ProviderUnavailableException if the circuit of the last tried provider is open
+     */
+    <T, E extends Exception> T call(TierCall<T, E> call) throws E {
+        while (true) {
+            var provider = providers.get(tier);
+            try {
+                T result = call.call(provider);
+                if (result != null || !next(provider, "no response")) {
+                    return result;
+                }
+            } catch (ProviderUnavailableException ex) {
+                if (!next(provider, "circuit open")) {
+                    throw ex;
+                }
+            } catch (ProviderOverloadedException ex) {
+                if (!next(provider, "overloaded")) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the provider which answered the request.
+     */
+    void served() {
+        meterRegistry.counter(TIER_METRIC, "tier", String.valueOf(tier)).increment();
+    }
+
+    int tier() {
+        return tier;
+    }
+
+    Provider provider() {
+        return providers.get(tier);
+    }
+
+    /**
+     * Provider of the next tier without failing over to it, {@code null} for the last tier.
+     */
+    Provider next() {
+        return tier + 1 < providers.size() ? providers.get(tier + 1) : null;
+    }
+
+    private boolean next(Provider provider, String reason) {
+        if (tier + 1 >= providers.size()) {
+            return false;
+        }
+        if (System.nanoTime() - deadline >= 0) {
+            log.warn("Deadline of the chat request passed, no failover from provider '{}'", provider.getName());
+            return false;
+        }
+        tier++;
+        log.warn("Provider '{}' failed ({}), failover to provider '{}'", provider.getName(), reason,
+                providers.get(tier).getName());
+        meterRegistry.counter(FAILOVER_METRIC, "provider", String.valueOf(provider.getId()), "reason", reason)
+                .increment();
+        return true;
+    }
+
+    private static List<Provider> providers(Configuration configuration) {
+        List<Provider> providers = new ArrayList<>();
+        providers.add(configuration.getProvider());
+        if (configuration.getFallbackProviders() != null) {
+            configuration.getFallbackProviders().stream()
+                    .filter(provider -> provider != null && !providers.contains(provider))
+                    .forEach(providers::add);
+        }
+        return providers;
+    }
+
+    /**
+     * Model call with one provider.
+     */
+    @FunctionalInterface
+    interface TierCall<T, E extends Exception> {
+
+        T call(Provider provider) throws E;
+    }
+}
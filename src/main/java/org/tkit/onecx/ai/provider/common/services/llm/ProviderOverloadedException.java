@@ -0,0 +1,20 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import lombok.Getter;
+
+/**
+ * Thrown if a chat request is rejected because the provider or the dispatch queue of the tenant is at capacity.
+ */
+@Getter
+public class ProviderOverloadedException extends RuntimeException {
+
+    /**
+     * Seconds after which the client may retry.
+     */
+    private final long retryAfter;
+
+    public ProviderOverloadedException(String message, long retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,398 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Routes the calls of a provider with replica endpoints to the endpoint with the fewest calls in flight, the lower
+ * latency decides between endpoints with the same number of calls. An endpoint which failed several times in a row or
+ * answers much slower than the fastest endpoint is ejected for some time, the time grows with each ejection until the
+ * endpoint answers again. The last available endpoint of a provider is never ejected.
+ * <p>
+ * Calls with an affinity key, the conversation, are routed by consistent hashing with bounded loads: all turns of a
+ * conversation go to the same endpoint, which can reuse the prompt cache of the previous turn, unless the endpoint is
+ * ejected or has more calls in flight than the load factor allows above the average. The call then spills over to the
+ * next endpoint on the hash ring.
+ * <p>
+ * The attempts of a retried call skip the endpoints which failed in earlier attempts. A failed attempt is rethrown as
+ * {@link ReplicaFailedException} while another endpoint of the provider is available, the next attempt goes there and
+ * the failure of a single endpoint is not counted against the whole provider.
+ */
+@Slf4j
+@ApplicationScoped
+public class ProviderReplicaRouter {
+
+    static final String METRIC_NAME = "onecx.ai.dispatch.provider.replica";
+
+    private static final double LATENCY_WEIGHT = 0.2;
+
+    private static final int MIN_LATENCY_SAMPLES = 5;
+
+    private static final int MAX_EJECTION_FACTOR = 10;
+
+    private static final int VIRTUAL_NODES = 100;
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Endpoints of the provider, the LLM URL first followed by the replica URLs.
+     */
+    static List<String> endpoints(Provider provider) {
+        var endpoints = new LinkedHashSet<String>();
+        if (provider.getLlmUrl() != null && !provider.getLlmUrl().isBlank()) {
+            endpoints.add(provider.getLlmUrl());
+        }
+        if (provider.getReplicaUrls() != null) {
+            provider.getReplicaUrls().stream()
+                    .filter(url -> url != null && !url.isBlank())
+                    .sorted()
+                    .forEach(endpoints::add);
+        }
+        return List.copyOf(endpoints);
+    }
+
+    /**
+     * Runs the call with the base URL of the selected endpoint. A {@code null} result counts as failed call.
+     *
+     * @param affinityKey calls with the same key are preferably routed to the same endpoint, may be {@code null}
+     */
+    public <T, E extends Exception> T execute(Provider provider, String affinityKey, Call<T, E> call) throws E {
+        return execute(provider, affinityKey, null, call, true);
+    }
+
+    /**
+     * Like {@link #execute(Provider, String, Call)} for an attempt of a retried call.
+     *
+     * @param failedEndpoints base URLs of the endpoints which failed in earlier attempts, the endpoint of a failed
+     *        attempt is added
+     * @throws ReplicaFailedException if the call failed and another endpoint of the provider is available
+     */
+    public <T, E extends Exception> T execute(Provider provider, String affinityKey, Set<String> failedEndpoints,
+            Call<T, E> call) throws E {
+        return execute(provider, affinityKey, failedEndpoints, call, true);
+    }
+
+    /**
+     * Like {@link #execute(Provider, String, Call)}, the duration of a stream depends on the length of the answer and
+     * is not used as latency of the endpoint.
+     */
+    public <T, E extends Exception> T stream(Provider provider, String affinityKey, Call<T, E> call) throws E {
+        return execute(provider, affinityKey, null, call, false);
+    }
+
+    /**
+     * Whether calls of the provider with the affinity key are routed by the key.
+     */
+    public boolean routesByAffinity(Provider provider, String affinityKey) {
+        return affinityKey != null && dispatchConfig.providerConfig().replicas().affinity() && provider.getId() != null
+                && endpoints(provider).size() > 1;
+    }
+
+    void onEntityChange(@Observes EntityChangeEvent event) {
+        if (event.type() == EntityType.PROVIDER && event.id() != null) {
+            var pool = pools.remove(event.id());
+            if (pool != null) {
+                pool.meters().forEach(meterRegistry::remove);
+            }
+        }
+    }
+
+    private <T, E extends Exception> T execute(Provider provider, String affinityKey, Set<String> failedEndpoints,
+            Call<T, E> call, boolean sampleLatency) throws E {
+        var endpoints = endpoints(provider);
+        if (endpoints.size() < 2 || provider.getId() == null) {
+            return call.call(endpoints.isEmpty() ? provider.getLlmUrl() : endpoints.getFirst());
+        }
+        var pool = pools.compute(provider.getId(), (id, existing) -> {
+            if (existing != null && existing.endpoints().equals(endpoints)) {
+                return existing;
+            }
+            if (existing != null) {
+                existing.meters().forEach(meterRegistry::remove);
+            }
+            return new Pool(provider, endpoints, dispatchConfig.providerConfig().replicas());
+        });
+        Set<String> failed = failedEndpoints == null ? Set.of() : failedEndpoints;
+        var replica = pool.acquire(routesByAffinity(provider, affinityKey) ? affinityKey : null, failed);
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        boolean rejected = false;
+        try {
+            T result = call.call(replica.url);
+            succeeded = result != null;
+            return result;
+        } catch (ProviderOverloadedException | ProviderUnavailableException ex) {
+            // rejected by a limit or the open circuit of the provider before the endpoint was called
+            rejected = true;
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (failedEndpoints != null && pool.hasAlternative(replica, failedEndpoints)) {
+                throw new ReplicaFailedException("Endpoint '" + replica.url + "' of provider '" + provider.getName()
+                        + "' failed: " + ex.getMessage(), ex);
+            }
+            throw ex;
+        } finally {
+            if (rejected) {
+                pool.cancel(replica);
+            } else {
+                if (!succeeded && failedEndpoints != null) {
+                    failedEndpoints.add(replica.url);
+                }
+                pool.release(replica, !succeeded, sampleLatency ? System.nanoTime() - start : -1);
+            }
+        }
+    }
+
+    private final class Pool {
+
+        private final String providerId;
+
+        private final String providerName;
+
+        private final List<String> endpoints;
+
+        private final List<Replica> replicas;
+
+        private final List<Meter> meters;
+
+        private final DispatchConfig.ReplicaConfig config;
+
+        private final NavigableMap<Long, Replica> ring = new TreeMap<>();
+
+        private int next;
+
+        Pool(Provider provider, List<String> endpoints, DispatchConfig.ReplicaConfig config) {
+            this.providerId = provider.getId();
+            this.providerName = provider.getName();
+            this.endpoints = endpoints;
+            this.config = config;
+            long now = System.nanoTime();
+            this.replicas = endpoints.stream().map(url -> new Replica(url, now)).toList();
+            replicas.forEach(replica -> IntStream.range(0, VIRTUAL_NODES)
+                    .forEach(node -> ring.putIfAbsent(hash(replica.url + "#" + node), replica)));
+            this.meters = replicas.stream()
+                    .<Meter> mapMulti((replica, meters) -> {
+                        meters.accept(Gauge.builder(METRIC_NAME + ".in.flight", replica, this::inFlight)
+                                .tags("provider", providerId, "replica", replica.url).register(meterRegistry));
+                        meters.accept(Gauge.builder(METRIC_NAME + ".ejected", replica, this::ejected)
+                                .tags("provider", providerId, "replica", replica.url).register(meterRegistry));
+                    })
+                    .toList();
+        }
+
+        List<String> endpoints() {
+            return endpoints;
+        }
+
+        List<Meter> meters() {
+            return meters;
+        }
+
+        synchronized double inFlight(Replica replica) {
+            return replica.inFlight;
+        }
+
+        synchronized double ejected(Replica replica) {
+            return replica.ejected(System.nanoTime()) ? 1 : 0;
+        }
+
+        synchronized Replica acquire(String affinityKey, Set<String> failedEndpoints) {
+            long now = System.nanoTime();
+            if (affinityKey != null) {
+                var replica = affine(affinityKey, now, failedEndpoints);
+                if (replica != null) {
+                    replica.inFlight++;
+                    return replica;
+                }
+            }
+            int size = replicas.size();
+            // rotate the start to spread the calls over endpoints without latency samples
+            next = (next + 1) % size;
+            Replica best = null;
+            for (int i = 0; i < size; i++) {
+                var replica = replicas.get((next + i) % size);
+                if (replica.available(now, failedEndpoints) && (best == null || replica.inFlight < best.inFlight
+                        || replica.inFlight == best.inFlight && replica.latency < best.latency)) {
+                    best = replica;
+                }
+            }
+            if (best == null) {
+                best = replicas.stream().filter(replica -> !replica.ejected(now)).findFirst().orElse(null);
+            }
+            if (best == null) {
+                best = replicas.stream().min(Comparator.comparingLong(replica -> replica.ejectedUntil - now))
+                        .orElseThrow();
+            }
+            best.inFlight++;
+            return best;
+        }
+
+        /**
+         * Whether another endpoint than the replica is neither ejected nor failed in an earlier attempt.
+         */
+        synchronized boolean hasAlternative(Replica replica, Set<String> failedEndpoints) {
+            long now = System.nanoTime();
+            return replicas.stream().anyMatch(other -> other != replica && other.available(now, failedEndpoints));
+        }
+
+        /**
+         * First endpoint on the hash ring from the key which is available and below the load bound.
+         */
+        private Replica affine(String affinityKey, long now, Set<String> failedEndpoints) {
+            var available = replicas.stream().filter(replica -> replica.available(now, failedEndpoints)).toList();
+            if (available.isEmpty()) {
+                return null;
+            }
+            int load = available.stream().mapToInt(replica -> replica.inFlight).sum() + 1;
+            double bound = Math.ceil(config.affinityLoadFactor() * load / available.size());
+            long hash = hash(affinityKey);
+            var entry = ring.ceilingEntry(hash);
+            var home = (entry != null ? entry : ring.firstEntry()).getValue();
+            var replica = Stream.concat(ring.tailMap(hash, true).values().stream(),
+                    ring.headMap(hash, false).values().stream())
+                    .filter(node -> node.available(now, failedEndpoints) && node.inFlight + 1 <= bound)
+                    .findFirst()
+                    .orElse(null);
+            if (replica != null) {
+                meterRegistry.counter(METRIC_NAME + ".affinity", "provider", providerId, "result",
+                        replica == home ? "home" : "spillover").increment();
+            }
+            return replica;
+        }
+
+        synchronized void cancel(Replica replica) {
+            replica.inFlight--;
+        }
+
+        synchronized void release(Replica replica, boolean failed, long latency) {
+            replica.inFlight--;
+            long now = System.nanoTime();
+            if (failed) {
+                replica.failures++;
+                if (replica.failures >= config.ejectionFailures()) {
+                    eject(replica, now, "failures");
+                }
+                return;
+            }
+            replica.failures = 0;
+            replica.ejections = 0;
+            if (latency < 0) {
+                return;
+            }
+            replica.latency = replica.samples == 0 ? latency
+                    : replica.latency + LATENCY_WEIGHT * (latency - replica.latency);
+            replica.samples++;
+            if (replica.samples >= MIN_LATENCY_SAMPLES
+                    && replica.latency > config.latencyFactor() * fastestLatency(replica, now)) {
+                eject(replica, now, "latency");
+            }
+        }
+
+        private double fastestLatency(Replica replica, long now) {
+            return replicas.stream()
+                    .filter(other -> other != replica && !other.ejected(now) && other.samples >= MIN_LATENCY_SAMPLES)
+                    .mapToDouble(other -> other.latency)
+                    .min()
+                    .orElse(Double.MAX_VALUE);
+        }
+
+        private void eject(Replica replica, long now, String reason) {
+            if (replica.ejected(now) || replicas.stream().allMatch(other -> other == replica || other.ejected(now))) {
+                return;
+            }
+            replica.ejections++;
+            long seconds = config.ejectionTime() * Math.min(replica.ejections, MAX_EJECTION_FACTOR);
+            replica.ejectedUntil = now + TimeUnit.SECONDS.toNanos(seconds);
+            replica.failures = 0;
+            replica.samples = 0;
+            replica.latency = 0;
+            log.warn("Ejected replica '{}' of provider '{}' for {} seconds: {}", replica.url, providerName, seconds,
+                    reason);
+            meterRegistry.counter(METRIC_NAME + ".ejections", "provider", providerId, "replica", replica.url, "reason",
+                    reason).increment();
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash with a final mix, {@link String#hashCode()} spreads similar keys poorly over the ring.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Replica {
+
+        private final String url;
+
+        private int inFlight;
+
+        private int failures;
+
+        private int ejections;
+
+        private long ejectedUntil;
+
+        private double latency;
+
+        private int samples;
+
+        Replica(String url, long now) {
+            this.url = url;
+            this.ejectedUntil = now;
+        }
+
+        boolean ejected(long now) {
+            return ejectedUntil - now > 0;
+        }
+
+        boolean available(long now, Set<String> failedEndpoints) {
+            return !ejected(now) && !failedEndpoints.contains(url);
+        }
+    }
+
+    /**
+     * Call with the base URL of an endpoint, may throw checked exceptions like the streaming calls.
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+
+        T call(String baseUrl) throws E;
+    }
+}
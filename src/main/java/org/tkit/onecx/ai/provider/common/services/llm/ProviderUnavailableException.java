@@ -0,0 +1,20 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import lombok.Getter;
+
+/**
+ * Thrown if a call is rejected because the circuit breaker of the provider is open.
+ */
+@Getter
+public class ProviderUnavailableException extends RuntimeException {
+
+    /**
+     * Seconds after which the circuit lets a trial call pass.
+     */
+    private final long retryAfter;
+
+    public ProviderUnavailableException(String message, long retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,12 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+/**
+ * Thrown if the call to an endpoint of a provider failed while other endpoints of the provider are available, the
+ * failure is not counted against the provider.
+ */
+public class ReplicaFailedException extends RuntimeException {
+
+    public ReplicaFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
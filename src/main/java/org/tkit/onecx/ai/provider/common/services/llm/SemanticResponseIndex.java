@@ -0,0 +1,174 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Approximate nearest neighbour index of cached answers by the vectors of their questions. Uses random hyperplane
+ * locality sensitive hashing: vectors with a small angle share a bucket in at least one table with high probability.
+ * Small indexes are scanned completely. The oldest answer is dropped once the index is full or expired.
+ */
+final class SemanticResponseIndex {
+
+    private static final int TABLES = 10;
+
+    private static final int BITS = 8;
+
+    private static final int SCAN_LIMIT = 256;
+
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final float[][] hyperplanes;
+
+    private final int maxEntries;
+
+    private final long ttlNanos;
+
+    private final Deque<Entry> entries = new ArrayDeque<>();
+
+    private final List<Map<Integer, List<Entry>>> tables = new ArrayList<>(TABLES);
+
+    private long bytes;
+
+    SemanticResponseIndex(float[][] hyperplanes, int maxEntries, Duration ttl) {
+        this.hyperplanes = hyperplanes;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        for (int i = 0; i < TABLES; i++) {
+            tables.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Random hyperplanes shared by all indexes with vectors of the given dimensions.
+     */
+    static float[][] hyperplanes(int dimensions, long seed) {
+        var random = new Random(seed);
+        float[][] planes = new float[TABLES * BITS][dimensions];
+        for (float[] plane : planes) {
+            for (int i = 0; i < dimensions; i++) {
+                plane[i] = (float) random.nextGaussian();
+            }
+        }
+        return planes;
+    }
+
+    /**
+     * Returns the answer of the most similar question with a similarity of at least the threshold or {@code null}.
+     */
+    synchronized String find(float[] vector, double threshold) {
+        removeExpired();
+        var best = nearest(vector, threshold);
+        return best != null ? best.answer() : null;
+    }
+
+    /**
+     * Adds the answer, replacing the answers of questions with a similarity of at least the threshold.
+     */
+    synchronized void add(float[] vector, String answer, double threshold) {
+        removeExpired();
+        Entry similar;
+        while ((similar = nearest(vector, threshold)) != null) {
+            remove(similar);
+            entries.remove(similar);
+        }
+        var entry = new Entry(vector, signatures(vector), answer, System.nanoTime() + ttlNanos);
+        entries.addLast(entry);
+        for (int t = 0; t < TABLES; t++) {
+            tables.get(t).computeIfAbsent(entry.signatures()[t], k -> new ArrayList<>()).add(entry);
+        }
+        bytes += entry.bytes();
+        while (entries.size() > maxEntries) {
+            remove(entries.removeFirst());
+        }
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void removeExpired() {
+        long now = System.nanoTime();
+        // entries are ordered by insertion and share the time to live
+        while (!entries.isEmpty() && entries.peekFirst().expiresAt() - now <= 0) {
+            remove(entries.removeFirst());
+        }
+    }
+
+    private Entry nearest(float[] vector, double threshold) {
+        Iterable<Entry> candidates = entries;
+        if (entries.size() > SCAN_LIMIT) {
+            int[] signatures = signatures(vector);
+            Set<Entry> found = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int t = 0; t < TABLES; t++) {
+                found.addAll(tables.get(t).getOrDefault(signatures[t], List.of()));
+            }
+            candidates = found;
+        }
+        Entry best = null;
+        double bestSimilarity = threshold;
+        for (Entry entry : candidates) {
+            double similarity = dot(vector, entry.vector());
+            if (similarity >= bestSimilarity) {
+                best = entry;
+                bestSimilarity = similarity;
+            }
+        }
+        return best;
+    }
+
+    private void remove(Entry entry) {
+        for (int t = 0; t < TABLES; t++) {
+            var bucket = tables.get(t).get(entry.signatures()[t]);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    tables.get(t).remove(entry.signatures()[t]);
+                }
+            }
+        }
+        bytes -= entry.bytes();
+    }
+
+    private int[] signatures(float[] vector) {
+        int[] signatures = new int[TABLES];
+        for (int t = 0; t < TABLES; t++) {
+            int signature = 0;
+            for (int b = 0; b < BITS; b++) {
+                if (dot(vector, hyperplanes[t * BITS + b]) >= 0) {
+                    signature |= 1 << b;
+                }
+            }
+            signatures[t] = signature;
+        }
+        return signatures;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private record Entry(float[] vector, int[] signatures, String answer, long expiresAt) {
+
+        long bytes() {
+            return ENTRY_OVERHEAD + 4L * vector.length + 4L * signatures.length + 2L * answer.length();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Limits the number of chat requests dispatched at the same time and shares the slots between the tenants by weighted
+ * fair queuing. Each request gets a virtual finish time of {@code 1 / weight} after the later of the current virtual
+ * time and the finish time of the previous request of its tenant, the waiting request with the earliest finish time
+ * gets the next free slot. A tenant with many queued requests therefore gets its share of the slots but does not delay
+ * the requests of other tenants.
+ * <p>
+ * The scheduler is disabled by default. A slot is held for the whole chat, the maximum number of slots caps the
+ * concurrent chats of the instance and should only be set where the providers are the bottleneck.
+ */
+@Slf4j
+@ApplicationScoped
+public class TenantDispatchScheduler {
+
+    static final String METRIC_NAME = "onecx.ai.dispatch.scheduler";
+
+    static final String DEFAULT_TENANT = "default";
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final PriorityQueue<Waiter> waiting = new PriorityQueue<>(
+            Comparator.comparingDouble(Waiter::finish).thenComparingLong(Waiter::sequence));
+
+    private final Map<String, TenantState> tenants = new ConcurrentHashMap<>();
+
+    // guarded by the lock, read without lock by the gauge
+    private volatile int running;
+
+    private double virtualTime;
+
+    private long sequence;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder(METRIC_NAME + ".running", this, scheduler -> scheduler.running).register(meterRegistry);
+    }
+
+    /**
+     * Waits for a dispatch slot of the tenant, the slot is released by closing it.
+     *
+     * @throws ProviderOverloadedException if the queue of the tenant is full or no slot was free in time
+     */
+    public Slot acquire(String tenantId) {
+        var config = dispatchConfig.schedulerConfig();
+        if (!config.enabled()) {
+            return () -> {
+            };
+        }
+        var tenant = tenants.computeIfAbsent(Objects.requireNonNullElse(tenantId, DEFAULT_TENANT), this::tenantState);
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            double finish = Math.max(virtualTime, tenant.finish) + 1.0 / weight(tenant.id);
+            if (running < config.maxConcurrent() && waiting.isEmpty()) {
+                tenant.finish = finish;
+                virtualTime = finish;
+                running++;
+                return granted(tenant, start);
+            }
+            if (tenant.queued >= config.maxQueuedPerTenant()) {
+                throw reject(tenant, "queue full");
+            }
+            var waiter = new Waiter(tenant, finish, tenant.finish, sequence++, lock.newCondition());
+            tenant.finish = finish;
+            tenant.last = waiter;
+            tenant.queued++;
+            waiting.add(waiter);
+            await(waiter, config.queueTimeout());
+            return granted(tenant, start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void await(Waiter waiter, long timeout) {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+        try {
+            while (!waiter.granted) {
+                if (remaining <= 0) {
+                    cancel(waiter);
+                    throw reject(waiter.tenant, "queue timeout");
+                }
+                remaining = waiter.condition.awaitNanos(remaining);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            if (waiter.granted) {
+                release();
+            } else {
+                cancel(waiter);
+            }
+            throw reject(waiter.tenant, "interrupted");
+        }
+    }
+
+    /**
+     * Removes the waiter from the queue. The finish time of the tenant is reset if no later request of the tenant was
+     * queued since, a request which was not served does not delay the next requests of its tenant.
+     */
+    private void cancel(Waiter waiter) {
+        waiting.remove(waiter);
+        var tenant = waiter.tenant;
+        tenant.queued--;
+        if (tenant.last == waiter) {
+            tenant.finish = waiter.previousFinish;
+            tenant.last = null;
+        }
+    }
+
+    private Slot granted(TenantState tenant, long start) {
+        meterRegistry.timer(METRIC_NAME + ".wait", "tenant", tenant.id).record(System.nanoTime() - start,
+                TimeUnit.NANOSECONDS);
+        var released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+        };
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            running--;
+            while (running < dispatchConfig.schedulerConfig().maxConcurrent() && !waiting.isEmpty()) {
+                var next = waiting.poll();
+                next.tenant.queued--;
+                next.granted = true;
+                virtualTime = Math.max(virtualTime, next.finish);
+                running++;
+                next.condition.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int weight(String tenantId) {
+        var config = dispatchConfig.schedulerConfig();
+        return Math.max(1, config.tenantWeights().getOrDefault(tenantId, config.defaultWeight()));
+    }
+
+    private TenantState tenantState(String tenantId) {
+        var tenant = new TenantState(tenantId);
+        Gauge.builder(METRIC_NAME + ".queued", tenant, state -> state.queued).tag("tenant", tenantId)
+                .register(meterRegistry);
+        return tenant;
+    }
+
+    private ProviderOverloadedException reject(TenantState tenant, String reason) {
+        log.warn("Rejected chat request of tenant '{}': {}", tenant.id, reason);
+        meterRegistry.counter(METRIC_NAME + ".rejected", "tenant", tenant.id, "reason", reason).increment();
+        return new ProviderOverloadedException("Too many chat requests of tenant '" + tenant.id + "'",
+                dispatchConfig.providerConfig().retryAfter());
+    }
+
+    /**
+     * Dispatch slot of a request.
+     */
+    @FunctionalInterface
+    public interface Slot extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    private static final class TenantState {
+
+        private final String id;
+
+        // guarded by the scheduler lock, read without lock by the gauge
+        private volatile int queued;
+
+        private double finish;
+
+        // latest queued request, its finish time is the finish time of the tenant while it is waiting
+        private Waiter last;
+
+        TenantState(String id) {
+            this.id = id;
+        }
+    }
+
+    private static final class Waiter {
+
+        private final TenantState tenant;
+
+        private final double finish;
+
+        // finish time of the tenant before the request was queued
+        private final double previousFinish;
+
+        private final long sequence;
+
+        private final Condition condition;
+
+        private boolean granted;
+
+        Waiter(TenantState tenant, double finish, double previousFinish, long sequence, Condition condition) {
+            this.tenant = tenant;
+            this.finish = finish;
+            this.previousFinish = previousFinish;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+
+        double finish() {
+            return finish;
+        }
+
+        long sequence() {
+            return sequence;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+/**
+ * Tools offered to the model in a chat. Starts with the relevant subset and falls back to all tools once the model
+ * asks for a tool outside of it.
+ */
+final class ToolSelection {
+
+    private final List<ToolSpecification> allTools;
+
+    // hedged model calls may widen the selection concurrently
+    private volatile List<ToolSpecification> offered;
+
+    ToolSelection(List<ToolSpecification> allTools, List<ToolSpecification> offered) {
+        this.allTools = allTools;
+        this.offered = offered;
+    }
+
+    static ToolSelection all(List<ToolSpecification> tools) {
+        return new ToolSelection(tools, tools);
+    }
+
+    List<ToolSpecification> offered() {
+        return offered;
+    }
+
+    /**
+     * Offers all tools if the response requests a tool that was not offered.
+     *
+     * @return {@code true} if the request has to be sent again with all tools
+     */
+    boolean widenIfUnknownTool(ChatResponse response) {
+        if (offered.size() == allTools.size() || response == null || response.aiMessage() == null
+                || !response.aiMessage().hasToolExecutionRequests()) {
+            return false;
+        }
+        Set<String> names = offered.stream().map(ToolSpecification::name).collect(Collectors.toSet());
+        boolean unknown = response.aiMessage().toolExecutionRequests().stream()
+                .map(ToolExecutionRequest::name)
+                .anyMatch(name -> !names.contains(name));
+        if (unknown) {
+            offered = allTools;
+        }
+        return unknown;
+    }
+}
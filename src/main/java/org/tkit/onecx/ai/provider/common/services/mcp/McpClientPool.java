@@ -0,0 +1,185 @@
+package org.tkit.onecx.ai.provider.common.services.mcp;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.MCPServer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import dev.langchain4j.mcp.client.McpClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps connected MCP clients per tenant and server across chat requests. Clients are removed when they were not used
+ * for the configured idle time, when the server was modified or after a failure.
+ * <p>
+ * Several chat requests share a client, calls through {@link #execute(McpClient, Supplier)} hold a lease on it. A
+ * removed client is closed once the calls of other requests still running on it are finished.
+ */
+@Slf4j
+@ApplicationScoped
+public class McpClientPool {
+
+    static final String CACHE_NAME = "onecx.ai.dispatch.mcp.clients";
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private Cache<McpServerKey, McpClient> clients;
+
+    private final Map<McpClient, Lease> leases = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        var config = dispatchConfig.mcpConfig();
+        clients = Caffeine.newBuilder()
+                .maximumSize(config.clientPoolMaxSize())
+                .expireAfterAccess(Duration.ofSeconds(config.clientPoolIdleTimeout()))
+                // close on the evicting thread, so a reconnect never overlaps with the old session
+                .executor(Runnable::run)
+                .<McpServerKey, McpClient> removalListener((key, client, cause) -> retire(key, client))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, clients, CACHE_NAME);
+    }
+
+    @PreDestroy
+    void destroy() {
+        clients.invalidateAll();
+        clients.cleanUp();
+    }
+
+    /**
+     * Returns the pooled client of the server, connecting a new one with the factory if there is none.
+     */
+    public McpClient get(MCPServer mcpServer, Function<MCPServer, McpClient> factory) {
+        return get(McpServerKey.of(mcpServer), mcpServer, factory);
+    }
+
+    McpClient get(McpServerKey serverKey, MCPServer mcpServer, Function<MCPServer, McpClient> factory) {
+        return clients.get(serverKey, key -> {
+            log.debug("Connect MCP client for server: {}", mcpServer.getUrl());
+            var client = factory.apply(mcpServer);
+            leases.put(client, new Lease(key));
+            return client;
+        });
+    }
+
+    /**
+     * Runs the call on the client, a pooled client is not closed while the call runs and counts as used.
+     */
+    public <T> T execute(McpClient client, Supplier<T> call) {
+        var lease = leases.get(client);
+        if (lease == null || !lease.acquire()) {
+            return call.get();
+        }
+        // refreshes the idle time of the client
+        clients.getIfPresent(lease.key);
+        try {
+            return call.get();
+        } finally {
+            if (lease.release()) {
+                leases.remove(client);
+                close(lease.key, client);
+            }
+        }
+    }
+
+    /**
+     * Removes the client, the next request connects a new one. The client is closed once its running calls are
+     * finished.
+     */
+    public void evict(McpClient client) {
+        clients.asMap().entrySet().removeIf(entry -> entry.getValue() == client);
+    }
+
+    void onEntityChange(@Observes EntityChangeEvent event) {
+        if (event.type() == EntityType.MCP_SERVER && event.id() != null) {
+            clients.asMap().keySet().removeIf(key -> event.id().equals(key.serverId()));
+        }
+    }
+
+    private void retire(McpServerKey key, McpClient client) {
+        if (client == null) {
+            return;
+        }
+        var lease = leases.get(client);
+        if (lease == null || lease.retire()) {
+            leases.remove(client);
+            close(key, client);
+        }
+    }
+
+    private static void close(McpServerKey key, McpClient client) {
+        if (client == null) {
+            return;
+        }
+        try {
+            client.close();
+        } catch (Exception ex) {
+            log.debug("Failed to close MCP client for server {}: {}", key != null ? key.url() : null, ex.getMessage());
+        }
+    }
+
+    /**
+     * Calls running on a pooled client.
+     */
+    private static final class Lease {
+
+        private final McpServerKey key;
+
+        private int calls;
+
+        private boolean retired;
+
+        Lease(McpServerKey key) {
+            this.key = key;
+        }
+
+        /**
+         * @return whether the lease was acquired, {@code false} if the client is already closed
+         */
+        synchronized boolean acquire() {
+            if (retired && calls == 0) {
+                return false;
+            }
+            calls++;
+            return true;
+        }
+
+        /**
+         * @return whether the client has to be closed
+         */
+        synchronized boolean release() {
+            calls--;
+            return retired && calls == 0;
+        }
+
+        /**
+         * @return whether the client has to be closed
+         */
+        synchronized boolean retire() {
+            retired = true;
+            return calls == 0;
+        }
+    }
+}
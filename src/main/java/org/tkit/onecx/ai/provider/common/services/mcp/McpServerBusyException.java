@@ -0,0 +1,15 @@
+package org.tkit.onecx.ai.provider.common.services.mcp;
+
+/**
+ * Thrown if a tool call is rejected because the MCP server has no free permit, the server itself did not fail.
+ */
+public class McpServerBusyException extends RuntimeException {
+
+    public McpServerBusyException(String message) {
+        super(message);
+    }
+
+    public McpServerBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,15 @@
+package org.tkit.onecx.ai.provider.common.services.mcp;
+
+import org.tkit.onecx.ai.provider.common.services.tenant.TenantContext;
+import org.tkit.onecx.ai.provider.domain.models.MCPServer;
+
+/**
+ * Identifies a version of an MCP server of a tenant, a modified server gets a new key.
+ */
+record McpServerKey(String tenantId, String serverId, String url, Integer version) {
+
+    static McpServerKey of(MCPServer mcpServer) {
+        return new McpServerKey(TenantContext.currentTenantId(), mcpServer.getId(), mcpServer.getUrl(),
+                mcpServer.getModificationCount());
+    }
+}
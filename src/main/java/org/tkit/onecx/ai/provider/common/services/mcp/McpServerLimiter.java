@@ -0,0 +1,47 @@
+package org.tkit.onecx.ai.provider.common.services.mcp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+
+/**
+ * Limits the number of concurrent tool calls per MCP server across all chat requests.
+ */
+@ApplicationScoped
+public class McpServerLimiter {
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the call once a permit of the server is free. Waits at most the MCP timeout for the permit.
+     *
+     * @throws McpServerBusyException if no permit became free
+     */
+    public <T> T execute(String serverUrl, Supplier<T> call) {
+        var config = dispatchConfig.mcpConfig();
+        var semaphore = permits.computeIfAbsent(serverUrl, url -> new Semaphore(config.toolCallConcurrency(), true));
+        try {
+            if (!semaphore.tryAcquire(config.maxTimeout(), TimeUnit.SECONDS)) {
+                throw new McpServerBusyException("Too many concurrent tool calls for MCP server " + serverUrl);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new McpServerBusyException("Interrupted while waiting for MCP server " + serverUrl, ex);
+        }
+        try {
+            return call.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+}
@@ -2,22 +2,31 @@ package org.tkit.onecx.ai.provider.common.services.mcp;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
+import org.eclipse.microprofile.context.ManagedExecutor;
 import org.eclipse.microprofile.faulttolerance.Fallback;
 import org.eclipse.microprofile.faulttolerance.Retry;
 import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
 import org.tkit.onecx.ai.provider.domain.models.Configuration;
 import org.tkit.onecx.ai.provider.domain.models.MCPServer;
 
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.mcp.client.DefaultMcpClient;
 import dev.langchain4j.mcp.client.McpClient;
 import dev.langchain4j.mcp.client.transport.http.StreamableHttpMcpTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -27,9 +36,23 @@ import lombok.extern.slf4j.Slf4j;
 @ApplicationScoped
 public class McpService {
 
+    static final String DISCOVERY_METRIC = "onecx.ai.dispatch.mcp.discovery";
+
     @Inject
     DispatchConfig dispatchConfig;
 
+    @Inject
+    McpClientPool clientPool;
+
+    @Inject
+    McpToolCatalog toolCatalog;
+
+    @Inject
+    ManagedExecutor executor;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
     /**
      * Creates a tool registry from all MCP servers defined in the context.
      */
@@ -39,39 +62,102 @@ public class McpService {
             return McpToolRegistry.empty();
         }
 
-        List<McpTool> allTools = new ArrayList<>();
-
+        // keys are resolved on the request thread, the discovery tasks run without the tenant context
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(dispatchConfig.mcpConfig().discoveryTimeout());
+        Map<MCPServer, CompletableFuture<List<McpTool>>> discoveries = new LinkedHashMap<>();
         for (MCPServer mcpServer : configuration.getMcpServers()) {
-            allTools.addAll(discoverToolsFromServer(mcpServer));
+            var key = McpServerKey.of(mcpServer);
+            discoveries.put(mcpServer, CompletableFuture.supplyAsync(() -> discoverToolsFromServer(key, mcpServer), executor));
         }
 
+        List<McpTool> allTools = new ArrayList<>();
+        discoveries.forEach((mcpServer, discovery) -> allTools.addAll(awaitDiscovery(mcpServer, discovery, deadline)));
+
         log.info("Created tool registry with {} tools from {} servers",
                 allTools.size(), configuration.getMcpServers().size());
 
         return new McpToolRegistry(allTools);
     }
 
-    private List<McpTool> discoverToolsFromServer(MCPServer mcpServer) {
-        log.info("Discovering tools from MCP server: {}", mcpServer.getUrl());
+    private List<McpTool> awaitDiscovery(MCPServer mcpServer, CompletableFuture<List<McpTool>> discovery, long deadline) {
+        try {
+            return discovery.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            log.warn("Tool discovery from MCP server {} exceeded the deadline, server is skipped", mcpServer.getUrl());
+            meterRegistry.counter(DISCOVERY_METRIC + ".timeouts", "server", mcpServer.getUrl()).increment();
+            return List.of();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        } catch (ExecutionException ex) {
+            log.error("Tool discovery from MCP server {} failed: {}", mcpServer.getUrl(), ex.getMessage(), ex);
+            return List.of();
+        }
+    }
 
+    private List<McpTool> discoverToolsFromServer(McpServerKey key, MCPServer mcpServer) {
+        var sample = Timer.start(meterRegistry);
+        var outcome = "error";
         try {
-            // client must stay open for later tool execution
-            McpClient client = createMcpClient(mcpServer);
-            try {
-                client.checkHealth();
-                List<ToolSpecification> specs = receiveToolSpecifications(client);
-                log.info("Discovered {} tool(s) from {}", specs.size(), mcpServer.getUrl());
-                return specs.stream()
-                        .map(spec -> new McpTool(mcpServer.getUrl(), spec, client))
-                        .toList();
-            } catch (Exception ex) {
-                log.error("MCP server not available {}: {}", mcpServer.getUrl(), ex.getMessage(), ex);
-                return List.of();
-            }
-
-        } catch (Exception e) {
-            log.error("Error discovering tools from {}: {}", mcpServer.getUrl(), e.getMessage(), e);
+            List<ToolSpecification> specs = toolCatalog.get(key, () -> loadToolSpecifications(key, mcpServer));
+            // pooled client stays open for later tool execution and following requests
+            McpClient client = clientPool.get(key, mcpServer, this::connect);
+            outcome = "success";
+            return specs.stream()
+                    .map(spec -> new McpTool(mcpServer.getUrl(), spec, client,
+                            McpToolCachePolicy.of(key, mcpServer, spec.name())))
+                    .toList();
+        } catch (Exception ex) {
+            log.error("MCP server not available {}: {}", mcpServer.getUrl(), ex.getMessage(), ex);
             return List.of();
+        } finally {
+            sample.stop(meterRegistry.timer(DISCOVERY_METRIC, "server", mcpServer.getUrl(), "outcome", outcome));
+        }
+    }
+
+    private List<ToolSpecification> loadToolSpecifications(McpServerKey key, MCPServer mcpServer) {
+        log.info("Discovering tools from MCP server: {}", mcpServer.getUrl());
+        McpClient client = clientPool.get(key, mcpServer, this::connect);
+        try {
+            List<ToolSpecification> specs = clientPool.execute(client, () -> receiveToolSpecifications(client));
+            log.info("Discovered {} tool(s) from {}", specs.size(), mcpServer.getUrl());
+            return specs;
+        } catch (RuntimeException ex) {
+            clientPool.evict(client);
+            throw ex;
+        }
+    }
+
+    /**
+     * Executes the tool, the pooled client of the tool is not closed while the tool runs.
+     */
+    public String executeTool(McpTool tool, ToolExecutionRequest request) {
+        return clientPool.execute(tool.mcpClient(), () -> tool.execute(request));
+    }
+
+    /**
+     * Closes the pooled client after a failure, the next request reconnects.
+     */
+    public void evictClient(McpClient client) {
+        clientPool.evict(client);
+    }
+
+    private McpClient connect(MCPServer mcpServer) {
+        McpClient client = createMcpClient(mcpServer);
+        try {
+            client.checkHealth();
+            return client;
+        } catch (RuntimeException ex) {
+            closeQuietly(client);
+            throw ex;
+        }
+    }
+
+    private static void closeQuietly(McpClient client) {
+        try {
+            client.close();
+        } catch (Exception _) {
+            // client is not usable anyway
         }
     }
 
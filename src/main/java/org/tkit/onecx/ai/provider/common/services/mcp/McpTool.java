@@ -13,7 +13,12 @@ import io.quarkus.runtime.annotations.RegisterForReflection;
 public record McpTool(
         String serverUrl,
         ToolSpecification toolSpecification,
-        McpClient mcpClient) {
+        McpClient mcpClient,
+        McpToolCachePolicy cachePolicy) {
+
+    public McpTool(String serverUrl, ToolSpecification toolSpecification, McpClient mcpClient) {
+        this(serverUrl, toolSpecification, mcpClient, null);
+    }
 
     public String toolName() {
         return toolSpecification.name();
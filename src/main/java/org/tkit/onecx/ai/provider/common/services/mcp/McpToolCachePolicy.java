@@ -0,0 +1,36 @@
+package org.tkit.onecx.ai.provider.common.services.mcp;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.tkit.onecx.ai.provider.domain.models.MCPServer;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Result caching of a tool, resolved on the request thread so the tenant is known when the tool runs on another
+ * thread.
+ */
+@RegisterForReflection
+public record McpToolCachePolicy(String tenantId, String serverId, Duration ttl) {
+
+    /**
+     * Returns the policy of the tool or {@code null} if results of the tool are not cached.
+     */
+    static McpToolCachePolicy of(McpServerKey key, MCPServer mcpServer, String toolName) {
+        Integer ttl = mcpServer.getToolCacheTtl();
+        if (ttl == null || ttl <= 0 || key.tenantId() == null || !isCachedTool(mcpServer.getCachedTools(), toolName)) {
+            return null;
+        }
+        return new McpToolCachePolicy(key.tenantId(), key.serverId(), Duration.ofSeconds(ttl));
+    }
+
+    private static boolean isCachedTool(String cachedTools, String toolName) {
+        if (cachedTools == null || cachedTools.isBlank()) {
+            return true;
+        }
+        return Arrays.stream(cachedTools.split(","))
+                .map(String::trim)
+                .anyMatch(toolName::equals);
+    }
+}
@@ -0,0 +1,114 @@
+package org.tkit.onecx.ai.provider.common.services.mcp;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caches the tool specifications of MCP servers. Entries older than the configured TTL are still served while they
+ * are reloaded in the background, so only the first request of a server waits for the tool list.
+ */
+@Slf4j
+@ApplicationScoped
+public class McpToolCatalog {
+
+    static final String CACHE_NAME = "onecx.ai.dispatch.mcp.tools";
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    ManagedExecutor executor;
+
+    private final Set<McpServerKey> refreshing = ConcurrentHashMap.newKeySet();
+
+    private Cache<McpServerKey, CatalogEntry> catalog;
+
+    private long ttlNanos;
+
+    @PostConstruct
+    void init() {
+        var config = dispatchConfig.mcpConfig();
+        ttlNanos = Duration.ofSeconds(config.toolCatalogTtl()).toNanos();
+        // entries belong to pooled servers, so they share the bounds of the client pool
+        catalog = Caffeine.newBuilder()
+                .maximumSize(config.clientPoolMaxSize())
+                .expireAfterAccess(Duration.ofSeconds(config.clientPoolIdleTimeout()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, catalog, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached tool specifications of the server. Missing entries are loaded on the calling thread, stale
+     * entries are returned and reloaded in the background. Empty results are not cached.
+     */
+    public List<ToolSpecification> get(McpServerKey key, Supplier<List<ToolSpecification>> loader) {
+        var entry = catalog.getIfPresent(key);
+        if (entry == null) {
+            var tools = loader.get();
+            store(key, tools);
+            return tools;
+        }
+        if (System.nanoTime() - entry.loadedAt() >= ttlNanos && refreshing.add(key)) {
+            executor.execute(() -> refresh(key, loader));
+        }
+        return entry.tools();
+    }
+
+    /**
+     * Removes the tool specifications of the server, the next request loads them again.
+     */
+    public void invalidate(McpServerKey key) {
+        catalog.invalidate(key);
+    }
+
+    void onEntityChange(@Observes EntityChangeEvent event) {
+        if (event.type() == EntityType.MCP_SERVER && event.id() != null) {
+            catalog.asMap().keySet().removeIf(key -> event.id().equals(key.serverId()));
+        }
+    }
+
+    private void refresh(McpServerKey key, Supplier<List<ToolSpecification>> loader) {
+        try {
+            log.debug("Refresh tool catalog of MCP server: {}", key.url());
+            store(key, loader.get());
+        } catch (Exception ex) {
+            log.warn("Failed to refresh tool catalog of MCP server {}: {}", key.url(), ex.getMessage());
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+
+    private void store(McpServerKey key, List<ToolSpecification> tools) {
+        if (tools != null && !tools.isEmpty()) {
+            catalog.put(key, new CatalogEntry(List.copyOf(tools), System.nanoTime()));
+        }
+    }
+
+    private record CatalogEntry(List<ToolSpecification> tools, long loadedAt) {
+    }
+}
@@ -0,0 +1,110 @@
+package org.tkit.onecx.ai.provider.common.services.mcp;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+
+/**
+ * BM25 index over the names and descriptions of tools, used to send only the tools relevant to a chat to the model.
+ * Name terms are counted twice, a tool name usually says more than its description.
+ */
+public final class McpToolIndex {
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    private static final Pattern CAMEL_CASE = Pattern.compile("(?<=[\\p{Ll}\\p{N}])(?=\\p{Lu})");
+
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final List<ToolSpecification> tools;
+
+    private final List<Map<String, Integer>> termFrequencies;
+
+    private final int[] lengths;
+
+    private final Map<String, Integer> documentFrequencies = new HashMap<>();
+
+    private final double averageLength;
+
+    private McpToolIndex(List<ToolSpecification> tools) {
+        this.tools = tools;
+        this.termFrequencies = new ArrayList<>(tools.size());
+        this.lengths = new int[tools.size()];
+        long totalLength = 0;
+        for (int i = 0; i < tools.size(); i++) {
+            var tool = tools.get(i);
+            List<String> terms = new ArrayList<>(tokenize(tool.name()));
+            terms.addAll(tokenize(tool.name()));
+            terms.addAll(tokenize(tool.description()));
+
+            Map<String, Integer> frequencies = new HashMap<>();
+            terms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+            frequencies.keySet().forEach(term -> documentFrequencies.merge(term, 1, Integer::sum));
+            termFrequencies.add(frequencies);
+            lengths[i] = terms.size();
+            totalLength += terms.size();
+        }
+        this.averageLength = tools.isEmpty() ? 0 : (double) totalLength / tools.size();
+    }
+
+    public static McpToolIndex of(List<ToolSpecification> tools) {
+        return new McpToolIndex(List.copyOf(tools));
+    }
+
+    /**
+     * Returns at most {@code limit} tools matching the query, best match first. Tools with the same score keep the
+     * order of the index. Tools without any matching term are not returned.
+     */
+    public List<ToolSpecification> top(String query, int limit) {
+        var queryTerms = new LinkedHashSet<>(tokenize(query));
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        double[] scores = new double[tools.size()];
+        for (String term : queryTerms) {
+            Integer df = documentFrequencies.get(term);
+            if (df == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (tools.size() - df + 0.5) / (df + 0.5));
+            for (int i = 0; i < tools.size(); i++) {
+                Integer tf = termFrequencies.get(i).get(term);
+                if (tf != null) {
+                    double norm = K1 * (1 - B + B * lengths[i] / averageLength);
+                    scores[i] += idf * tf * (K1 + 1) / (tf + norm);
+                }
+            }
+        }
+        return IntStream.range(0, tools.size())
+                .filter(i -> scores[i] > 0)
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> scores[i]).reversed())
+                .limit(limit)
+                .map(tools::get)
+                .toList();
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        var terms = new ArrayList<String>();
+        for (String term : SEPARATOR.split(CAMEL_CASE.matcher(text).replaceAll(" "))) {
+            // single letters carry no meaning, single digits often tell numbered tools apart
+            if (term.length() > 1 || Character.isDigit(term.charAt(0))) {
+                terms.add(term.toLowerCase(Locale.ROOT));
+            }
+        }
+        return terms;
+    }
+}
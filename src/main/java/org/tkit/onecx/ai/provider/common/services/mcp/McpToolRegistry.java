@@ -36,20 +36,4 @@ public record McpToolRegistry(
                 .map(McpTool::toolSpecification)
                 .toList();
     }
-
-    /**
-     * Closes all MCP clients.
-     */
-    public void close() {
-        tools.stream()
-                .map(McpTool::mcpClient)
-                .distinct()
-                .forEach(client -> {
-                    try {
-                        client.close();
-                    } catch (Exception _) {
-                        // Ignore close exceptions
-                    }
-                });
-    }
 }
@@ -0,0 +1,129 @@
+package org.tkit.onecx.ai.provider.common.services.mcp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caches results of idempotent MCP tools per tenant, server, tool and arguments. The time to live comes from the
+ * {@link McpToolCachePolicy} of the tool, tools without a policy are always executed.
+ */
+@Slf4j
+@ApplicationScoped
+public class McpToolResultCache {
+
+    static final String CACHE_NAME = "onecx.ai.dispatch.mcp.tool.results";
+
+    static final String SAVED_METRIC = CACHE_NAME + ".saved";
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    private ObjectMapper argumentsMapper;
+
+    private Cache<ResultKey, CachedResult> results;
+
+    @PostConstruct
+    void init() {
+        argumentsMapper = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        results = Caffeine.newBuilder()
+                .maximumSize(dispatchConfig.mcpConfig().toolResultCacheMaxSize())
+                .expireAfter(new ResultExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached result of the call or executes it. Exceptions are not cached.
+     */
+    public String get(McpTool tool, ToolExecutionRequest request, Supplier<String> execution) {
+        var policy = tool.cachePolicy();
+        if (policy == null) {
+            return execution.get();
+        }
+        var key = new ResultKey(policy.tenantId(), policy.serverId(), tool.serverUrl(), tool.toolName(),
+                normalize(request.arguments()));
+        var cached = results.getIfPresent(key);
+        if (cached != null) {
+            meterRegistry.timer(SAVED_METRIC).record(cached.executionNanos(), TimeUnit.NANOSECONDS);
+            return cached.result();
+        }
+        long start = System.nanoTime();
+        String result = execution.get();
+        if (result != null) {
+            results.put(key, new CachedResult(result, System.nanoTime() - start, policy.ttl().toNanos()));
+        }
+        return result;
+    }
+
+    void onEntityChange(@Observes EntityChangeEvent event) {
+        if (event.type() == EntityType.MCP_SERVER && event.id() != null) {
+            results.asMap().keySet().removeIf(key -> event.id().equals(key.serverId()));
+        }
+    }
+
+    /**
+     * Arguments with the same content but a different key order share one entry.
+     */
+    String normalize(String arguments) {
+        if (arguments == null || arguments.isBlank()) {
+            return "{}";
+        }
+        try {
+            return argumentsMapper.writeValueAsString(argumentsMapper.readValue(arguments, Object.class));
+        } catch (Exception ex) {
+            log.debug("Tool arguments are not valid JSON, use them as they are: {}", ex.getMessage());
+            return arguments.trim();
+        }
+    }
+
+    record ResultKey(String tenantId, String serverId, String serverUrl, String toolName, String arguments) {
+    }
+
+    private record CachedResult(String result, long executionNanos, long ttlNanos) {
+    }
+
+    private static class ResultExpiry implements Expiry<ResultKey, CachedResult> {
+
+        @Override
+        public long expireAfterCreate(ResultKey key, CachedResult value, long currentTime) {
+            return value.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(ResultKey key, CachedResult value, long currentTime, long currentDuration) {
+            return value.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterRead(ResultKey key, CachedResult value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
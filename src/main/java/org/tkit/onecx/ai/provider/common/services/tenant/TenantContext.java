@@ -0,0 +1,20 @@
+package org.tkit.onecx.ai.provider.common.services.tenant;
+
+import org.tkit.quarkus.context.ApplicationContext;
+
+/**
+ * Access to the tenant of the current request.
+ */
+public final class TenantContext {
+
+    private TenantContext() {
+    }
+
+    /**
+     * Returns the tenant id of the current application context or {@code null} if no context is active.
+     */
+    public static String currentTenantId() {
+        var context = ApplicationContext.get();
+        return context != null ? context.getTenantId() : null;
+    }
+}
@@ -0,0 +1,66 @@
+package org.tkit.onecx.ai.provider.domain.daos;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeNotifier;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.quarkus.jpa.daos.AbstractDAO;
+import org.tkit.quarkus.jpa.exceptions.DAOException;
+import org.tkit.quarkus.jpa.models.TraceableEntity;
+
+/**
+ * DAO which notifies the {@link EntityChangeNotifier} about every written entity, so that no caller can change an
+ * entity without invalidating the cached dispatch data.
+ */
+public abstract class AbstractChangeNotifyingDAO<T extends TraceableEntity> extends AbstractDAO<T> {
+
+    @Inject
+    EntityChangeNotifier entityChangeNotifier;
+
+    /**
+     * Type of the entities written by this DAO.
+     */
+    protected abstract EntityType entityType();
+
+    @Override
+    @Transactional(value = Transactional.TxType.REQUIRED, rollbackOn = DAOException.class)
+    public T create(T entity) throws DAOException {
+        var created = super.create(entity);
+        notifyChange(created.getId());
+        return created;
+    }
+
+    @Override
+    @Transactional(value = Transactional.TxType.REQUIRED, rollbackOn = DAOException.class)
+    public Stream<T> create(List<T> entities) throws DAOException {
+        var created = super.create(entities).toList();
+        created.forEach(entity -> notifyChange(entity.getId()));
+        return created.stream();
+    }
+
+    @Override
+    @Transactional(value = Transactional.TxType.REQUIRED, rollbackOn = DAOException.class)
+    public T update(T entity) throws DAOException {
+        var updated = super.update(entity);
+        notifyChange(updated.getId());
+        return updated;
+    }
+
+    @Override
+    @Transactional(value = Transactional.TxType.REQUIRED, rollbackOn = DAOException.class)
+    public boolean deleteQueryById(Object id) throws DAOException {
+        var deleted = super.deleteQueryById(id);
+        if (deleted) {
+            notifyChange(id.toString());
+        }
+        return deleted;
+    }
+
+    private void notifyChange(String id) {
+        entityChangeNotifier.notifyChange(entityType(), id);
+    }
+}
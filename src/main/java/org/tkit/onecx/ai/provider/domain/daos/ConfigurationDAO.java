@@ -6,19 +6,30 @@ import java.util.ArrayList;
 import java.util.List;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.NoResultException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Predicate;
 
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
 import org.tkit.onecx.ai.provider.domain.criteria.ConfigurationSearchCriteria;
 import org.tkit.onecx.ai.provider.domain.models.Configuration;
 import org.tkit.onecx.ai.provider.domain.models.Configuration_;
-import org.tkit.quarkus.jpa.daos.AbstractDAO;
 import org.tkit.quarkus.jpa.daos.Page;
 import org.tkit.quarkus.jpa.daos.PageResult;
 import org.tkit.quarkus.jpa.exceptions.DAOException;
 import org.tkit.quarkus.jpa.models.AbstractTraceableEntity_;
+import org.tkit.quarkus.jpa.models.TraceableEntity_;
 
 @ApplicationScoped
-public class ConfigurationDAO extends AbstractDAO<Configuration> {
+public class ConfigurationDAO extends AbstractChangeNotifyingDAO<Configuration> {
+
+    @Override
+    protected EntityType entityType() {
+        return EntityType.CONFIGURATION;
+    }
 
     public PageResult<Configuration> findAIConfigurationsByCriteria(ConfigurationSearchCriteria criteria) {
         try {
@@ -41,26 +52,119 @@ public class ConfigurationDAO extends AbstractDAO<Configuration> {
         }
     }
 
-    public List<Configuration> findAllConfigurationsByFilterKey(String filterKey) {
+    /**
+     * Loads only the id and filter value of the configurations with the filter key, without their associations. The
+     * values are ordered by creation date and id, the order in which ties are resolved by
+     * {@link #findBestMatchingConfigurationId(String, String)}.
+     */
+    public List<FilterValue> findFilterValuesByFilterKey(String filterKey) {
         try {
             var cb = this.getEntityManager().getCriteriaBuilder();
-            var cq = cb.createQuery(Configuration.class);
+            var cq = cb.createQuery(FilterValue.class);
             var root = cq.from(Configuration.class);
+            var filter = root.get(Configuration_.filter);
 
+            cq.select(cb.construct(FilterValue.class, root.get(TraceableEntity_.ID), filter.get("value")));
             if (filterKey == null) {
-                cq.where(cb.isNull(root.get(Configuration_.filter)));
+                cq.where(cb.isNull(filter));
             } else {
-                cq.where(cb.equal(root.get(Configuration_.filter).get("key"), filterKey));
+                cq.where(cb.equal(filter.get("key"), filterKey));
             }
+            cq.orderBy(cb.asc(root.get(AbstractTraceableEntity_.CREATION_DATE)), cb.asc(root.get(TraceableEntity_.ID)));
 
             return this.getEntityManager().createQuery(cq).getResultList();
         } catch (Exception ex) {
-            throw new DAOException(ErrorKeys.ERROR_FIND_CONFIGURATIONS_BY_FILTER_KEY, ex);
+            throw new DAOException(ErrorKeys.ERROR_FIND_FILTER_VALUES_BY_FILTER_KEY, ex);
+        }
+    }
+
+    /**
+     * Returns the id of the configuration whose filter value matches best, evaluated by the database. A {@code *} in
+     * the filter value matches any sequence of characters and the filter value with the most literal characters wins.
+     * For a {@code null} filter value the first configuration without filter value is returned. Ties are resolved by
+     * creation date and id.
+     */
+    public String findBestMatchingConfigurationId(String filterKey, String filterValue) {
+        try {
+            var cb = this.getEntityManager().getCriteriaBuilder();
+            var cq = cb.createQuery(String.class);
+            var root = cq.from(Configuration.class);
+            var filter = root.get(Configuration_.filter);
+            Expression<String> value = filter.get("value");
+
+            List<Predicate> predicates = new ArrayList<>();
+            if (filterKey == null) {
+                predicates.add(cb.isNull(filter));
+            } else {
+                predicates.add(cb.equal(filter.get("key"), filterKey));
+            }
+            if (filterValue == null) {
+                predicates.add(cb.isNull(value));
+                cq.orderBy(cb.asc(root.get(AbstractTraceableEntity_.CREATION_DATE)),
+                        cb.asc(root.get(TraceableEntity_.ID)));
+            } else {
+                // escape LIKE wildcards of the stored value before translating '*' into '%'
+                var pattern = replace(cb, replace(cb, replace(cb, replace(cb, value, "!", "!!"), "%", "!%"), "_", "!_"),
+                        "*", "%");
+                predicates.add(cb.isNotNull(value));
+                predicates.add(cb.like(cb.literal(filterValue), pattern, '!'));
+                cq.orderBy(cb.desc(cb.length(replace(cb, value, "*", ""))),
+                        cb.asc(root.get(AbstractTraceableEntity_.CREATION_DATE)),
+                        cb.asc(root.get(TraceableEntity_.ID)));
+            }
+            cq.select(root.get(TraceableEntity_.ID)).where(predicates.toArray(new Predicate[] {}));
+
+            return this.getEntityManager().createQuery(cq)
+                    .setMaxResults(1)
+                    .getResultStream()
+                    .findFirst()
+                    .orElse(null);
+        } catch (Exception ex) {
+            throw new DAOException(ErrorKeys.ERROR_FIND_BEST_MATCHING_CONFIGURATION, ex);
         }
     }
 
+    private static Expression<String> replace(CriteriaBuilder cb, Expression<String> value, String from, String to) {
+        return cb.function("replace", String.class, value, cb.literal(from), cb.literal(to));
+    }
+
+    /**
+     * Loads the configuration with provider, fallback providers, their replica URLs and MCP servers read-only. Each
+     * collection is fetched by its own query, fetched together their rows would multiply.
+     */
+    public Configuration findConfigurationForDispatch(String id) {
+        try {
+            var configuration = findConfigurationForDispatch(id, Configuration.AI_CONFIGURATION_LOAD);
+            // the following queries fetch the collections into the configuration loaded above
+            findConfigurationForDispatch(id, Configuration.AI_CONFIGURATION_FALLBACK_PROVIDERS_LOAD);
+            findConfigurationForDispatch(id, Configuration.AI_CONFIGURATION_MCP_SERVERS_LOAD);
+            return configuration;
+        } catch (NoResultException nex) {
+            return null;
+        } catch (Exception ex) {
+            throw new DAOException(ErrorKeys.ERROR_FIND_CONFIGURATION_FOR_DISPATCH, ex);
+        }
+    }
+
+    private Configuration findConfigurationForDispatch(String id, String graphName) {
+        var cb = this.getEntityManager().getCriteriaBuilder();
+        var cq = cb.createQuery(Configuration.class);
+        var root = cq.from(Configuration.class);
+        cq.where(cb.equal(root.get(TraceableEntity_.ID), id));
+
+        return this.getEntityManager().createQuery(cq)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, this.getEntityManager().getEntityGraph(graphName))
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getSingleResult();
+    }
+
+    public record FilterValue(String configurationId, String value) {
+    }
+
     public enum ErrorKeys {
         ERROR_FIND_CONFIGURATIONS_BY_CRITERIA,
-        ERROR_FIND_CONFIGURATIONS_BY_FILTER_KEY
+        ERROR_FIND_FILTER_VALUES_BY_FILTER_KEY,
+        ERROR_FIND_CONFIGURATION_FOR_DISPATCH,
+        ERROR_FIND_BEST_MATCHING_CONFIGURATION
     }
 }
@@ -8,17 +8,22 @@ import java.util.List;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.criteria.Predicate;
 
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
 import org.tkit.onecx.ai.provider.domain.criteria.MCPServerSearchCriteria;
 import org.tkit.onecx.ai.provider.domain.models.MCPServer;
 import org.tkit.onecx.ai.provider.domain.models.MCPServer_;
-import org.tkit.quarkus.jpa.daos.AbstractDAO;
 import org.tkit.quarkus.jpa.daos.Page;
 import org.tkit.quarkus.jpa.daos.PageResult;
 import org.tkit.quarkus.jpa.exceptions.DAOException;
 import org.tkit.quarkus.jpa.models.AbstractTraceableEntity_;
 
 @ApplicationScoped
-public class MCPServerDAO extends AbstractDAO<MCPServer> {
+public class MCPServerDAO extends AbstractChangeNotifyingDAO<MCPServer> {
+
+    @Override
+    protected EntityType entityType() {
+        return EntityType.MCP_SERVER;
+    }
 
     public PageResult<MCPServer> findMCPServersByCriteria(MCPServerSearchCriteria criteria) {
         try {
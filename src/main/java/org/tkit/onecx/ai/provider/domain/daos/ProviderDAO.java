@@ -8,17 +8,22 @@ import java.util.List;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.criteria.Predicate;
 
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
 import org.tkit.onecx.ai.provider.domain.criteria.ProviderSearchCriteria;
 import org.tkit.onecx.ai.provider.domain.models.Provider;
 import org.tkit.onecx.ai.provider.domain.models.Provider_;
-import org.tkit.quarkus.jpa.daos.AbstractDAO;
 import org.tkit.quarkus.jpa.daos.Page;
 import org.tkit.quarkus.jpa.daos.PageResult;
 import org.tkit.quarkus.jpa.exceptions.DAOException;
 import org.tkit.quarkus.jpa.models.AbstractTraceableEntity_;
 
 @ApplicationScoped
-public class ProviderDAO extends AbstractDAO<Provider> {
+public class ProviderDAO extends AbstractChangeNotifyingDAO<Provider> {
+
+    @Override
+    protected EntityType entityType() {
+        return EntityType.PROVIDER;
+    }
 
     public PageResult<Provider> findProvidersByCriteria(ProviderSearchCriteria criteria) {
         try {
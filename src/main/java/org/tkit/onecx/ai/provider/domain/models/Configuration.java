@@ -1,10 +1,12 @@
 package org.tkit.onecx.ai.provider.domain.models;
 
+import java.util.List;
 import java.util.Set;
 
 import jakarta.persistence.*;
 
 import org.hibernate.annotations.TenantId;
+import org.tkit.onecx.ai.provider.domain.models.enums.ResponseCacheMode;
 import org.tkit.quarkus.jpa.models.TraceableEntity;
 
 import lombok.Getter;
@@ -14,11 +16,23 @@ import lombok.Setter;
 @Setter
 @Entity
 @Table(name = "CONFIGURATION")
-@NamedEntityGraph(name = Configuration.AI_CONFIGURATION_LOAD, includeAllAttributes = true)
+@NamedEntityGraph(name = Configuration.AI_CONFIGURATION_LOAD, attributeNodes = {
+        @NamedAttributeNode(value = "provider", subgraph = Configuration.PROVIDER_LOAD)
+}, subgraphs = @NamedSubgraph(name = Configuration.PROVIDER_LOAD, attributeNodes = @NamedAttributeNode("replicaUrls")))
+@NamedEntityGraph(name = Configuration.AI_CONFIGURATION_FALLBACK_PROVIDERS_LOAD, attributeNodes = {
+        @NamedAttributeNode(value = "fallbackProviders", subgraph = Configuration.PROVIDER_LOAD)
+}, subgraphs = @NamedSubgraph(name = Configuration.PROVIDER_LOAD, attributeNodes = @NamedAttributeNode("replicaUrls")))
+@NamedEntityGraph(name = Configuration.AI_CONFIGURATION_MCP_SERVERS_LOAD, attributeNodes = @NamedAttributeNode("mcpServers"))
 public class Configuration extends TraceableEntity {
 
     public static final String AI_CONFIGURATION_LOAD = "AI_CONFIGURATION_LOAD";
 
+    public static final String AI_CONFIGURATION_FALLBACK_PROVIDERS_LOAD = "AI_CONFIGURATION_FALLBACK_PROVIDERS_LOAD";
+
+    public static final String AI_CONFIGURATION_MCP_SERVERS_LOAD = "AI_CONFIGURATION_MCP_SERVERS_LOAD";
+
+    static final String PROVIDER_LOAD = "provider";
+
     @TenantId
     @Column(name = "TENANT_ID")
     private String tenantId;
@@ -32,10 +46,34 @@ public class Configuration extends TraceableEntity {
     @Column(name = "LLM_SYSTEM_MESSAGE")
     private String llmSystemMessage;
 
+    /**
+     * Maximum number of MCP tools sent to the model, all tools if not set.
+     */
+    @Column(name = "MAX_TOOLS")
+    private Integer maxTools;
+
+    @Column(name = "RESPONSE_CACHE")
+    @Enumerated(EnumType.STRING)
+    private ResponseCacheMode responseCache;
+
+    /**
+     * Slow model calls are hedged with a second call to another replica or provider.
+     */
+    @Column(name = "LATENCY_CRITICAL")
+    private Boolean latencyCritical;
+
     @ManyToOne(cascade = CascadeType.PERSIST)
     @JoinColumn(name = "PROVIDER_ID")
     private Provider provider;
 
+    /**
+     * Providers used in this order if the provider does not answer.
+     */
+    @ManyToMany
+    @OrderColumn(name = "PRIORITY")
+    @JoinTable(name = "CONFIGURATION_FALLBACK_PROVIDER", joinColumns = @JoinColumn(name = "CONFIGURATION_ID"), inverseJoinColumns = @JoinColumn(name = "PROVIDER_ID"))
+    private List<Provider> fallbackProviders;
+
     @Embedded
     private Filter filter;
 
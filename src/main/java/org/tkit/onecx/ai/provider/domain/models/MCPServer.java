@@ -34,4 +34,16 @@ public class MCPServer extends TraceableEntity {
     @Column(name = "EXECUTION_POLICY")
     @Enumerated(EnumType.STRING)
     private ExecutionPolicy executionPolicy;
+
+    /**
+     * Time in seconds tool results of this server are cached, results are not cached if not set.
+     */
+    @Column(name = "TOOL_CACHE_TTL")
+    private Integer toolCacheTtl;
+
+    /**
+     * Comma separated names of the idempotent tools whose results are cached, all tools if empty.
+     */
+    @Column(name = "CACHED_TOOLS", length = 2000)
+    private String cachedTools;
 }
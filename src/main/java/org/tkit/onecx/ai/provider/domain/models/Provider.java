@@ -1,7 +1,11 @@
 package org.tkit.onecx.ai.provider.domain.models;
 
+import java.util.Set;
+
 import jakarta.persistence.*;
 
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 import org.hibernate.annotations.TenantId;
 import org.tkit.onecx.ai.provider.domain.models.enums.ProviderType;
 import org.tkit.quarkus.jpa.models.TraceableEntity;
@@ -35,10 +39,26 @@ public class Provider extends TraceableEntity {
     @Column(name = "LLM_URL")
     private String llmUrl;
 
+    /**
+     * Further endpoints serving the same model, calls are routed to the endpoint with the fewest calls in flight.
+     * Fetched with the configuration for dispatch, otherwise for all providers of a result in one subselect.
+     */
+    @ElementCollection
+    @Fetch(FetchMode.SUBSELECT)
+    @CollectionTable(name = "PROVIDER_REPLICA_URL", joinColumns = @JoinColumn(name = "PROVIDER_ID"))
+    @Column(name = "URL")
+    private Set<String> replicaUrls;
+
     @Column(name = "MODEL_NAME")
     private String modelName;
 
     @Column(name = "API_KEY")
     private String apiKey;
 
+    @Column(name = "MAX_CONCURRENT_REQUESTS")
+    private Integer maxConcurrentRequests;
+
+    @Column(name = "MAX_QUEUED_REQUESTS")
+    private Integer maxQueuedRequests;
+
 }
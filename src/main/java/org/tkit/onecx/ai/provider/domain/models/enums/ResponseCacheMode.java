@@ -0,0 +1,7 @@
+package org.tkit.onecx.ai.provider.domain.models.enums;
+
+public enum ResponseCacheMode {
+    DISABLED,
+    EXACT,
+    SEMANTIC
+}
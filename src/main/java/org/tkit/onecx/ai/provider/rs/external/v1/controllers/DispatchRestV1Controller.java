@@ -8,10 +8,16 @@ import org.tkit.onecx.ai.provider.common.services.llm.LlmServiceFactory;
 
 import gen.org.tkit.onecx.ai.provider.rs.external.v1.DispatchV1Api;
 import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatRequestDTOV1;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Dispatch requests block on the LLM and MCP calls for a long time, they run on virtual threads to not exhaust the
+ * worker pool.
+ */
 @Slf4j
 @ApplicationScoped
+@RunOnVirtualThread
 public class DispatchRestV1Controller implements DispatchV1Api {
 
     @Inject
@@ -21,4 +27,9 @@ public class DispatchRestV1Controller implements DispatchV1Api {
     public Response chat(ChatRequestDTOV1 chatRequestDTOV1) {
         return llmServiceFactory.chat(chatRequestDTOV1);
     }
+
+    @Override
+    public Response chatStream(ChatRequestDTOV1 chatRequestDTOV1) {
+        return llmServiceFactory.chatStream(chatRequestDTOV1);
+    }
 }
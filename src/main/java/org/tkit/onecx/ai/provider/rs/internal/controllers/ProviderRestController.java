@@ -14,6 +14,7 @@ import jakarta.ws.rs.core.UriInfo;
 import org.jboss.resteasy.reactive.RestResponse;
 import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
 import org.tkit.onecx.ai.provider.common.services.llm.LlmServiceFactory;
+import org.tkit.onecx.ai.provider.common.services.llm.ProviderCircuitBreaker;
 import org.tkit.onecx.ai.provider.domain.daos.ProviderDAO;
 import org.tkit.onecx.ai.provider.rs.internal.mappers.ExceptionMapper;
 import org.tkit.onecx.ai.provider.rs.internal.mappers.ProviderMapper;
@@ -45,6 +46,9 @@ public class ProviderRestController implements ProviderInternalApi {
     @Inject
     LlmServiceFactory llmServiceFactory;
 
+    @Inject
+    ProviderCircuitBreaker circuitBreaker;
+
     @Override
     public Response createProvider(CreateProviderRequestDTO aiProviderDTO) {
 
@@ -100,7 +104,8 @@ public class ProviderRestController implements ProviderInternalApi {
         }
         var healthKey = llmServiceFactory.getProviderHealthStatus(provider);
 
-        return Response.status(Response.Status.OK).entity(mapper.mapHealthStatus(healthKey)).build();
+        return Response.status(Response.Status.OK)
+                .entity(mapper.mapHealthStatus(healthKey, circuitBreaker.state(provider))).build();
     }
 
     @ServerExceptionMapper
@@ -1,6 +1,7 @@
 package org.tkit.onecx.ai.provider.rs.internal.mappers;
 
 import java.util.HashSet;
+import java.util.List;
 
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -26,6 +27,7 @@ public interface ConfigurationMapper {
     ConfigurationAbstractDTO mapToAbstract(Configuration configuration);
 
     @Mapping(target = "removeMcpServersItem", ignore = true)
+    @Mapping(target = "removeFallbackProvidersItem", ignore = true)
     @Mapping(target = "llmProvider", source = "provider")
     ConfigurationDTO map(Configuration item);
 
@@ -63,6 +65,9 @@ public interface ConfigurationMapper {
     @Mapping(target = "controlTraceabilityManual", ignore = true)
     Provider mapProvider(ProviderDTO providerDTO);
 
+    @Mapping(target = "removeReplicaUrlsItem", ignore = true)
+    ProviderDTO mapProvider(Provider provider);
+
     @Mapping(target = "tenantId", ignore = true)
     @Mapping(target = "persisted", ignore = true)
     @Mapping(target = "description", ignore = true)
@@ -74,11 +79,12 @@ public interface ConfigurationMapper {
     @Mapping(target = "description", source = "updateDTO.description")
     @Mapping(target = "provider", source = "provider")
     @Mapping(target = "mcpServers", source = "mcpServers")
+    @Mapping(target = "fallbackProviders", source = "fallbackProviders")
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "tenantId", ignore = true)
     @Mapping(target = "persisted", ignore = true)
     @Mapping(target = "modificationUser", ignore = true)
     @Mapping(target = "modificationDate", ignore = true)
     void mapUpdate(@MappingTarget Configuration aiConfiguration, UpdateConfigurationRequestDTO updateDTO,
-            HashSet<MCPServer> mcpServers, Provider provider);
+            HashSet<MCPServer> mcpServers, Provider provider, List<Provider> fallbackProviders);
 }
@@ -3,6 +3,7 @@ package org.tkit.onecx.ai.provider.rs.internal.mappers;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
+import org.tkit.onecx.ai.provider.common.services.llm.ProviderCircuitBreaker;
 import org.tkit.onecx.ai.provider.domain.criteria.ProviderSearchCriteria;
 import org.tkit.onecx.ai.provider.domain.models.Provider;
 import org.tkit.quarkus.jpa.daos.PageResult;
@@ -24,6 +25,7 @@ public interface ProviderMapper {
     @Mapping(target = "controlTraceabilityManual", ignore = true)
     Provider createProvider(CreateProviderRequestDTO aiProviderDTO);
 
+    @Mapping(target = "removeReplicaUrlsItem", ignore = true)
     ProviderDTO map(Provider provider);
 
     @Mapping(target = "tenantId", ignore = true)
@@ -46,10 +48,11 @@ public interface ProviderMapper {
     @Mapping(target = "controlTraceabilityManual", ignore = true)
     void update(UpdateProviderRequestDTO aiProviderDTO, @MappingTarget Provider provider);
 
-    default ProviderHealthStatusDTO mapHealthStatus(String healthKey) {
+    default ProviderHealthStatusDTO mapHealthStatus(String healthKey, ProviderCircuitBreaker.State circuitState) {
         ProviderHealthStatusDTO status = new ProviderHealthStatusDTO();
         status.setStatus(ProviderHealthStatusDTO.StatusEnum.valueOf(healthKey));
         status.setCheckedAt(java.time.OffsetDateTime.now());
+        status.setCircuitState(ProviderHealthStatusDTO.CircuitStateEnum.valueOf(circuitState.name()));
         return status;
     }
 }
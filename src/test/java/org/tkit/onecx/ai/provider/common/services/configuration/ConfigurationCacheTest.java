@@ -0,0 +1,135 @@
+package org.tkit.onecx.ai.provider.common.services.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.domain.models.Configuration;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class ConfigurationCacheTest extends AbstractTest {
+
+    @Test
+    void get_returnsCachedConfiguration_onSecondCall() {
+        var cache = createCache(true);
+        var configuration = new Configuration();
+        var loads = new AtomicInteger();
+
+        var first = cache.get("APP_ID", "onecx-app", () -> {
+            loads.incrementAndGet();
+            return configuration;
+        });
+        var second = cache.get("APP_ID", "onecx-app", () -> {
+            loads.incrementAndGet();
+            return new Configuration();
+        });
+
+        assertThat(first).isSameAs(configuration);
+        assertThat(second).isSameAs(configuration);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void get_cachesMissingConfiguration() {
+        var cache = createCache(true);
+        var loads = new AtomicInteger();
+
+        cache.get("APP_ID", "unknown", () -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        var result = cache.get("APP_ID", "unknown", () -> {
+            loads.incrementAndGet();
+            return null;
+        });
+
+        assertThat(result).isNull();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void get_separatesFilterValues() {
+        var cache = createCache(true);
+        var first = new Configuration();
+        var second = new Configuration();
+
+        assertThat(cache.get("APP_ID", "app-1", () -> first)).isSameAs(first);
+        assertThat(cache.get("APP_ID", "app-2", () -> second)).isSameAs(second);
+    }
+
+    @Test
+    void invalidateCurrentTenant_removesCachedResolutions() {
+        var cache = createCache(true);
+        var configuration = new Configuration();
+        var reloaded = new Configuration();
+
+        cache.get(null, null, () -> configuration);
+        cache.invalidateCurrentTenant();
+
+        assertThat(cache.get(null, null, () -> reloaded)).isSameAs(reloaded);
+    }
+
+    @Test
+    void invalidateTenant_keepsResolutionsOfOtherTenants() {
+        var cache = createCache(true);
+        var configuration = new Configuration();
+
+        cache.get(null, null, () -> configuration);
+        cache.invalidateTenant("other-tenant");
+
+        assertThat(cache.get(null, null, Configuration::new)).isSameAs(configuration);
+    }
+
+    @Test
+    void invalidateCurrentTenant_removesCachedMatchers() {
+        var cache = createCache(true);
+        var matcher = ConfigurationMatcher.builder().build();
+        var reloaded = ConfigurationMatcher.builder().build();
+
+        assertThat(cache.getMatcher("APP_ID", () -> matcher)).isSameAs(matcher);
+        assertThat(cache.getMatcher("APP_ID", () -> reloaded)).isSameAs(matcher);
+        cache.invalidateCurrentTenant();
+
+        assertThat(cache.getMatcher("APP_ID", () -> reloaded)).isSameAs(reloaded);
+    }
+
+    @Test
+    void get_alwaysLoads_whenDisabled() {
+        var cache = createCache(false);
+        var loads = new AtomicInteger();
+
+        cache.get("APP_ID", "onecx-app", () -> {
+            loads.incrementAndGet();
+            return new Configuration();
+        });
+        cache.get("APP_ID", "onecx-app", () -> {
+            loads.incrementAndGet();
+            return new Configuration();
+        });
+
+        assertThat(loads).hasValue(2);
+    }
+
+    static ConfigurationCache createCache(boolean enabled) {
+        DispatchConfig dispatchConfig = mock(DispatchConfig.class);
+        DispatchConfig.ConfigurationCacheConfig cacheConfig = mock(DispatchConfig.ConfigurationCacheConfig.class);
+        when(cacheConfig.enabled()).thenReturn(enabled);
+        when(cacheConfig.maxSize()).thenReturn(100L);
+        when(cacheConfig.ttl()).thenReturn(60L);
+        when(dispatchConfig.configurationCacheConfig()).thenReturn(cacheConfig);
+
+        var cache = new ConfigurationCache();
+        cache.dispatchConfig = dispatchConfig;
+        cache.meterRegistry = new SimpleMeterRegistry();
+        cache.init();
+        return cache;
+    }
+}
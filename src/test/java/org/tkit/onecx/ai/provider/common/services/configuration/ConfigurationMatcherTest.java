@@ -0,0 +1,87 @@
+package org.tkit.onecx.ai.provider.common.services.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.domain.daos.ConfigurationDAO;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class ConfigurationMatcherTest extends AbstractTest {
+
+    @Test
+    void match_returnsMostSpecificPattern() {
+        var matcher = ConfigurationMatcher.builder()
+                .add("broad", "onecx-*")
+                .add("specific", "onecx-app-*")
+                .add("other", "other-*")
+                .build();
+
+        assertThat(matcher.match("onecx-app-admin")).isEqualTo("specific");
+        assertThat(matcher.match("onecx-workspace")).isEqualTo("broad");
+        assertThat(matcher.match("unknown")).isNull();
+    }
+
+    @Test
+    void match_requiresFullMatch() {
+        var matcher = ConfigurationMatcher.builder()
+                .add("exact", "onecx-app")
+                .build();
+
+        assertThat(matcher.match("onecx-app")).isEqualTo("exact");
+        assertThat(matcher.match("onecx-app-admin")).isNull();
+        assertThat(matcher.match("onecx")).isNull();
+    }
+
+    @Test
+    void match_supportsWildcardsAtAnyPosition() {
+        var matcher = ConfigurationMatcher.builder()
+                .add("any", "*")
+                .add("suffix", "*-admin")
+                .add("infix", "onecx-*-ui")
+                .add("multiple", "on**ecx-*-x-ui")
+                .build();
+
+        assertThat(matcher.match("")).isEqualTo("any");
+        assertThat(matcher.match("app-admin")).isEqualTo("suffix");
+        assertThat(matcher.match("onecx-app-ui")).isEqualTo("infix");
+        assertThat(matcher.match("onecx-app-x-ui")).isEqualTo("multiple");
+        assertThat(matcher.match("something")).isEqualTo("any");
+    }
+
+    @Test
+    void match_treatsRegexCharactersLiterally() {
+        var matcher = ConfigurationMatcher.builder()
+                .add("dot", "onecx.app")
+                .build();
+
+        assertThat(matcher.match("onecx.app")).isEqualTo("dot");
+        assertThat(matcher.match("onecx-app")).isNull();
+    }
+
+    @Test
+    void match_prefersFirstConfiguration_onEqualSpecificity() {
+        var matcher = ConfigurationMatcher.builder()
+                .add("first", "onecx-*")
+                .add("second", "*cx-app")
+                .add("duplicate", "onecx-*")
+                .build();
+
+        assertThat(matcher.match("onecx-app")).isEqualTo("first");
+    }
+
+    @Test
+    void match_returnsFirstDefault_forNullValue() {
+        var matcher = ConfigurationMatcher.of(List.of(
+                new ConfigurationDAO.FilterValue("a", "onecx-*"),
+                new ConfigurationDAO.FilterValue("b", null),
+                new ConfigurationDAO.FilterValue("c", null)));
+
+        assertThat(matcher.match(null)).isEqualTo("b");
+        assertThat(matcher.match("onecx-app")).isEqualTo("a");
+    }
+}
@@ -6,16 +6,20 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
 import org.tkit.onecx.ai.provider.domain.daos.ConfigurationDAO;
 import org.tkit.onecx.ai.provider.domain.daos.MCPServerDAO;
 import org.tkit.onecx.ai.provider.domain.daos.ProviderDAO;
@@ -45,6 +49,7 @@ class ConfigurationServiceTest extends AbstractTest {
     private ConfigurationMapper configurationMapper;
     private MCPServerMapper mcpServerMapper;
     private ProviderMapper providerMapper;
+    private DispatchConfig dispatchConfig;
 
     @BeforeEach
     void init() {
@@ -62,6 +67,10 @@ class ConfigurationServiceTest extends AbstractTest {
         service.configurationMapper = configurationMapper;
         service.mcpServerMapper = mcpServerMapper;
         service.providerMapper = providerMapper;
+        service.configurationCache = ConfigurationCacheTest.createCache(true);
+        dispatchConfig = mock(DispatchConfig.class);
+        when(dispatchConfig.configurationMatchStrategy()).thenReturn(DispatchConfig.ConfigurationMatchStrategy.INDEX);
+        service.dispatchConfig = dispatchConfig;
     }
 
     @Test
@@ -172,7 +181,7 @@ class ConfigurationServiceTest extends AbstractTest {
 
         assertThat(result).isSameAs(existingConfig);
         verify(configurationMapper).mapUpdate(eq(existingConfig), eq(update),
-                org.mockito.ArgumentMatchers.<HashSet<MCPServer>> any(), eq(null));
+                org.mockito.ArgumentMatchers.<HashSet<MCPServer>> any(), eq(null), eq(List.of()));
         verify(providerDAO, never()).findById(any());
     }
 
@@ -211,7 +220,7 @@ class ConfigurationServiceTest extends AbstractTest {
 
         assertThat(result).isSameAs(existingConfig);
         verify(configurationMapper).mapUpdate(eq(existingConfig), eq(update),
-                org.mockito.ArgumentMatchers.<HashSet<MCPServer>> any(), eq(createdProvider));
+                org.mockito.ArgumentMatchers.<HashSet<MCPServer>> any(), eq(createdProvider), eq(List.of()));
     }
 
     @Test
@@ -236,14 +245,47 @@ class ConfigurationServiceTest extends AbstractTest {
         assertThat(result).isSameAs(existingConfig);
         verify(providerDAO, never()).create(any(Provider.class));
         verify(configurationMapper).mapUpdate(eq(existingConfig), eq(update),
-                org.mockito.ArgumentMatchers.<HashSet<MCPServer>> any(), eq(existingProvider));
+                org.mockito.ArgumentMatchers.<HashSet<MCPServer>> any(), eq(existingProvider), eq(List.of()));
+    }
+
+    @Test
+    void updateConfiguration_withFallbackProviders_keepsOrder_andCreatesMissingProvider() {
+        Configuration existingConfig = new Configuration();
+        UpdateConfigurationRequestDTO update = mock(UpdateConfigurationRequestDTO.class, RETURNS_DEEP_STUBS);
+        ProviderDTO missingDto = mock(ProviderDTO.class);
+        ProviderDTO existingDto = mock(ProviderDTO.class);
+
+        when(missingDto.getId()).thenReturn("provider-2");
+        when(existingDto.getId()).thenReturn("provider-1");
+        when(update.getLlmProvider()).thenReturn(null);
+        when(update.getMcpServers()).thenReturn(List.of());
+        when(update.getFallbackProviders()).thenReturn(List.of(missingDto, existingDto));
+
+        Provider existingProvider = new Provider();
+        existingProvider.setId("provider-1");
+        Provider mappedProvider = new Provider();
+        mappedProvider.setId("provider-2");
+        Provider createdProvider = new Provider();
+        createdProvider.setId("provider-2");
+
+        when(configurationDAO.findById("cfg-1")).thenReturn(existingConfig);
+        when(providerDAO.findById("provider-1")).thenReturn(existingProvider);
+        when(providerDAO.findById("provider-2")).thenReturn(null);
+        when(providerMapper.map(missingDto)).thenReturn(mappedProvider);
+        when(providerDAO.create(mappedProvider)).thenReturn(createdProvider);
+        when(configurationDAO.update(existingConfig)).thenReturn(existingConfig);
+
+        service.updateConfiguration(update, "cfg-1");
+
+        verify(configurationMapper).mapUpdate(eq(existingConfig), eq(update),
+                org.mockito.ArgumentMatchers.<HashSet<MCPServer>> any(), eq(null),
+                eq(List.of(createdProvider, existingProvider)));
     }
 
     @Test
     void findConfigurationsByRequestContext_whenRequestContextNull() {
         Configuration noFilter = new Configuration();
-        when(configurationDAO.findAllConfigurationsByFilterKey(null))
-                .thenReturn(List.of(noFilter));
+        stubConfigurations(null, noFilter);
 
         Configuration result = service.findConfigurationsByRequestContext(null);
 
@@ -256,8 +298,7 @@ class ConfigurationServiceTest extends AbstractTest {
         when(context.getFilter()).thenReturn(null);
 
         Configuration noFilter = new Configuration();
-        when(configurationDAO.findAllConfigurationsByFilterKey(null))
-                .thenReturn(List.of(noFilter));
+        stubConfigurations(null, noFilter);
 
         Configuration result = service.findConfigurationsByRequestContext(context);
 
@@ -269,7 +310,7 @@ class ConfigurationServiceTest extends AbstractTest {
         Configuration withFilterValue = configWithFilter("onecx-*");
         Configuration withoutFilter = new Configuration();
 
-        when(configurationDAO.findAllConfigurationsByFilterKey(null)).thenReturn(List.of(withFilterValue, withoutFilter));
+        stubConfigurations(null, withFilterValue, withoutFilter);
 
         Configuration result = service.findConfigurationsByRequestContext(null);
 
@@ -286,8 +327,7 @@ class ConfigurationServiceTest extends AbstractTest {
         withoutFilter.setFilter(null);
         Configuration specific = configWithFilter("onecx-app-*");
 
-        when(configurationDAO.findAllConfigurationsByFilterKey("APP_ID"))
-                .thenReturn(List.of(withoutFilter, specific));
+        stubConfigurations("APP_ID", withoutFilter, specific);
 
         Configuration result = service.findConfigurationsByRequestContext(context);
 
@@ -308,8 +348,7 @@ class ConfigurationServiceTest extends AbstractTest {
 
         Configuration specific = configWithFilter("onecx-app-*");
 
-        when(configurationDAO.findAllConfigurationsByFilterKey("APP_ID"))
-                .thenReturn(List.of(withNullValue, specific));
+        stubConfigurations("APP_ID", withNullValue, specific);
 
         Configuration result = service.findConfigurationsByRequestContext(context);
 
@@ -326,8 +365,7 @@ class ConfigurationServiceTest extends AbstractTest {
         Configuration specific = configWithFilter("onecx-app-*");
         Configuration nonMatching = configWithFilter("other-*");
 
-        when(configurationDAO.findAllConfigurationsByFilterKey("APP_ID"))
-                .thenReturn(List.of(broad, specific, nonMatching));
+        stubConfigurations("APP_ID", broad, specific, nonMatching);
 
         Configuration result = service.findConfigurationsByRequestContext(context);
 
@@ -340,8 +378,7 @@ class ConfigurationServiceTest extends AbstractTest {
         when(context.getFilter().getKey().value()).thenReturn("APP_ID");
         when(context.getFilter().getValue()).thenReturn("no-match");
 
-        when(configurationDAO.findAllConfigurationsByFilterKey("APP_ID"))
-                .thenReturn(List.of(configWithFilter("onecx-*"), configWithFilter("another-*")));
+        stubConfigurations("APP_ID", configWithFilter("onecx-*"), configWithFilter("another-*"));
 
         Configuration result = service.findConfigurationsByRequestContext(context);
 
@@ -359,13 +396,82 @@ class ConfigurationServiceTest extends AbstractTest {
         filterWithoutValue.setValue(null);
         withoutFilterValue.setFilter(filterWithoutValue);
 
-        when(configurationDAO.findAllConfigurationsByFilterKey(null)).thenReturn(List.of(withoutFilterValue));
+        stubConfigurations(null, withoutFilterValue);
 
         Configuration result = service.findConfigurationsByRequestContext(context);
 
         assertThat(result).isSameAs(withoutFilterValue);
     }
 
+    @Test
+    void findConfigurationsByRequestContext_cachesResolution() {
+        RequestContextDTOV1 context = mock(RequestContextDTOV1.class, RETURNS_DEEP_STUBS);
+        when(context.getFilter().getKey().value()).thenReturn("APP_ID");
+        when(context.getFilter().getValue()).thenReturn("onecx-app-admin");
+
+        Configuration specific = configWithFilter("onecx-app-*");
+        stubConfigurations("APP_ID", specific);
+
+        assertThat(service.findConfigurationsByRequestContext(context)).isSameAs(specific);
+        assertThat(service.findConfigurationsByRequestContext(context)).isSameAs(specific);
+
+        verify(configurationDAO, times(1)).findFilterValuesByFilterKey("APP_ID");
+        verify(configurationDAO, times(1)).findConfigurationForDispatch(specific.getId());
+    }
+
+    @Test
+    void findConfigurationsByRequestContext_reusesMatcherForOtherValues() {
+        RequestContextDTOV1 context = mock(RequestContextDTOV1.class, RETURNS_DEEP_STUBS);
+        when(context.getFilter().getKey().value()).thenReturn("APP_ID");
+        when(context.getFilter().getValue()).thenReturn("onecx-app-admin", "onecx-workspace");
+
+        Configuration broad = configWithFilter("onecx-*");
+        Configuration specific = configWithFilter("onecx-app-*");
+        stubConfigurations("APP_ID", broad, specific);
+
+        assertThat(service.findConfigurationsByRequestContext(context)).isSameAs(specific);
+        assertThat(service.findConfigurationsByRequestContext(context)).isSameAs(broad);
+
+        verify(configurationDAO, times(1)).findFilterValuesByFilterKey("APP_ID");
+    }
+
+    @Test
+    void findConfigurationsByRequestContext_withDatabaseStrategy_usesDatabaseMatch() {
+        when(dispatchConfig.configurationMatchStrategy()).thenReturn(DispatchConfig.ConfigurationMatchStrategy.DATABASE);
+        RequestContextDTOV1 context = mock(RequestContextDTOV1.class, RETURNS_DEEP_STUBS);
+        when(context.getFilter().getKey().value()).thenReturn("APP_ID");
+        when(context.getFilter().getValue()).thenReturn("onecx-app-admin");
+
+        Configuration specific = configWithFilter("onecx-app-*");
+        when(configurationDAO.findBestMatchingConfigurationId("APP_ID", "onecx-app-admin")).thenReturn(specific.getId());
+        when(configurationDAO.findConfigurationForDispatch(specific.getId())).thenReturn(specific);
+
+        assertThat(service.findConfigurationsByRequestContext(context)).isSameAs(specific);
+        verify(configurationDAO, never()).findFilterValuesByFilterKey(any());
+    }
+
+    @Test
+    void findConfigurationsByRequestContext_withDatabaseStrategy_returnsNull_whenNoMatch() {
+        when(dispatchConfig.configurationMatchStrategy()).thenReturn(DispatchConfig.ConfigurationMatchStrategy.DATABASE);
+        when(configurationDAO.findBestMatchingConfigurationId(null, null)).thenReturn(null);
+
+        assertThat(service.findConfigurationsByRequestContext(null)).isNull();
+        verify(configurationDAO, never()).findConfigurationForDispatch(any());
+    }
+
+    private void stubConfigurations(String filterKey, Configuration... configurations) {
+        var filterValues = new ArrayList<ConfigurationDAO.FilterValue>();
+        for (var configuration : configurations) {
+            if (configuration.getId() == null) {
+                configuration.setId(UUID.randomUUID().toString());
+            }
+            filterValues.add(new ConfigurationDAO.FilterValue(configuration.getId(),
+                    configuration.getFilter() != null ? configuration.getFilter().getValue() : null));
+            when(configurationDAO.findConfigurationForDispatch(configuration.getId())).thenReturn(configuration);
+        }
+        when(configurationDAO.findFilterValuesByFilterKey(filterKey)).thenReturn(filterValues);
+    }
+
     private static MCPServer mcp(String id) {
         MCPServer mcp = new MCPServer();
         mcp.setId(id);
@@ -0,0 +1,108 @@
+package org.tkit.onecx.ai.provider.common.services.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import java.util.function.BooleanSupplier;
+
+import jakarta.inject.Inject;
+
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.configuration.ConfigurationCache;
+import org.tkit.onecx.ai.provider.common.services.tenant.TenantContext;
+import org.tkit.onecx.ai.provider.domain.models.Configuration;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class EntityChangeListenerTest extends AbstractTest {
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    DispatchConfig dispatchConfig;
+
+    @Inject
+    ConfigurationCache configurationCache;
+
+    @Inject
+    EntityChangeNotifier entityChangeNotifier;
+
+    @Inject
+    EntityChangeListener entityChangeListener;
+
+    @Test
+    void notificationOfOtherInstance_invalidatesCache() throws Exception {
+        var cached = new Configuration();
+        configurationCache.get("APP_ID", "remote-app", () -> cached);
+
+        // simulates the second instance, which publishes the change over its own connection
+        notify(new EntityChangeEvent("other-instance", TenantContext.currentTenantId(), EntityType.PROVIDER, "p-1"));
+
+        var reloaded = new Configuration();
+        await(() -> configurationCache.get("APP_ID", "remote-app", () -> reloaded) == reloaded);
+        assertThat(configurationCache.get("APP_ID", "remote-app", Configuration::new)).isSameAs(reloaded);
+    }
+
+    @Test
+    void notificationOfOwnInstance_isIgnored() throws Exception {
+        var cached = new Configuration();
+        configurationCache.get("APP_ID", "own-app", () -> cached);
+
+        notify(new EntityChangeEvent(EntityChangeNotifier.ORIGIN, TenantContext.currentTenantId(), EntityType.PROVIDER,
+                "p-1"));
+        Thread.sleep(dispatchConfig.changeEventsConfig().pollTimeout() * 2);
+
+        assertThat(configurationCache.get("APP_ID", "own-app", Configuration::new)).isSameAs(cached);
+    }
+
+    @Test
+    void notifyChange_invalidatesLocalCacheImmediately() {
+        var cached = new Configuration();
+        configurationCache.get("APP_ID", "local-app", () -> cached);
+
+        entityChangeNotifier.notifyChange(EntityType.CONFIGURATION, "c-1");
+
+        var reloaded = new Configuration();
+        assertThat(configurationCache.get("APP_ID", "local-app", () -> reloaded)).isSameAs(reloaded);
+    }
+
+    @Test
+    void listener_doesNotHoldConnectionOfPool() throws Exception {
+        try (var connection = entityChangeListener.connect()) {
+            assertThat(connection.isWrapperFor(PGConnection.class)).isTrue();
+            assertThat(dataSource.getMetrics().activeCount()).isZero();
+        }
+    }
+
+    @Test
+    void handle_ignoresInvalidPayload() {
+        assertThatCode(() -> entityChangeListener.handle("not-json")).doesNotThrowAnyException();
+    }
+
+    private void notify(EntityChangeEvent event) throws Exception {
+        try (var connection = dataSource.getConnection();
+                var statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, dispatchConfig.changeEventsConfig().channel());
+            statement.setString(2, objectMapper.writeValueAsString(event));
+            statement.execute();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+}
@@ -2,18 +2,30 @@ package org.tkit.onecx.ai.provider.common.services.llm;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import jakarta.ws.rs.core.Response;
 
+import org.eclipse.microprofile.context.ManagedExecutor;
 import org.junit.jupiter.api.Test;
 import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.mcp.McpServerBusyException;
+import org.tkit.onecx.ai.provider.common.services.mcp.McpServerLimiter;
+import org.tkit.onecx.ai.provider.common.services.mcp.McpService;
 import org.tkit.onecx.ai.provider.common.services.mcp.McpTool;
 import org.tkit.onecx.ai.provider.common.services.mcp.McpToolRegistry;
+import org.tkit.onecx.ai.provider.common.services.mcp.McpToolResultCache;
 import org.tkit.onecx.ai.provider.domain.models.Configuration;
 import org.tkit.onecx.ai.provider.domain.models.Provider;
 import org.tkit.onecx.ai.provider.test.AbstractTest;
@@ -24,7 +36,11 @@ import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
 import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.mcp.client.McpClient;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
 import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatMessageDTOV1;
 import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatRequestDTOV1;
 import io.quarkus.test.junit.QuarkusTest;
@@ -96,7 +112,7 @@ class AbstractLlmServiceTest extends AbstractTest {
         AiMessage aiMessage = mock(AiMessage.class);
         ToolExecutionRequest request = mock(ToolExecutionRequest.class);
         McpToolRegistry registry = mock(McpToolRegistry.class);
-        McpTool tool = mock(McpTool.class);
+        McpTool tool = tool("http://mcp");
 
         when(request.name()).thenReturn("my-tool");
         when(request.arguments()).thenReturn("{}");
@@ -113,6 +129,30 @@ class AbstractLlmServiceTest extends AbstractTest {
         assertThat(((ToolExecutionResultMessage) result.get(1)).text()).isEqualTo("tool-ok");
     }
 
+    @Test
+    void executeToolRequests_returnsErrorResult_whenServerIsBusy_withoutEvictingClient() {
+        var service = testService();
+        ChatResponse response = mock(ChatResponse.class);
+        AiMessage aiMessage = mock(AiMessage.class);
+        ToolExecutionRequest request = mock(ToolExecutionRequest.class);
+        McpToolRegistry registry = mock(McpToolRegistry.class);
+        McpTool tool = tool("http://mcp");
+
+        when(request.name()).thenReturn("my-tool");
+        when(request.arguments()).thenReturn("{}");
+        when(response.aiMessage()).thenReturn(aiMessage);
+        when(aiMessage.toolExecutionRequests()).thenReturn(List.of(request));
+        when(registry.findByName("my-tool")).thenReturn(Optional.of(tool));
+        when(service.serverLimiter.execute(any(), any()))
+                .thenThrow(new McpServerBusyException("Too many concurrent tool calls for MCP server http://mcp"));
+
+        List<ChatMessage> result = service.callExecuteToolRequests(response, registry);
+
+        assertThat(((ToolExecutionResultMessage) result.get(1)).text())
+                .isEqualTo("Error: MCP server of tool 'my-tool' is busy");
+        verify(service.mcpService, never()).evictClient(any());
+    }
+
     @Test
     void executeToolRequests_returnsErrorResult_whenToolMissing() {
         var service = testService();
@@ -135,10 +175,83 @@ class AbstractLlmServiceTest extends AbstractTest {
         assertThat(((ToolExecutionResultMessage) result.get(1)).text()).contains("missing-tool");
     }
 
+    @Test
+    void executeToolRequests_runsSingleRequestOnCallerThread() {
+        var service = testService();
+        ChatResponse response = mock(ChatResponse.class);
+        AiMessage aiMessage = mock(AiMessage.class);
+        ToolExecutionRequest request = toolRequest("my-tool");
+        McpToolRegistry registry = mock(McpToolRegistry.class);
+        McpTool tool = tool("http://mcp");
+
+        when(response.aiMessage()).thenReturn(aiMessage);
+        when(aiMessage.toolExecutionRequests()).thenReturn(List.of(request));
+        when(registry.findByName("my-tool")).thenReturn(Optional.of(tool));
+        when(tool.execute(request)).thenReturn("tool-ok");
+
+        service.callExecuteToolRequests(response, registry);
+
+        verify(service.executor, never()).execute(any());
+    }
+
+    @Test
+    void executeToolRequests_runsRequestsConcurrently_andKeepsOrder() {
+        var service = testService();
+        ChatResponse response = mock(ChatResponse.class);
+        AiMessage aiMessage = mock(AiMessage.class);
+        McpToolRegistry registry = mock(McpToolRegistry.class);
+        List<ToolExecutionRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            var request = toolRequest("tool-" + i);
+            McpTool tool = tool("http://mcp-" + i);
+            long delay = 400 - i * 100L;
+            var result = "result-" + i;
+            when(tool.execute(request)).thenAnswer(invocation -> {
+                Thread.sleep(delay);
+                return result;
+            });
+            when(registry.findByName("tool-" + i)).thenReturn(Optional.of(tool));
+            requests.add(request);
+        }
+        when(response.aiMessage()).thenReturn(aiMessage);
+        when(aiMessage.toolExecutionRequests()).thenReturn(requests);
+
+        long start = System.nanoTime();
+        List<ChatMessage> result = service.callExecuteToolRequests(response, registry);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(result.getFirst()).isEqualTo(aiMessage);
+        assertThat(result.subList(1, result.size())).extracting(m -> ((ToolExecutionResultMessage) m).text())
+                .containsExactly("result-0", "result-1", "result-2", "result-3");
+        assertThat(elapsed).isLessThan(900);
+    }
+
+    @Test
+    void executeToolRequests_propagatesException_ofConcurrentRequest() {
+        var service = testService();
+        ChatResponse response = mock(ChatResponse.class);
+        AiMessage aiMessage = mock(AiMessage.class);
+        McpToolRegistry registry = mock(McpToolRegistry.class);
+        var okRequest = toolRequest("tool-ok");
+        var failingRequest = toolRequest("tool-failing");
+        McpTool okTool = tool("http://mcp");
+        McpTool failingTool = tool("http://mcp");
+        when(okTool.execute(okRequest)).thenReturn("ok");
+        when(failingTool.execute(failingRequest)).thenThrow(new IllegalArgumentException("tool-failure"));
+        when(registry.findByName("tool-ok")).thenReturn(Optional.of(okTool));
+        when(registry.findByName("tool-failing")).thenReturn(Optional.of(failingTool));
+        when(response.aiMessage()).thenReturn(aiMessage);
+        when(aiMessage.toolExecutionRequests()).thenReturn(List.of(okRequest, failingRequest));
+
+        assertThatThrownBy(() -> service.callExecuteToolRequests(response, registry))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("tool-failure");
+    }
+
     @Test
     void executeToolRequestWithRetry_delegatesToToolExecute() {
         var service = testService();
-        McpTool tool = mock(McpTool.class);
+        McpTool tool = tool("http://mcp");
         ToolExecutionRequest request = mock(ToolExecutionRequest.class);
         when(tool.execute(request)).thenReturn("ok");
 
@@ -150,7 +263,7 @@ class AbstractLlmServiceTest extends AbstractTest {
     @Test
     void executeToolRequestWithRetry_propagatesException() {
         var service = testService();
-        McpTool tool = mock(McpTool.class);
+        McpTool tool = tool("http://mcp");
         ToolExecutionRequest request = mock(ToolExecutionRequest.class);
         when(tool.execute(request)).thenThrow(new RuntimeException("tool-failure"));
 
@@ -165,9 +278,14 @@ class AbstractLlmServiceTest extends AbstractTest {
         ToolExecutionRequest request = mock(ToolExecutionRequest.class);
         when(request.name()).thenReturn("calc");
 
-        String result = service.callToolExecutionFallback(null, request);
+        McpTool tool = tool("http://mcp");
+        McpClient client = mock(McpClient.class);
+        when(tool.mcpClient()).thenReturn(client);
+
+        String result = service.callToolExecutionFallback(tool, request);
 
         assertThat(result).isEqualTo("Error: Tool execution failed for 'calc'");
+        verify(service.mcpService).evictClient(client);
     }
 
     @Test
@@ -212,13 +330,76 @@ class AbstractLlmServiceTest extends AbstractTest {
         assertThat(mapped.get(0)).isInstanceOf(UserMessage.class);
     }
 
+    @Test
+    void streamChatRequest_passesPartialResponses_andReturnsCompleteResponse() throws Exception {
+        var service = testService();
+        var model = mock(StreamingChatModel.class);
+        var complete = ChatResponse.builder().aiMessage(AiMessage.from("Hello world")).build();
+        doAnswer(invocation -> {
+            StreamingChatResponseHandler handler = invocation.getArgument(1);
+            new Thread(() -> {
+                handler.onPartialResponse("Hello");
+                handler.onPartialResponse(" world");
+                handler.onCompleteResponse(complete);
+            }).start();
+            return null;
+        }).when(model).chat(any(ChatRequest.class), any(StreamingChatResponseHandler.class));
+
+        List<String> tokens = new ArrayList<>();
+        var response = service.streamChatRequest(model, ChatRequest.builder().messages(UserMessage.from("hi")).build(),
+                tokens::add);
+
+        assertThat(tokens).containsExactly("Hello", " world");
+        assertThat(response).isSameAs(complete);
+    }
+
+    @Test
+    void streamChatRequest_throws_whenModelFails() {
+        var service = testService();
+        var model = mock(StreamingChatModel.class);
+        doAnswer(invocation -> {
+            StreamingChatResponseHandler handler = invocation.getArgument(1);
+            handler.onError(new RuntimeException("boom"));
+            return null;
+        }).when(model).chat(any(ChatRequest.class), any(StreamingChatResponseHandler.class));
+
+        var request = ChatRequest.builder().messages(UserMessage.from("hi")).build();
+        assertThatThrownBy(() -> service.streamChatRequest(model, request, token -> {
+        })).isInstanceOf(IllegalStateException.class).hasMessageContaining("boom");
+    }
+
     private static TestableAbstractLlmService testService() {
         DispatchConfig dispatchConfig = mock(DispatchConfig.class);
         DispatchConfig.MCPConfig mcpConfig = mock(DispatchConfig.MCPConfig.class);
+        DispatchConfig.ProviderConfig providerConfig = mock(DispatchConfig.ProviderConfig.class);
         when(dispatchConfig.mcpConfig()).thenReturn(mcpConfig);
+        when(dispatchConfig.providerConfig()).thenReturn(providerConfig);
         when(mcpConfig.maxToolExecutionRetries()).thenReturn(2L);
+        when(providerConfig.timeout()).thenReturn(5L);
+
+        var service = new TestableAbstractLlmService(dispatchConfig);
+        service.mcpService = mock(McpService.class);
+        when(service.mcpService.executeTool(any(), any()))
+                .thenAnswer(invocation -> invocation.<McpTool> getArgument(0).execute(invocation.getArgument(1)));
+        service.serverLimiter = mock(McpServerLimiter.class);
+        when(service.serverLimiter.execute(any(), any())).thenAnswer(invocation -> invocation.<Supplier<?>> getArgument(1).get());
+        service.toolResultCache = mock(McpToolResultCache.class);
+        when(service.toolResultCache.get(any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>> getArgument(2).get());
+        service.executor = mock(ManagedExecutor.class);
+        doAnswer(invocation -> Thread.ofVirtual().start(invocation.<Runnable> getArgument(0)))
+                .when(service.executor).execute(any());
+        return service;
+    }
+
+    private static McpTool tool(String serverUrl) {
+        McpTool tool = mock(McpTool.class);
+        when(tool.serverUrl()).thenReturn(serverUrl);
+        return tool;
+    }
 
-        return new TestableAbstractLlmService(dispatchConfig);
+    private static ToolExecutionRequest toolRequest(String name) {
+        return ToolExecutionRequest.builder().id(name).name(name).arguments("{}").build();
     }
 
     static class TestableAbstractLlmService extends AbstractLlmService {
@@ -252,6 +433,11 @@ class AbstractLlmServiceTest extends AbstractTest {
             return Response.ok().build();
         }
 
+        @Override
+        public Response chatStream(Configuration configuration, ChatRequestDTOV1 chatRequestDTO) {
+            return Response.ok().build();
+        }
+
         @Override
         public String getHealthStatus(Provider provider) {
             return "HEALTHY";
@@ -0,0 +1,249 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class AdaptiveProviderLimiterTest extends AbstractTest {
+
+    @Test
+    void execute_rejectsCalls_beyondLimit() throws Exception {
+        var limiter = createLimiter(true, 2);
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(2);
+
+        List<CompletableFuture<String>> running = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            running.add(CompletableFuture.supplyAsync(() -> limiter.execute(provider(), () -> {
+                started.countDown();
+                await(release);
+                return "ok";
+            }), Thread::startVirtualThread));
+        }
+        started.await(5, TimeUnit.SECONDS);
+
+        assertThat(gauge(limiter, ".in.flight")).isEqualTo(2);
+        assertThatThrownBy(() -> limiter.execute(provider(), () -> "ok"))
+                .isInstanceOf(ProviderOverloadedException.class);
+        assertThat(limiter.meterRegistry.get(AdaptiveProviderLimiter.METRIC_NAME + ".rejected").counter().count())
+                .isEqualTo(1);
+
+        release.countDown();
+        for (var call : running) {
+            assertThat(call.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        }
+        assertThat(gauge(limiter, ".in.flight")).isZero();
+    }
+
+    @Test
+    void execute_growsLimit_whileBusyAndFast() throws Exception {
+        var limiter = createLimiter(true, 2);
+
+        for (int i = 0; i < 20; i++) {
+            // both calls are in flight at the same time, the provider is at its limit
+            var barrier = new CyclicBarrier(2);
+            List<CompletableFuture<String>> calls = new ArrayList<>();
+            for (int c = 0; c < 2; c++) {
+                calls.add(CompletableFuture.supplyAsync(() -> limiter.execute(provider(), () -> {
+                    await(barrier);
+                    return sleep(2);
+                }), Thread::startVirtualThread));
+            }
+            for (var call : calls) {
+                call.get(5, TimeUnit.SECONDS);
+            }
+        }
+
+        assertThat(gauge(limiter, "")).isGreaterThan(2);
+    }
+
+    @Test
+    void execute_keepsLimit_whileNotBusy() {
+        var limiter = createLimiter(true, 20);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.execute(provider(), () -> sleep(2));
+        }
+
+        assertThat(gauge(limiter, "")).isEqualTo(20);
+    }
+
+    @Test
+    void execute_shrinksLimit_onFailures() {
+        var limiter = createLimiter(true, 10);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.execute(provider(), () -> null);
+        }
+        assertThatThrownBy(() -> limiter.execute(provider(), () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(gauge(limiter, "")).isEqualTo(5);
+    }
+
+    @Test
+    void execute_shrinksLimit_whenLatencyGrows() {
+        var limiter = createLimiter(true, 16);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.execute(provider(), () -> sleep(1));
+        }
+        for (int i = 0; i < 5; i++) {
+            limiter.execute(provider(), () -> sleep(60));
+        }
+
+        assertThat(gauge(limiter, "")).isLessThan(16);
+    }
+
+    @Test
+    void execute_startsWithMaxConcurrentRequests_ofProvider() {
+        var limiter = createLimiter(true, 20);
+        var provider = provider();
+        provider.setMaxConcurrentRequests(4);
+
+        limiter.execute(provider, () -> "ok");
+
+        assertThat(gauge(limiter, "")).isEqualTo(4);
+    }
+
+    @Test
+    void execute_keepsLimit_whenCallIsRejectedByOtherLimit() {
+        var limiter = createLimiter(true, 10);
+
+        assertThatThrownBy(() -> limiter.execute(provider(), () -> {
+            throw new ProviderOverloadedException("Provider 'provider' is unavailable", 5);
+        })).isInstanceOf(ProviderOverloadedException.class);
+
+        assertThat(gauge(limiter, "")).isEqualTo(10);
+        assertThat(gauge(limiter, ".in.flight")).isZero();
+    }
+
+    @Test
+    void execute_keepsLimit_whenCircuitIsOpen() {
+        var limiter = createLimiter(true, 10);
+
+        assertThatThrownBy(() -> limiter.execute(provider(), () -> {
+            throw new ProviderUnavailableException("Provider 'provider' is unavailable", 30);
+        })).isInstanceOf(ProviderUnavailableException.class);
+
+        assertThat(gauge(limiter, "")).isEqualTo(10);
+        assertThat(gauge(limiter, ".in.flight")).isZero();
+    }
+
+    @Test
+    void execute_keepsLimit_whenCallIsInterrupted() throws Exception {
+        var limiter = createLimiter(true, 10);
+
+        var call = CompletableFuture.supplyAsync(() -> limiter.execute(provider(), () -> {
+            // cancelled like the losing call of a hedge
+            Thread.currentThread().interrupt();
+            return null;
+        }), Thread::startVirtualThread);
+
+        assertThat(call.get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(gauge(limiter, "")).isEqualTo(10);
+        assertThat(gauge(limiter, ".in.flight")).isZero();
+    }
+
+    @Test
+    void onEntityChange_resetsLimit() {
+        var limiter = createLimiter(true, 10);
+        limiter.execute(provider(), () -> null);
+        assertThat(gauge(limiter, "")).isEqualTo(9);
+
+        limiter.onEntityChange(new EntityChangeEvent("origin", "default", EntityType.PROVIDER, "p-1"));
+        assertThat(limiter.meterRegistry.find(AdaptiveProviderLimiter.METRIC_NAME).gauge()).isNull();
+
+        limiter.execute(provider(), () -> "ok");
+        assertThat(gauge(limiter, "")).isEqualTo(10);
+    }
+
+    @Test
+    void execute_runsCall_whenDisabled() {
+        var limiter = createLimiter(false, 1);
+
+        assertThat(limiter.execute(provider(), () -> null)).isNull();
+        assertThat(limiter.meterRegistry.find(AdaptiveProviderLimiter.METRIC_NAME).gauge()).isNull();
+    }
+
+    static AdaptiveProviderLimiter createLimiter(boolean enabled, int initialLimit) {
+        DispatchConfig dispatchConfig = mock(DispatchConfig.class);
+        DispatchConfig.ProviderConfig providerConfig = mock(DispatchConfig.ProviderConfig.class);
+        DispatchConfig.AdaptiveLimitConfig limitConfig = mock(DispatchConfig.AdaptiveLimitConfig.class);
+        when(dispatchConfig.providerConfig()).thenReturn(providerConfig);
+        when(providerConfig.retryAfter()).thenReturn(5L);
+        when(providerConfig.adaptiveLimit()).thenReturn(limitConfig);
+        when(limitConfig.enabled()).thenReturn(enabled);
+        when(limitConfig.initialLimit()).thenReturn(initialLimit);
+        when(limitConfig.minLimit()).thenReturn(1);
+        when(limitConfig.maxLimit()).thenReturn(100);
+        when(limitConfig.tolerance()).thenReturn(1.5);
+        when(limitConfig.smoothing()).thenReturn(0.2);
+
+        var limiter = new AdaptiveProviderLimiter();
+        limiter.dispatchConfig = dispatchConfig;
+        limiter.meterRegistry = new SimpleMeterRegistry();
+        return limiter;
+    }
+
+    private static double gauge(AdaptiveProviderLimiter limiter, String suffix) {
+        return limiter.meterRegistry.get(AdaptiveProviderLimiter.METRIC_NAME + suffix).tag("provider", "p-1").gauge()
+                .value();
+    }
+
+    private static Provider provider() {
+        var provider = new Provider();
+        provider.setId("p-1");
+        provider.setName("provider");
+        return provider;
+    }
+
+    private static String sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "ok";
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (BrokenBarrierException | TimeoutException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class ChatRequestCoalescerTest extends AbstractTest {
+
+    @Test
+    void execute_sharesOneCall_betweenConcurrentIdenticalRequests() throws Exception {
+        var coalescer = createCoalescer(true);
+        var calls = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var response = ChatResponse.builder().aiMessage(AiMessage.from("answer")).build();
+
+        List<CompletableFuture<ChatResponse>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> coalescer.execute(key("p-1", "hello"), () -> {
+                calls.incrementAndGet();
+                await(release);
+                return response;
+            }), Thread::startVirtualThread));
+        }
+        while (coalescer.meterRegistry.get(ChatRequestCoalescer.METRIC_NAME).counter().count() < 4) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        for (var result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(response);
+        }
+        assertThat(calls).hasValue(1);
+        assertThat(coalescer.meterRegistry.get(ChatRequestCoalescer.METRIC_NAME + ".in.flight").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    void execute_callsModel_forDifferentOrSequentialRequests() {
+        var coalescer = createCoalescer(true);
+        var calls = new AtomicInteger();
+
+        coalescer.execute(key("p-1", "hello"), () -> response(calls));
+        coalescer.execute(key("p-1", "hello"), () -> response(calls));
+        coalescer.execute(key("p-1", "bye"), () -> response(calls));
+        coalescer.execute(key("p-2", "hello"), () -> response(calls));
+
+        assertThat(calls).hasValue(4);
+    }
+
+    @Test
+    void execute_doesNotShareCall_withoutProviderId() throws Exception {
+        var coalescer = createCoalescer(true);
+        var calls = new AtomicInteger();
+        var started = new CountDownLatch(2);
+        var release = new CountDownLatch(1);
+
+        List<CompletableFuture<ChatResponse>> results = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> coalescer.execute(key(null, "hello"), () -> {
+                started.countDown();
+                await(release);
+                return response(calls);
+            }), Thread::startVirtualThread));
+        }
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+
+        for (var result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(calls).hasValue(2);
+        assertThat(coalescer.meterRegistry.get(ChatRequestCoalescer.METRIC_NAME).counter().count()).isZero();
+    }
+
+    @Test
+    void execute_passesFailureToWaitingRequests() throws Exception {
+        var coalescer = createCoalescer(true);
+        var release = new CountDownLatch(1);
+
+        var leader = CompletableFuture.supplyAsync(() -> coalescer.execute(key("p-1", "hello"), () -> {
+            await(release);
+            throw new IllegalStateException("boom");
+        }), Thread::startVirtualThread);
+        while (coalescer.meterRegistry.get(ChatRequestCoalescer.METRIC_NAME + ".in.flight").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+        var follower = CompletableFuture.supplyAsync(
+                () -> coalescer.execute(key("p-1", "hello"), () -> response(new AtomicInteger())),
+                Thread::startVirtualThread);
+        while (coalescer.meterRegistry.get(ChatRequestCoalescer.METRIC_NAME).counter().count() < 1) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("boom");
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("boom");
+    }
+
+    static ChatRequestCoalescer createCoalescer(boolean enabled) {
+        DispatchConfig dispatchConfig = mock(DispatchConfig.class);
+        DispatchConfig.ProviderConfig providerConfig = mock(DispatchConfig.ProviderConfig.class);
+        when(dispatchConfig.providerConfig()).thenReturn(providerConfig);
+        when(providerConfig.coalesceRequests()).thenReturn(enabled);
+
+        var coalescer = new ChatRequestCoalescer();
+        coalescer.dispatchConfig = dispatchConfig;
+        coalescer.meterRegistry = new SimpleMeterRegistry();
+        coalescer.init();
+        return coalescer;
+    }
+
+    private static ChatRequestCoalescer.Key key(String providerId, String message) {
+        return new ChatRequestCoalescer.Key(providerId, 0,
+                ChatRequest.builder().messages(List.of(UserMessage.from(message))).build());
+    }
+
+    private static ChatResponse response(AtomicInteger calls) {
+        calls.incrementAndGet();
+        return ChatResponse.builder().aiMessage(AiMessage.from("answer")).build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
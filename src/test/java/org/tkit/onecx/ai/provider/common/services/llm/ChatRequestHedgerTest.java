@@ -0,0 +1,173 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.Configuration;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class ChatRequestHedgerTest extends AbstractTest {
+
+    @Test
+    void execute_hedgeWins_whenCallIsSlow() {
+        var hedger = createHedger(1);
+        var configuration = configuration(true);
+        warmUp(hedger, configuration);
+        var cancelled = new CountDownLatch(1);
+
+        String result = hedger.execute(configuration, () -> {
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                cancelled.countDown();
+            }
+            return "slow";
+        }, () -> "hedge");
+
+        assertThat(result).isEqualTo("hedge");
+        assertThat(await(cancelled)).isTrue();
+        assertThat(hedger.meterRegistry.get(ChatRequestHedger.METRIC_NAME).tag("result", "win").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void execute_awaitsOtherCall_whenFirstAnswerFails() {
+        var hedger = createHedger(1);
+        var configuration = configuration(true);
+        warmUp(hedger, configuration);
+        var hedged = new CountDownLatch(1);
+
+        String result = hedger.execute(configuration, () -> {
+            await(hedged);
+            return "primary";
+        }, () -> {
+            hedged.countDown();
+            return null;
+        });
+
+        assertThat(result).isEqualTo("primary");
+        assertThat(hedger.meterRegistry.get(ChatRequestHedger.METRIC_NAME).tag("result", "loss").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void execute_throttlesHedges() {
+        var hedger = createHedger(0.01);
+        var configuration = configuration(true);
+        warmUp(hedger, configuration);
+        var hedges = new AtomicInteger();
+
+        String result = hedger.execute(configuration, () -> sleep("primary"), () -> {
+            hedges.incrementAndGet();
+            return "hedge";
+        });
+
+        assertThat(result).isEqualTo("primary");
+        assertThat(hedges).hasValue(0);
+        assertThat(hedger.meterRegistry.get(ChatRequestHedger.METRIC_NAME + ".throttled").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void execute_noHedge_withoutLatencyCriticalConfiguration() {
+        var hedger = createHedger(1);
+        var configuration = configuration(false);
+        warmUp(hedger, configuration);
+        var hedges = new AtomicInteger();
+
+        String result = hedger.execute(configuration, () -> sleep("primary"), () -> {
+            hedges.incrementAndGet();
+            return "hedge";
+        });
+
+        assertThat(result).isEqualTo("primary");
+        assertThat(hedges).hasValue(0);
+        assertThat(hedger.meterRegistry.find(ChatRequestHedger.METRIC_NAME).counter()).isNull();
+    }
+
+    @Test
+    void onEntityChange_forgetsLatenciesOfChangedConfiguration() {
+        var hedger = createHedger(1);
+        var configuration = configuration(true);
+        warmUp(hedger, configuration);
+        var hedges = new AtomicInteger();
+
+        hedger.onEntityChange(new EntityChangeEvent("origin", "tenant", EntityType.CONFIGURATION, "configuration-1"));
+        hedger.execute(configuration, () -> sleep("primary"), () -> {
+            hedges.incrementAndGet();
+            return "hedge";
+        });
+
+        assertThat(hedges).hasValue(0);
+    }
+
+    static ChatRequestHedger createHedger(double maxRate) {
+        DispatchConfig dispatchConfig = mock(DispatchConfig.class);
+        DispatchConfig.HedgeConfig hedgeConfig = mock(DispatchConfig.HedgeConfig.class);
+        when(hedgeConfig.enabled()).thenReturn(true);
+        when(hedgeConfig.percentile()).thenReturn(0.95);
+        when(hedgeConfig.minDelay()).thenReturn(10L);
+        when(hedgeConfig.maxRate()).thenReturn(maxRate);
+        when(dispatchConfig.hedgeConfig()).thenReturn(hedgeConfig);
+
+        ManagedExecutor executor = mock(ManagedExecutor.class);
+        doAnswer(invocation -> Thread.ofVirtual().start(invocation.<Runnable> getArgument(0)))
+                .when(executor).execute(any());
+
+        var hedger = new ChatRequestHedger();
+        hedger.dispatchConfig = dispatchConfig;
+        hedger.meterRegistry = new SimpleMeterRegistry();
+        hedger.executor = executor;
+        return hedger;
+    }
+
+    static void warmUp(ChatRequestHedger hedger, Configuration configuration) {
+        Supplier<String> fast = () -> "fast";
+        for (int i = 0; i < 20; i++) {
+            hedger.execute(configuration, fast, fast);
+        }
+    }
+
+    private static Configuration configuration(boolean latencyCritical) {
+        var configuration = new Configuration();
+        configuration.setId("configuration-1");
+        configuration.setName("chat");
+        configuration.setLatencyCritical(latencyCritical);
+        return configuration;
+    }
+
+    private static String sleep(String result) {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.ws.rs.core.Response;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.common.services.tenant.TenantContext;
+import org.tkit.onecx.ai.provider.domain.models.Configuration;
+import org.tkit.onecx.ai.provider.domain.models.MCPServer;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+import org.tkit.onecx.ai.provider.domain.models.enums.ResponseCacheMode;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatMessageDTOV1;
+import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatRequestDTOV1;
+import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ConversationDTOV1;
+import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.RequestContextDTOV1;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class ChatResponseCacheTest extends AbstractTest {
+
+    @Test
+    void get_returnsCachedResponse_forSameConversation() {
+        var cache = createCache(1024 * 1024);
+        var configuration = configuration(ResponseCacheMode.EXACT);
+
+        try (MockedStatic<TenantContext> tenant = tenant("tenant-a")) {
+            var request = chatRequest("What are the  opening hours?");
+            var key = cache.key(configuration, request);
+            assertThat(cache.get(key, request)).isNull();
+
+            cache.put(key, request, Response.ok(message("We are open from 8 to 18.")).build());
+
+            var same = chatRequest(" What are the opening\nhours? ");
+            var cached = cache.get(cache.key(configuration, same), same);
+            assertThat(cached).isNotNull();
+            assertThat(cached.tier()).isEqualTo(ResponseCacheMode.EXACT);
+            assertThat(cached.message().getMessage()).isEqualTo("We are open from 8 to 18.");
+            assertThat(cached.message().getType()).isEqualTo(ChatMessageDTOV1.TypeEnum.ASSISTANT);
+        }
+    }
+
+    @Test
+    void key_differs_forTenantVersionSystemMessageAndHistory() {
+        var cache = createCache(1024 * 1024);
+        var configuration = configuration(ResponseCacheMode.EXACT);
+        var request = chatRequest("hello");
+
+        ChatResponseCache.ResponseKey key;
+        try (MockedStatic<TenantContext> tenant = tenant("tenant-a")) {
+            key = cache.key(configuration, request);
+        }
+        try (MockedStatic<TenantContext> tenant = tenant("tenant-b")) {
+            assertThat(cache.key(configuration, request)).isNotEqualTo(key);
+        }
+        try (MockedStatic<TenantContext> tenant = tenant("tenant-a")) {
+            var withHistory = chatRequest("hello");
+            var conversation = new ConversationDTOV1();
+            conversation.setHistory(List.of(message("earlier answer")));
+            withHistory.setConversation(conversation);
+            assertThat(cache.key(configuration, withHistory)).isNotEqualTo(key);
+
+            configuration.setLlmSystemMessage("Answer briefly");
+            assertThat(cache.key(configuration, request)).isNotEqualTo(key);
+
+            configuration.setModificationCount(1);
+            configuration.setLlmSystemMessage(null);
+            assertThat(cache.key(configuration, request)).isNotEqualTo(key);
+        }
+    }
+
+    @Test
+    void key_isNull_whenCachingNotApplicable() {
+        var cache = createCache(1024 * 1024);
+
+        assertThat(cache.key(configuration(ResponseCacheMode.EXACT), chatRequest("hello"))).isNull();
+
+        try (MockedStatic<TenantContext> tenant = tenant("tenant-a")) {
+            assertThat(cache.key(configuration(null), chatRequest("hello"))).isNull();
+            assertThat(cache.key(configuration(ResponseCacheMode.DISABLED), chatRequest("hello"))).isNull();
+            assertThat(cache.key(configuration(ResponseCacheMode.EXACT), new ChatRequestDTOV1())).isNull();
+
+            var withTools = configuration(ResponseCacheMode.EXACT);
+            withTools.setMcpServers(Set.of(new MCPServer()));
+            assertThat(cache.key(withTools, chatRequest("hello"))).isNull();
+        }
+    }
+
+    @Test
+    void put_ignoresFailedResponses() {
+        var cache = createCache(1024 * 1024);
+
+        try (MockedStatic<TenantContext> tenant = tenant("tenant-a")) {
+            var request = chatRequest("hello");
+            var key = cache.key(configuration(ResponseCacheMode.EXACT), request);
+            cache.put(key, request, Response.status(Response.Status.BAD_REQUEST).entity("failed").build());
+            cache.put(key, request, Response.ok(new ChatMessageDTOV1()).build());
+
+            assertThat(cache.get(key, request)).isNull();
+        }
+    }
+
+    @Test
+    void put_evictsEntries_beyondMaximumBytes() {
+        var cache = createCache(4096);
+
+        try (MockedStatic<TenantContext> tenant = tenant("tenant-a")) {
+            var configuration = configuration(ResponseCacheMode.EXACT);
+            for (int i = 0; i < 20; i++) {
+                var request = chatRequest("question " + i);
+                cache.put(cache.key(configuration, request), request, Response.ok(message("x".repeat(500))).build());
+            }
+
+            assertThat(cache.meterRegistry.get(ChatResponseCache.CACHE_NAME + ".bytes").gauge().value())
+                    .isLessThanOrEqualTo(4096);
+        }
+    }
+
+    @Test
+    void onEntityChange_removesResponsesOfConfiguration() {
+        var cache = createCache(1024 * 1024);
+        var configuration = configuration(ResponseCacheMode.SEMANTIC);
+
+        try (MockedStatic<TenantContext> tenant = tenant("tenant-a")) {
+            var request = chatRequest("What are the opening hours of the shop?");
+            var similar = chatRequest("What are the opening hours of your shop");
+            var key = cache.key(configuration, request);
+            cache.put(key, request, Response.ok(message("hi")).build());
+
+            cache.onEntityChange(new EntityChangeEvent("origin", "tenant-a", EntityType.PROVIDER, configuration.getId()));
+            assertThat(cache.get(key, request)).isNotNull();
+
+            cache.onEntityChange(new EntityChangeEvent("origin", "tenant-a", EntityType.CONFIGURATION, configuration.getId()));
+            assertThat(cache.get(key, request)).isNull();
+            assertThat(cache.get(cache.key(configuration, similar), similar)).isNull();
+        }
+    }
+
+    @Test
+    void get_returnsAnswerOfSimilarQuestion_inSemanticMode() {
+        var cache = createCache(1024 * 1024);
+        var configuration = configuration(ResponseCacheMode.SEMANTIC);
+
+        try (MockedStatic<TenantContext> tenant = tenant("tenant-a")) {
+            var request = chatRequest("What are the opening hours of the shop?");
+            cache.put(cache.key(configuration, request), request, Response.ok(message("From 8 to 18.")).build());
+
+            var similar = chatRequest("what are the opening hours of your shop");
+            var cached = cache.get(cache.key(configuration, similar), similar);
+            assertThat(cached).isNotNull();
+            assertThat(cached.tier()).isEqualTo(ResponseCacheMode.SEMANTIC);
+            assertThat(cached.message().getMessage()).isEqualTo("From 8 to 18.");
+
+            var different = chatRequest("How do I reset my password?");
+            assertThat(cache.get(cache.key(configuration, different), different)).isNull();
+
+            assertThat(cache.meterRegistry.get(ChatResponseCache.SEMANTIC_NAME + ".hits").counter().count()).isEqualTo(1);
+            assertThat(cache.meterRegistry.get(ChatResponseCache.SEMANTIC_NAME + ".misses").counter().count())
+                    .isEqualTo(1);
+            assertThat(cache.meterRegistry.get(ChatResponseCache.SEMANTIC_NAME + ".bytes").gauge().value()).isPositive();
+        }
+    }
+
+    @Test
+    void get_ignoresSimilarQuestions_withHistoryOrInExactMode() {
+        var cache = createCache(1024 * 1024);
+
+        try (MockedStatic<TenantContext> tenant = tenant("tenant-a")) {
+            var semantic = configuration(ResponseCacheMode.SEMANTIC);
+            var request = chatRequest("What are the opening hours of the shop?");
+            cache.put(cache.key(semantic, request), request, Response.ok(message("From 8 to 18.")).build());
+
+            var followUp = chatRequest("what are the opening hours of your shop");
+            var conversation = new ConversationDTOV1();
+            conversation.setHistory(List.of(message("earlier answer")));
+            followUp.setConversation(conversation);
+            assertThat(cache.get(cache.key(semantic, followUp), followUp)).isNull();
+
+            var exact = configuration(ResponseCacheMode.EXACT);
+            cache.put(cache.key(exact, request), request, Response.ok(message("From 8 to 18.")).build());
+            var similar = chatRequest("what are the opening hours of your shop");
+            assertThat(cache.get(cache.key(exact, similar), similar)).isNull();
+        }
+    }
+
+    @Test
+    void get_refresh_bypassesCacheAndReplacesSimilarAnswer() {
+        var cache = createCache(1024 * 1024);
+        var configuration = configuration(ResponseCacheMode.SEMANTIC);
+
+        try (MockedStatic<TenantContext> tenant = tenant("tenant-a")) {
+            var request = chatRequest("What are the opening hours of the shop?");
+            cache.put(cache.key(configuration, request), request, Response.ok(message("From 8 to 18.")).build());
+
+            var refresh = chatRequest("what are the opening hours of your shop");
+            var context = new RequestContextDTOV1();
+            context.setAiContext(Map.of(ChatResponseCache.CONTEXT_KEY, ChatResponseCache.CONTEXT_REFRESH));
+            refresh.setRequestContext(context);
+            var refreshKey = cache.key(configuration, refresh);
+            assertThat(cache.get(refreshKey, refresh)).isNull();
+            cache.put(refreshKey, refresh, Response.ok(message("From 9 to 17 on Saturdays.")).build());
+
+            var cached = cache.get(cache.key(configuration, request), request);
+            assertThat(cached.message().getMessage()).isEqualTo("From 8 to 18.");
+            var similar = chatRequest("What are the opening hours of your shop?");
+            cached = cache.get(cache.key(configuration, similar), similar);
+            assertThat(cached.tier()).isEqualTo(ResponseCacheMode.SEMANTIC);
+            assertThat(cached.message().getMessage()).isEqualTo("From 9 to 17 on Saturdays.");
+            assertThat(cache.meterRegistry.get(ChatResponseCache.CACHE_NAME + ".overrides").counter().count())
+                    .isEqualTo(1);
+        }
+    }
+
+    static ChatResponseCache createCache(long maxSizeBytes) {
+        DispatchConfig dispatchConfig = mock(DispatchConfig.class);
+        DispatchConfig.ResponseCacheConfig responseCacheConfig = mock(DispatchConfig.ResponseCacheConfig.class);
+        when(dispatchConfig.responseCacheConfig()).thenReturn(responseCacheConfig);
+        when(responseCacheConfig.maxSizeBytes()).thenReturn(maxSizeBytes);
+        when(responseCacheConfig.ttl()).thenReturn(60L);
+        when(responseCacheConfig.semanticThreshold()).thenReturn(0.8);
+        when(responseCacheConfig.semanticMaxEntries()).thenReturn(100);
+        when(responseCacheConfig.semanticMaxIndexes()).thenReturn(10);
+
+        var cache = new ChatResponseCache();
+        cache.dispatchConfig = dispatchConfig;
+        cache.meterRegistry = new SimpleMeterRegistry();
+        cache.init();
+        return cache;
+    }
+
+    private static MockedStatic<TenantContext> tenant(String tenantId) {
+        MockedStatic<TenantContext> tenant = mockStatic(TenantContext.class);
+        tenant.when(TenantContext::currentTenantId).thenReturn(tenantId);
+        return tenant;
+    }
+
+    private static Configuration configuration(ResponseCacheMode mode) {
+        var provider = new Provider();
+        provider.setId("p-1");
+        var configuration = new Configuration();
+        configuration.setId("c-1");
+        configuration.setProvider(provider);
+        configuration.setResponseCache(mode);
+        return configuration;
+    }
+
+    private static ChatRequestDTOV1 chatRequest(String text) {
+        var message = new ChatMessageDTOV1();
+        message.setType(ChatMessageDTOV1.TypeEnum.USER);
+        message.setMessage(text);
+        var request = new ChatRequestDTOV1();
+        request.setChatMessage(message);
+        return request;
+    }
+
+    private static ChatMessageDTOV1 message(String text) {
+        var message = new ChatMessageDTOV1();
+        message.setType(ChatMessageDTOV1.TypeEnum.ASSISTANT);
+        message.setMessage(text);
+        return message;
+    }
+}
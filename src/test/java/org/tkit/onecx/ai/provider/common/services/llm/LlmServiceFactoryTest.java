@@ -2,19 +2,27 @@ package org.tkit.onecx.ai.provider.common.services.llm;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import org.junit.jupiter.api.Test;
 import org.tkit.onecx.ai.provider.common.services.configuration.ConfigurationService;
 import org.tkit.onecx.ai.provider.domain.models.Configuration;
 import org.tkit.onecx.ai.provider.domain.models.Provider;
 import org.tkit.onecx.ai.provider.domain.models.enums.ProviderType;
+import org.tkit.onecx.ai.provider.domain.models.enums.ResponseCacheMode;
 import org.tkit.onecx.ai.provider.test.AbstractTest;
 
+import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatMessageDTOV1;
 import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatRequestDTOV1;
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.junit.QuarkusTest;
@@ -31,6 +39,12 @@ class LlmServiceFactoryTest extends AbstractTest {
     @InjectMock
     ConfigurationService configurationService;
 
+    @InjectMock
+    ChatResponseCache responseCache;
+
+    @InjectMock
+    TenantDispatchScheduler scheduler;
+
     // ── getProviderHealthStatus ───────────────────────────────────────────────
 
     @Test
@@ -84,6 +98,111 @@ class LlmServiceFactoryTest extends AbstractTest {
         verify(ollamaLlmService).chat(configuration, request);
     }
 
+    @Test
+    void chat_cachedResponse_isReturnedWithoutCallingService() {
+        var configuration = new Configuration();
+        configuration.setProvider(buildProvider());
+        var key = new ChatResponseCache.ResponseKey("default", "c-1", 0, "p-1", 0, null,
+                ResponseCacheMode.EXACT, "hash");
+        var cached = new ChatMessageDTOV1();
+        cached.setMessage("cached");
+
+        when(configurationService.findConfigurationsByRequestContext(any())).thenReturn(configuration);
+        when(responseCache.key(any(), any())).thenReturn(key);
+        when(responseCache.get(any(), any()))
+                .thenReturn(new ChatResponseCache.CachedResponse(cached, ResponseCacheMode.SEMANTIC));
+
+        var response = llmServiceFactory.chat(new ChatRequestDTOV1());
+
+        assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+        assertThat(response.getEntity()).isSameAs(cached);
+        assertThat(response.getHeaderString(LlmServiceFactory.RESPONSE_CACHE_HEADER)).isEqualTo("SEMANTIC");
+        verify(ollamaLlmService, never()).chat(any(), any());
+    }
+
+    @Test
+    void chat_cacheMiss_callsServiceAndCachesResponse() {
+        var configuration = new Configuration();
+        configuration.setProvider(buildProvider());
+        var key = new ChatResponseCache.ResponseKey("default", "c-1", 0, "p-1", 0, null,
+                ResponseCacheMode.EXACT, "hash");
+        var reply = Response.ok("reply").build();
+
+        when(configurationService.findConfigurationsByRequestContext(any())).thenReturn(configuration);
+        when(responseCache.key(any(), any())).thenReturn(key);
+        when(ollamaLlmService.chat(any(), any())).thenReturn(reply);
+
+        var request = new ChatRequestDTOV1();
+        var response = llmServiceFactory.chat(request);
+
+        assertThat(response).isSameAs(reply);
+        verify(responseCache).put(key, request, reply);
+    }
+
+    @Test
+    void chat_schedulerRejects_returnsTooManyRequests() {
+        var configuration = new Configuration();
+        configuration.setProvider(buildProvider());
+
+        when(configurationService.findConfigurationsByRequestContext(any())).thenReturn(configuration);
+        when(scheduler.acquire(any())).thenThrow(new ProviderOverloadedException("Too many chat requests", 5));
+
+        var response = llmServiceFactory.chat(new ChatRequestDTOV1());
+
+        assertThat(response.getStatus()).isEqualTo(Response.Status.TOO_MANY_REQUESTS.getStatusCode());
+        assertThat(response.getHeaderString("Retry-After")).isEqualTo("5");
+        verify(ollamaLlmService, never()).chat(any(), any());
+    }
+
+    // ── chatStream ───────────────────────────────────────────────────────────
+
+    @Test
+    void chatStream_noConfigurationFound_returnsNotFound() {
+        when(configurationService.findConfigurationsByRequestContext(any())).thenReturn(null);
+
+        var response = llmServiceFactory.chatStream(new ChatRequestDTOV1());
+
+        assertThat(response.getStatus()).isEqualTo(Response.Status.NOT_FOUND.getStatusCode());
+    }
+
+    @Test
+    void chatStream_configurationFound_routesToOllamaService() {
+        var configuration = new Configuration();
+        configuration.setProvider(buildProvider());
+
+        when(configurationService.findConfigurationsByRequestContext(any())).thenReturn(configuration);
+        when(ollamaLlmService.chatStream(any(), any())).thenReturn(Response.ok().build());
+
+        var request = new ChatRequestDTOV1();
+        var response = llmServiceFactory.chatStream(request);
+
+        assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+        verify(ollamaLlmService).chatStream(configuration, request);
+    }
+
+    @Test
+    void chatStream_streamsWithinSlot_andWritesErrorWhenRejected() throws Exception {
+        var configuration = new Configuration();
+        configuration.setProvider(buildProvider());
+        StreamingOutput output = out -> out.write("answer".getBytes(StandardCharsets.UTF_8));
+        TenantDispatchScheduler.Slot slot = mock(TenantDispatchScheduler.Slot.class);
+
+        when(configurationService.findConfigurationsByRequestContext(any())).thenReturn(configuration);
+        when(ollamaLlmService.chatStream(any(), any())).thenReturn(Response.ok(output).build());
+        when(scheduler.acquire(any())).thenReturn(slot)
+                .thenThrow(new ProviderOverloadedException("Too many chat requests", 5));
+
+        var out = new ByteArrayOutputStream();
+        ((StreamingOutput) llmServiceFactory.chatStream(new ChatRequestDTOV1()).getEntity()).write(out);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("answer");
+        verify(slot).close();
+
+        out = new ByteArrayOutputStream();
+        ((StreamingOutput) llmServiceFactory.chatStream(new ChatRequestDTOV1()).getEntity()).write(out);
+        assertThat(out.toString(StandardCharsets.UTF_8)).contains("error").contains("Too many chat requests")
+                .doesNotContain("answer");
+    }
+
     // ── helpers ───────────────────────────────────────────────────────────────
 
     private Provider buildProvider() {
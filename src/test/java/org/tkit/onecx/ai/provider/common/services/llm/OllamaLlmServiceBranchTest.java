@@ -8,6 +8,9 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 
 import jakarta.ws.rs.core.Response;
@@ -21,6 +24,7 @@ import org.tkit.onecx.ai.provider.domain.models.Provider;
 import org.tkit.onecx.ai.provider.domain.models.enums.ProviderType;
 import org.tkit.onecx.ai.provider.test.AbstractTest;
 
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
@@ -31,6 +35,7 @@ import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
 import dev.langchain4j.model.chat.response.ChatResponse;
 import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatMessageDTOV1;
 import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatRequestDTOV1;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.quarkus.test.junit.QuarkusTest;
 
 @QuarkusTest
@@ -54,6 +59,28 @@ class OllamaLlmServiceBranchTest extends AbstractTest {
         }
     }
 
+    @Test
+    void chat_withMaxTools_sendsRelevantTools_andFallsBackToAllTools_forUnknownTool() {
+        var service = new TestableOllamaLlmService(dispatchConfig(3), registryWithTools(3));
+        var configuration = configuration();
+        configuration.setMaxTools(1);
+        ChatResponse unknownToolResponse = mock(ChatResponse.class);
+        when(unknownToolResponse.aiMessage()).thenReturn(AiMessage.from(
+                ToolExecutionRequest.builder().id("1").name("tool-2").arguments("{}").build()));
+        service.modelResponses.add(unknownToolResponse);
+        service.modelResponses.add(chatResponse("final"));
+        service.toolExecutionFlags.add(false);
+
+        try (Response response = service.chat(configuration, chatRequest("please use test tool 1"))) {
+            assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+            assertThat(((ChatMessageDTOV1) response.getEntity()).getMessage()).isEqualTo("final");
+            assertThat(service.capturedRequests).hasSize(2);
+            assertThat(service.capturedRequests.get(0).toolSpecifications()).extracting(ToolSpecification::name)
+                    .containsExactly("tool-1");
+            assertThat(service.capturedRequests.get(1).toolSpecifications()).hasSize(3);
+        }
+    }
+
     @Test
     void chat_followUpResponseNull_returnsBadRequest() {
         var service = new TestableOllamaLlmService(dispatchConfig(3), registryWithTools(1));
@@ -94,6 +121,80 @@ class OllamaLlmServiceBranchTest extends AbstractTest {
         }
     }
 
+    @Test
+    void chat_providerOverloaded_returnsTooManyRequests() {
+        var service = new TestableOllamaLlmService(dispatchConfig(3), McpToolRegistry.empty());
+        service.modelResponses.add(new ProviderOverloadedException("Provider 'mistral' is overloaded", 5));
+
+        try (Response response = service.chat(configuration(), chatRequest("hello"))) {
+            assertThat(response.getStatus()).isEqualTo(Response.Status.TOO_MANY_REQUESTS.getStatusCode());
+            assertThat(response.getHeaderString("Retry-After")).isEqualTo("5");
+        }
+    }
+
+    @Test
+    void chat_circuitOpen_returnsServiceUnavailable() {
+        var service = new TestableOllamaLlmService(dispatchConfig(3), McpToolRegistry.empty());
+        service.modelResponses.add(new ProviderUnavailableException("Provider 'mistral' is unavailable", 30));
+
+        try (Response response = service.chat(configuration(), chatRequest("hello"))) {
+            assertThat(response.getStatus()).isEqualTo(Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+            assertThat(response.getHeaderString("Retry-After")).isEqualTo("30");
+        }
+    }
+
+    @Test
+    void chat_primaryProviderWithoutResponse_failsOverToFallbackProvider() {
+        var service = new TestableOllamaLlmService(dispatchConfig(3), McpToolRegistry.empty());
+        service.modelResponses.add(null);
+        service.modelResponses.add(chatResponse("fallback"));
+        var configuration = configuration();
+        configuration.setFallbackProviders(List.of(provider()));
+
+        try (Response response = service.chat(configuration, chatRequest("hello"))) {
+            assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+            assertThat(((ChatMessageDTOV1) response.getEntity()).getMessage()).isEqualTo("fallback");
+        }
+        assertThat(service.meterRegistry.get(ProviderFailover.TIER_METRIC).tag("tier", "1").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void chat_latencyCritical_hedgesSlowReplicaWithOtherReplica() {
+        Set<ChatModel> called = ConcurrentHashMap.newKeySet();
+        var service = new TestableOllamaLlmService(dispatchConfig(3), McpToolRegistry.empty()) {
+            @Override
+            protected ChatResponse modelChatRequest(ChatModel chatModel, ChatRequest chatRequest) {
+                if (called.isEmpty() && called.add(chatModel)) {
+                    // the first endpoint hangs until the hedge wins and cancels it
+                    try {
+                        Thread.sleep(TimeUnit.SECONDS.toMillis(5));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                }
+                called.add(chatModel);
+                return chatResponse("fast");
+            }
+        };
+        service.coalescer = ChatRequestCoalescerTest.createCoalescer(true);
+        var configuration = configuration();
+        configuration.setId("configuration-1");
+        configuration.setLatencyCritical(true);
+        configuration.getProvider().setId("provider-1");
+        configuration.getProvider().setReplicaUrls(Set.of("http://localhost:11435"));
+        ChatRequestHedgerTest.warmUp(service.hedger, configuration);
+
+        try (Response response = service.chat(configuration, chatRequest("hello"))) {
+            assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+            assertThat(((ChatMessageDTOV1) response.getEntity()).getMessage()).isEqualTo("fast");
+        }
+        assertThat(called).hasSize(2);
+        assertThat(service.hedger.meterRegistry.get(ChatRequestHedger.METRIC_NAME).tag("result", "win").counter()
+                .count()).isEqualTo(1);
+    }
+
     @Test
     void getHealthStatus_whenModelChatThrows_returnsUnhealthy() {
         var service = new TestableOllamaLlmService(dispatchConfig(3), McpToolRegistry.empty());
@@ -156,6 +257,7 @@ class OllamaLlmServiceBranchTest extends AbstractTest {
         DispatchConfig.MCPConfig mcpConfig = mock(DispatchConfig.MCPConfig.class);
 
         when(providerConfig.timeout()).thenReturn(1L);
+        when(providerConfig.failoverDeadline()).thenReturn(120L);
         when(providerConfig.logRequests()).thenReturn(false);
         when(providerConfig.logResponse()).thenReturn(false);
 
@@ -194,6 +296,14 @@ class OllamaLlmServiceBranchTest extends AbstractTest {
 
         TestableOllamaLlmService(DispatchConfig dispatchConfig, McpToolRegistry toolRegistry) {
             this.dispatchConfig = dispatchConfig;
+            this.modelRegistry = OllamaModelRegistryTest.createRegistry();
+            this.coalescer = ChatRequestCoalescerTest.createCoalescer(false);
+            this.bulkhead = ProviderBulkheadTest.createBulkhead(0);
+            this.adaptiveLimiter = AdaptiveProviderLimiterTest.createLimiter(false, 1);
+            this.replicaRouter = ProviderReplicaRouterTest.createRouter();
+            this.hedger = ChatRequestHedgerTest.createHedger(0.1);
+            this.circuitBreaker = ProviderCircuitBreakerTest.createBreaker(0);
+            this.meterRegistry = new SimpleMeterRegistry();
             this.toolRegistry = toolRegistry;
         }
 
@@ -217,7 +327,7 @@ class OllamaLlmServiceBranchTest extends AbstractTest {
         }
 
         @Override
-        protected ChatResponse modelChatRequestWithRetries(ChatModel chatModel, ChatRequest chatRequest) {
+        protected ChatResponse modelChatRequest(ChatModel chatModel, ChatRequest chatRequest) {
             capturedRequests.add(chatRequest);
             Object next = modelResponses.remove();
             if (next instanceof RuntimeException runtimeException) {
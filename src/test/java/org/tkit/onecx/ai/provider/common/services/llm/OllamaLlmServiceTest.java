@@ -4,10 +4,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockserver.model.HttpRequest.request;
 import static org.mockserver.model.HttpResponse.response;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Set;
 
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.junit.jupiter.api.AfterEach;
@@ -20,6 +24,7 @@ import org.tkit.onecx.ai.provider.domain.models.enums.ProviderType;
 import org.tkit.onecx.ai.provider.test.AbstractTest;
 
 import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.*;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkiverse.mockserver.test.InjectMockServerClient;
 import io.quarkus.test.junit.QuarkusTest;
 
@@ -41,6 +46,18 @@ class OllamaLlmServiceTest extends AbstractTest {
              "done":true,"done_reason":"stop"}
             """;
 
+    private static final String OLLAMA_STREAM_BODY = """
+            {"model":"mistral","created_at":"2026-01-01T00:00:00Z","message":{"role":"assistant","content":"po"},"done":false}
+            {"model":"mistral","created_at":"2026-01-01T00:00:00Z","message":{"role":"assistant","content":"ng"},"done":false}
+            {"model":"mistral","created_at":"2026-01-01T00:00:00Z","message":{"role":"assistant","content":""},"done":true,"done_reason":"stop"}
+            """;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    ProviderCircuitBreaker circuitBreaker;
+
     @AfterEach
     void resetMockserver() {
         try {
@@ -70,6 +87,20 @@ class OllamaLlmServiceTest extends AbstractTest {
         assertThat(ollamaLlmService.getHealthStatus(buildProvider("http://127.0.0.1:19999"))).isEqualTo("UNHEALTHY");
     }
 
+    @Test
+    void health_retriesOnOtherReplica_whenReplicaIsUnreachable() {
+        stubOllamaChat(200, OLLAMA_OK_BODY);
+        var provider = buildProvider("http://127.0.0.1:19999");
+        provider.setId("provider-with-unreachable-replica");
+        provider.setReplicaUrls(Set.of(mockServerEndpoint));
+
+        // the unreachable endpoint has no latency sample, the second check starts there at the latest
+        for (int i = 0; i < 2; i++) {
+            assertThat(ollamaLlmService.getHealthStatus(provider)).isEqualTo("HEALTHY");
+        }
+        assertThat(circuitBreaker.state(provider)).isEqualTo(ProviderCircuitBreaker.State.CLOSED);
+    }
+
     @Test
     void health_providerUrlBlank_returnsUnhealthy() {
         assertThat(ollamaLlmService.getHealthStatus(buildProvider(""))).isEqualTo("UNHEALTHY");
@@ -209,8 +240,45 @@ class OllamaLlmServiceTest extends AbstractTest {
         assertThat(response.getStatus()).isEqualTo(Response.Status.BAD_REQUEST.getStatusCode());
     }
 
+    // ── chatStream ───────────────────────────────────────────────────────────
+
+    @Test
+    void chatStream_simpleMessage_streamsTokensAndMessage() throws Exception {
+        mockServerClient.when(request().withMethod("POST").withPath("/api/chat")).withId("MOCK")
+                .respond(response().withStatusCode(200).withContentType(MediaType.parse("application/x-ndjson"))
+                        .withBody(OLLAMA_STREAM_BODY));
+        var ttftCount = meterRegistry.timer(OllamaLlmService.TTFT_METRIC, "affinity", "false").count();
+
+        var response = ollamaLlmService.chatStream(buildConfiguration(mockServerEndpoint), buildChatRequest("hello", null));
+
+        assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+        assertThat(response.getMediaType()).isEqualTo(jakarta.ws.rs.core.MediaType.SERVER_SENT_EVENTS_TYPE);
+        var events = writeStream(response);
+        assertThat(events.split("\n\n")).hasSize(3);
+        assertThat(events.split("\n\n")[0]).startsWith("event: token\ndata: ").contains("\"message\":\"po\"");
+        assertThat(events.split("\n\n")[1]).startsWith("event: token\ndata: ").contains("\"message\":\"ng\"");
+        assertThat(events.split("\n\n")[2]).startsWith("event: message\ndata: ").contains("\"message\":\"pong\"");
+        assertThat(meterRegistry.timer(OllamaLlmService.TTFT_METRIC, "affinity", "false").count())
+                .isEqualTo(ttftCount + 1);
+    }
+
+    @Test
+    void chatStream_modelReturnsError_streamsErrorEvent() throws Exception {
+        stubOllamaChat(500, "");
+
+        var response = ollamaLlmService.chatStream(buildConfiguration(mockServerEndpoint), buildChatRequest("hello", null));
+
+        assertThat(writeStream(response)).startsWith("event: error\n").contains("CHAT_STREAM_ERROR");
+    }
+
     // ── helpers ───────────────────────────────────────────────────────────────
 
+    private static String writeStream(Response response) throws Exception {
+        var output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
     private void stubOllamaChat(int statusCode, String body) {
         var resp = response().withStatusCode(statusCode);
         if (!body.isBlank()) {
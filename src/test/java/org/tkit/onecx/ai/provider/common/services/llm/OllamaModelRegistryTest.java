@@ -0,0 +1,141 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import dev.langchain4j.model.ollama.OllamaChatModel;
+import dev.langchain4j.model.ollama.OllamaStreamingChatModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class OllamaModelRegistryTest extends AbstractTest {
+
+    private static final String URL = "http://replica-1";
+
+    @Test
+    void get_reusesModel_whileProviderIsUnchanged() {
+        var registry = createRegistry();
+        var provider = provider("p-1", 0);
+        var builds = new AtomicInteger();
+
+        var first = registry.get(provider, URL, OllamaChatModel.class, (p, url) -> build(builds));
+        var second = registry.get(provider, URL, OllamaChatModel.class, (p, url) -> build(builds));
+
+        assertThat(second).isSameAs(first);
+        assertThat(builds).hasValue(1);
+        assertThat(registry.meterRegistry.counter(OllamaModelRegistry.CACHE_NAME + ".reuses").count()).isEqualTo(1);
+        assertThat(registry.meterRegistry.counter(OllamaModelRegistry.CACHE_NAME + ".builds").count()).isEqualTo(1);
+    }
+
+    @Test
+    void get_rebuildsModel_whenProviderWasModified() {
+        var registry = createRegistry();
+        var builds = new AtomicInteger();
+
+        var first = registry.get(provider("p-1", 0), URL, OllamaChatModel.class, (p, url) -> build(builds));
+        var second = registry.get(provider("p-1", 1), URL, OllamaChatModel.class, (p, url) -> build(builds));
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(registry.get(provider("p-1", 1), URL, OllamaChatModel.class, (p, url) -> build(builds)))
+                .isSameAs(second);
+        assertThat(builds).hasValue(2);
+    }
+
+    @Test
+    void get_poolsModelsPerType() {
+        var registry = createRegistry();
+        var provider = provider("p-1", 0);
+        var streamingModel = mock(OllamaStreamingChatModel.class);
+
+        var model = registry.get(provider, URL, OllamaChatModel.class, (p, url) -> mock(OllamaChatModel.class));
+
+        assertThat(registry.get(provider, URL, OllamaStreamingChatModel.class, (p, url) -> streamingModel))
+                .isSameAs(streamingModel);
+        assertThat(registry.get(provider, URL, OllamaChatModel.class, (p, url) -> mock(OllamaChatModel.class)))
+                .isSameAs(model);
+    }
+
+    @Test
+    void get_poolsModelsPerEndpoint() {
+        var registry = createRegistry();
+        var provider = provider("p-1", 0);
+        List<String> urls = new ArrayList<>();
+
+        var first = registry.get(provider, URL, OllamaChatModel.class, (p, url) -> build(urls, url));
+        var replica = registry.get(provider, "http://replica-2", OllamaChatModel.class, (p, url) -> build(urls, url));
+
+        assertThat(replica).isNotSameAs(first);
+        assertThat(registry.get(provider, URL, OllamaChatModel.class, (p, url) -> build(urls, url))).isSameAs(first);
+        assertThat(urls).containsExactly(URL, "http://replica-2");
+    }
+
+    @Test
+    void get_doesNotPoolModel_withoutProviderId() {
+        var registry = createRegistry();
+        var builds = new AtomicInteger();
+
+        registry.get(provider(null, 0), URL, OllamaChatModel.class, (p, url) -> build(builds));
+        registry.get(provider(null, 0), URL, OllamaChatModel.class, (p, url) -> build(builds));
+
+        assertThat(builds).hasValue(2);
+    }
+
+    @Test
+    void onEntityChange_removesModelOfChangedProvider() {
+        var registry = createRegistry();
+        var builds = new AtomicInteger();
+        registry.get(provider("p-1", 0), URL, OllamaChatModel.class, (p, url) -> build(builds));
+        registry.get(provider("p-2", 0), URL, OllamaChatModel.class, (p, url) -> build(builds));
+
+        registry.onEntityChange(new EntityChangeEvent("origin", "tenant", EntityType.PROVIDER, "p-1"));
+        registry.onEntityChange(new EntityChangeEvent("origin", "tenant", EntityType.MCP_SERVER, "p-2"));
+        registry.get(provider("p-1", 0), URL, OllamaChatModel.class, (p, url) -> build(builds));
+        registry.get(provider("p-2", 0), URL, OllamaChatModel.class, (p, url) -> build(builds));
+
+        assertThat(builds).hasValue(3);
+    }
+
+    static OllamaModelRegistry createRegistry() {
+        DispatchConfig dispatchConfig = mock(DispatchConfig.class);
+        DispatchConfig.ProviderConfig providerConfig = mock(DispatchConfig.ProviderConfig.class);
+        when(providerConfig.modelPoolMaxSize()).thenReturn(10L);
+        when(providerConfig.modelPoolIdleTimeout()).thenReturn(60L);
+        when(dispatchConfig.providerConfig()).thenReturn(providerConfig);
+
+        var registry = new OllamaModelRegistry();
+        registry.dispatchConfig = dispatchConfig;
+        registry.meterRegistry = new SimpleMeterRegistry();
+        registry.init();
+        return registry;
+    }
+
+    private static Provider provider(String id, int modificationCount) {
+        var provider = new Provider();
+        provider.setId(id);
+        provider.setModificationCount(modificationCount);
+        return provider;
+    }
+
+    private static OllamaChatModel build(AtomicInteger builds) {
+        builds.incrementAndGet();
+        return mock(OllamaChatModel.class);
+    }
+
+    private static OllamaChatModel build(List<String> urls, String url) {
+        urls.add(url);
+        return mock(OllamaChatModel.class);
+    }
+}
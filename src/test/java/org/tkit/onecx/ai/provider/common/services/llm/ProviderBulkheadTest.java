@@ -0,0 +1,146 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class ProviderBulkheadTest extends AbstractTest {
+
+    @Test
+    void execute_runsCall_withoutLimit() {
+        var bulkhead = createBulkhead(100);
+
+        assertThat(bulkhead.execute(provider(null, null), () -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    void execute_queuesCalls_andRejectsCallsBeyondQueue() throws Exception {
+        var bulkhead = createBulkhead(5000);
+        var provider = provider(1, 1);
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+
+        var running = CompletableFuture.supplyAsync(() -> bulkhead.execute(provider, () -> {
+            started.countDown();
+            await(release);
+            return "first";
+        }), Thread::startVirtualThread);
+        started.await(5, TimeUnit.SECONDS);
+        var queued = CompletableFuture.supplyAsync(() -> bulkhead.execute(provider, () -> "second"),
+                Thread::startVirtualThread);
+        waitForQueued(bulkhead, 1);
+
+        assertThatThrownBy(() -> bulkhead.execute(provider, () -> "third"))
+                .isInstanceOf(ProviderOverloadedException.class)
+                .satisfies(ex -> assertThat(((ProviderOverloadedException) ex).getRetryAfter()).isEqualTo(7));
+        assertThat(bulkhead.meterRegistry.get(ProviderBulkhead.METRIC_NAME + ".rejected").tag("reason", "queue full")
+                .counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+        waitForQueued(bulkhead, 0);
+    }
+
+    @Test
+    void execute_rejectsQueuedCall_afterQueueTimeout() throws Exception {
+        var bulkhead = createBulkhead(50);
+        var provider = provider(1, 5);
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+
+        var running = CompletableFuture.supplyAsync(() -> bulkhead.execute(provider, () -> {
+            started.countDown();
+            await(release);
+            return "first";
+        }), Thread::startVirtualThread);
+        started.await(5, TimeUnit.SECONDS);
+
+        assertThatThrownBy(() -> bulkhead.execute(provider, () -> "second"))
+                .isInstanceOf(ProviderOverloadedException.class);
+        assertThat(bulkhead.meterRegistry.get(ProviderBulkhead.METRIC_NAME + ".rejected")
+                .tag("reason", "queue timeout").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+    }
+
+    @Test
+    void onEntityChange_appliesChangedLimits() throws Exception {
+        var bulkhead = createBulkhead(50);
+        var provider = provider(1, 0);
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+
+        var running = CompletableFuture.supplyAsync(() -> bulkhead.execute(provider, () -> {
+            started.countDown();
+            await(release);
+            return "first";
+        }), Thread::startVirtualThread);
+        started.await(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> bulkhead.execute(provider, () -> "second"))
+                .isInstanceOf(ProviderOverloadedException.class);
+
+        bulkhead.onEntityChange(new EntityChangeEvent("origin", "default", EntityType.PROVIDER, provider.getId()));
+        assertThat(bulkhead.execute(provider, () -> "second")).isEqualTo("second");
+
+        provider.setMaxConcurrentRequests(2);
+        assertThat(bulkhead.execute(provider, () -> "third")).isEqualTo("third");
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+    }
+
+    static ProviderBulkhead createBulkhead(long queueTimeout) {
+        DispatchConfig dispatchConfig = mock(DispatchConfig.class);
+        DispatchConfig.ProviderConfig providerConfig = mock(DispatchConfig.ProviderConfig.class);
+        when(dispatchConfig.providerConfig()).thenReturn(providerConfig);
+        when(providerConfig.queueTimeout()).thenReturn(queueTimeout);
+        when(providerConfig.retryAfter()).thenReturn(7L);
+
+        var bulkhead = new ProviderBulkhead();
+        bulkhead.dispatchConfig = dispatchConfig;
+        bulkhead.meterRegistry = new SimpleMeterRegistry();
+        bulkhead.init();
+        return bulkhead;
+    }
+
+    private static Provider provider(Integer maxConcurrent, Integer maxQueued) {
+        var provider = new Provider();
+        provider.setId("p-1");
+        provider.setName("provider");
+        provider.setMaxConcurrentRequests(maxConcurrent);
+        provider.setMaxQueuedRequests(maxQueued);
+        return provider;
+    }
+
+    private static void waitForQueued(ProviderBulkhead bulkhead, double expected) throws InterruptedException {
+        while (bulkhead.meterRegistry.get(ProviderBulkhead.METRIC_NAME + ".queued").gauge().value() != expected) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class ProviderCircuitBreakerTest extends AbstractTest {
+
+    @Test
+    void execute_opensCircuit_atFailureRate_andFailsFast() {
+        var breaker = createBreaker(30);
+        var provider = provider();
+        var calls = new AtomicInteger();
+
+        for (int i = 0; i < 4; i++) {
+            breaker.execute(provider, () -> {
+                calls.incrementAndGet();
+                return null;
+            });
+        }
+
+        assertThat(breaker.state(provider)).isEqualTo(ProviderCircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> breaker.execute(provider, () -> {
+            calls.incrementAndGet();
+            return "answer";
+        })).isInstanceOf(ProviderUnavailableException.class).hasMessageContaining("mistral")
+                .extracting("retryAfter").isEqualTo(30L);
+        assertThat(calls).hasValue(4);
+        assertThat(breaker.meterRegistry.get(ProviderCircuitBreaker.METRIC_NAME + ".state").gauge().value())
+                .isEqualTo(2);
+        assertThat(breaker.meterRegistry.get(ProviderCircuitBreaker.METRIC_NAME + ".rejected").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void rejectIfOpen_rejectsCalls_onlyWhileOpen() {
+        var breaker = createBreaker(30);
+        var provider = provider();
+        breaker.rejectIfOpen(provider);
+
+        for (int i = 0; i < 4; i++) {
+            breaker.execute(provider, () -> null);
+        }
+
+        assertThatThrownBy(() -> breaker.rejectIfOpen(provider)).isInstanceOf(ProviderUnavailableException.class);
+        assertThat(breaker.meterRegistry.get(ProviderCircuitBreaker.METRIC_NAME + ".rejected").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void execute_staysClosed_belowFailureRate() {
+        var breaker = createBreaker(30);
+        var provider = provider();
+
+        for (int i = 0; i < 20; i++) {
+            int call = i;
+            breaker.execute(provider, () -> call % 4 == 0 ? null : "answer");
+        }
+
+        assertThat(breaker.state(provider)).isEqualTo(ProviderCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void execute_opensCircuit_atSlowCallRate() {
+        var breaker = createBreaker(30);
+        when(breaker.dispatchConfig.providerConfig().circuitBreaker().slowCallDuration()).thenReturn(0L);
+        var provider = provider();
+
+        for (int i = 0; i < 4; i++) {
+            breaker.execute(provider, () -> "answer");
+        }
+
+        assertThat(breaker.state(provider)).isEqualTo(ProviderCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void stream_longStreams_doNotCountAsSlow() {
+        var breaker = createBreaker(30);
+        when(breaker.dispatchConfig.providerConfig().circuitBreaker().slowCallDuration()).thenReturn(0L);
+        var provider = provider();
+
+        for (int i = 0; i < 4; i++) {
+            breaker.stream(provider, () -> "answer");
+        }
+
+        assertThat(breaker.state(provider)).isEqualTo(ProviderCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void execute_closesCircuit_afterSuccessfulTrialCalls() {
+        var breaker = createBreaker(0);
+        var provider = provider();
+        for (int i = 0; i < 4; i++) {
+            breaker.execute(provider, () -> null);
+        }
+        assertThat(breaker.state(provider)).isEqualTo(ProviderCircuitBreaker.State.HALF_OPEN);
+
+        breaker.execute(provider, () -> "answer");
+        breaker.execute(provider, () -> "answer");
+
+        assertThat(breaker.state(provider)).isEqualTo(ProviderCircuitBreaker.State.CLOSED);
+        assertThat(breaker.meterRegistry.get(ProviderCircuitBreaker.METRIC_NAME + ".transitions").tag("state", "CLOSED")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void execute_reopensCircuit_onFailedTrialCall() {
+        var breaker = createBreaker(0);
+        var provider = provider();
+        for (int i = 0; i < 4; i++) {
+            breaker.execute(provider, () -> null);
+        }
+
+        breaker.execute(provider, () -> null);
+
+        assertThat(breaker.meterRegistry.get(ProviderCircuitBreaker.METRIC_NAME + ".transitions").tag("state", "OPEN")
+                .counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void execute_ignoresRejectionsOfBulkhead() {
+        var breaker = createBreaker(30);
+        var provider = provider();
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> breaker.execute(provider, () -> {
+                throw new ProviderOverloadedException("Provider 'mistral' is overloaded", 5);
+            })).isNotInstanceOf(ProviderUnavailableException.class);
+        }
+
+        assertThat(breaker.state(provider)).isEqualTo(ProviderCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void execute_ignoresFailuresOfSingleReplica() {
+        var breaker = createBreaker(30);
+        var provider = provider();
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> breaker.execute(provider, () -> {
+                throw new ReplicaFailedException("Endpoint 'http://ollama-2' of provider 'mistral' failed",
+                        new IllegalStateException("Connection refused"));
+            })).isInstanceOf(ReplicaFailedException.class);
+        }
+
+        assertThat(breaker.state(provider)).isEqualTo(ProviderCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void onEntityChange_closesCircuitOfChangedProvider() {
+        var breaker = createBreaker(30);
+        var provider = provider();
+        for (int i = 0; i < 4; i++) {
+            breaker.execute(provider, () -> null);
+        }
+
+        breaker.onEntityChange(new EntityChangeEvent("origin", "tenant", EntityType.PROVIDER, "provider-1"));
+
+        assertThat(breaker.state(provider)).isEqualTo(ProviderCircuitBreaker.State.CLOSED);
+        assertThat(breaker.meterRegistry.find(ProviderCircuitBreaker.METRIC_NAME + ".state").gauge()).isNull();
+    }
+
+    static ProviderCircuitBreaker createBreaker(long openDuration) {
+        DispatchConfig dispatchConfig = mock(DispatchConfig.class);
+        DispatchConfig.ProviderConfig providerConfig = mock(DispatchConfig.ProviderConfig.class);
+        DispatchConfig.CircuitBreakerConfig circuitBreakerConfig = mock(DispatchConfig.CircuitBreakerConfig.class);
+        when(circuitBreakerConfig.enabled()).thenReturn(true);
+        when(circuitBreakerConfig.windowSize()).thenReturn(10);
+        when(circuitBreakerConfig.minimumCalls()).thenReturn(4);
+        when(circuitBreakerConfig.failureRate()).thenReturn(0.5);
+        when(circuitBreakerConfig.slowCallDuration()).thenReturn(30000L);
+        when(circuitBreakerConfig.slowCallRate()).thenReturn(0.8);
+        when(circuitBreakerConfig.openDuration()).thenReturn(openDuration);
+        when(circuitBreakerConfig.halfOpenCalls()).thenReturn(2);
+        when(providerConfig.circuitBreaker()).thenReturn(circuitBreakerConfig);
+        when(dispatchConfig.providerConfig()).thenReturn(providerConfig);
+
+        var breaker = new ProviderCircuitBreaker();
+        breaker.dispatchConfig = dispatchConfig;
+        breaker.meterRegistry = new SimpleMeterRegistry();
+        return breaker;
+    }
+
+    private static Provider provider() {
+        var provider = new Provider();
+        provider.setId("provider-1");
+        provider.setName("mistral");
+        return provider;
+    }
+}
@@ -0,0 +1,104 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.domain.models.Configuration;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class ProviderFailoverTest extends AbstractTest {
+
+    @Test
+    void call_staysWithProviderWhichAnswered() {
+        var primary = provider("primary");
+        var fallback = provider("fallback");
+        var registry = new SimpleMeterRegistry();
+        var failover = new ProviderFailover(configuration(primary, fallback, primary), TimeUnit.MINUTES.toNanos(1),
+                registry);
+        List<String> called = new ArrayList<>();
+
+        String first = failover.call(provider -> {
+            called.add(provider.getName());
+            return provider == primary ? null : "answer";
+        });
+        String second = failover.call(provider -> {
+            called.add(provider.getName());
+            return "follow-up";
+        });
+        failover.served();
+
+        assertThat(first).isEqualTo("answer");
+        assertThat(second).isEqualTo("follow-up");
+        assertThat(called).containsExactly("primary", "fallback", "fallback");
+        assertThat(failover.provider()).isSameAs(fallback);
+        assertThat(registry.get(ProviderFailover.FAILOVER_METRIC).tag("reason", "no response").counter().count())
+                .isEqualTo(1);
+        assertThat(registry.get(ProviderFailover.TIER_METRIC).tag("tier", "1").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void call_rethrowsOverload_ofLastProvider() {
+        var failover = new ProviderFailover(configuration(provider("primary"), provider("fallback")),
+                TimeUnit.MINUTES.toNanos(1), new SimpleMeterRegistry());
+
+        assertThatThrownBy(() -> failover.call(provider -> {
+            throw new ProviderOverloadedException("Provider '" + provider.getName() + "' is overloaded", 5);
+        })).isInstanceOf(ProviderOverloadedException.class).hasMessageContaining("fallback");
+        assertThat(failover.tier()).isEqualTo(1);
+    }
+
+    @Test
+    void call_failsOver_whenCircuitIsOpen() {
+        var registry = new SimpleMeterRegistry();
+        var primary = provider("primary");
+        var failover = new ProviderFailover(configuration(primary, provider("fallback")), TimeUnit.MINUTES.toNanos(1),
+                registry);
+
+        String result = failover.call(provider -> {
+            if (provider == primary) {
+                throw new ProviderUnavailableException("Provider 'primary' is unavailable", 30);
+            }
+            return "answer";
+        });
+
+        assertThat(result).isEqualTo("answer");
+        assertThat(registry.get(ProviderFailover.FAILOVER_METRIC).tag("reason", "circuit open").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void call_noFailover_afterDeadline() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        var failover = new ProviderFailover(configuration(provider("primary"), provider("fallback")), 0, registry);
+
+        Object result = failover.call(provider -> null);
+
+        assertThat(result).isNull();
+        assertThat(failover.tier()).isZero();
+        assertThat(registry.find(ProviderFailover.FAILOVER_METRIC).counter()).isNull();
+    }
+
+    private static Configuration configuration(Provider primary, Provider... fallbackProviders) {
+        var configuration = new Configuration();
+        configuration.setProvider(primary);
+        configuration.setFallbackProviders(List.of(fallbackProviders));
+        return configuration;
+    }
+
+    private static Provider provider(String name) {
+        var provider = new Provider();
+        provider.setName(name);
+        return provider;
+    }
+}
@@ -0,0 +1,284 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class ProviderReplicaRouterTest extends AbstractTest {
+
+    private static final String PRIMARY = "http://ollama-1";
+
+    private static final String REPLICA = "http://ollama-2";
+
+    @Test
+    void execute_routesToReplicaWithFewestCallsInFlight() throws Exception {
+        var router = createRouter();
+        var provider = provider();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        var busy = CompletableFuture.supplyAsync(() -> router.execute(provider, null, url -> {
+            started.countDown();
+            await(release);
+            return url;
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        String free = router.execute(provider, null, url -> url);
+        release.countDown();
+
+        assertThat(Set.of(free, busy.get(5, TimeUnit.SECONDS))).containsExactlyInAnyOrder(PRIMARY, REPLICA);
+    }
+
+    @Test
+    void execute_ejectsReplica_afterFailuresInARow() {
+        var router = createRouter();
+        var provider = provider();
+        List<String> called = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            router.execute(provider, null, url -> {
+                called.add(url);
+                return url.equals(REPLICA) ? null : url;
+            });
+        }
+
+        assertThat(called).filteredOn(REPLICA::equals).hasSize(3);
+        assertThat(router.meterRegistry.get(ProviderReplicaRouter.METRIC_NAME + ".ejections").tag("reason", "failures")
+                .counter().count()).isEqualTo(1);
+        assertThat(router.meterRegistry.get(ProviderReplicaRouter.METRIC_NAME + ".ejected").tag("replica", REPLICA)
+                .gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void execute_ejectsSlowReplica() throws Exception {
+        var router = createRouter();
+        var provider = provider();
+        try (var executor = Executors.newFixedThreadPool(2)) {
+            for (int round = 0; round < 6; round++) {
+                var barrier = new CyclicBarrier(2);
+                Supplier<String> call = () -> router.execute(provider, null, url -> slowReplica(barrier, url));
+                var calls = List.of(CompletableFuture.supplyAsync(call, executor),
+                        CompletableFuture.supplyAsync(call, executor));
+                for (var running : calls) {
+                    running.get(5, TimeUnit.SECONDS);
+                }
+            }
+        }
+
+        assertThat(router.meterRegistry.get(ProviderReplicaRouter.METRIC_NAME + ".ejections").tag("reason", "latency")
+                .counter().count()).isEqualTo(1);
+        assertThat(router.execute(provider, null, url -> url)).isEqualTo(PRIMARY);
+        assertThat(router.execute(provider, null, url -> url)).isEqualTo(PRIMARY);
+    }
+
+    @Test
+    void execute_neverEjectsLastAvailableReplica() {
+        var router = createRouter();
+        var provider = provider();
+
+        for (int i = 0; i < 20; i++) {
+            router.execute(provider, null, url -> null);
+        }
+
+        assertThat(router.meterRegistry.get(ProviderReplicaRouter.METRIC_NAME + ".ejections").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void execute_doesNotEjectReplica_forRejectedCalls() {
+        var router = createRouter();
+        var provider = provider();
+
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> router.execute(provider, null, url -> {
+                throw new ProviderOverloadedException("Provider 'mistral' is overloaded", 5);
+            })).isInstanceOf(ProviderOverloadedException.class);
+        }
+
+        assertThat(router.meterRegistry.find(ProviderReplicaRouter.METRIC_NAME + ".ejections").counter()).isNull();
+        assertThat(router.meterRegistry.get(ProviderReplicaRouter.METRIC_NAME + ".in.flight").tag("replica", PRIMARY)
+                .gauge().value()).isZero();
+    }
+
+    @Test
+    void execute_routesRetryToOtherReplica_afterFailedReplica() {
+        var router = createRouter();
+        var provider = provider();
+        Set<String> failedEndpoints = new HashSet<>();
+        List<String> called = new ArrayList<>();
+
+        assertThatThrownBy(() -> router.execute(provider, "conversation-1", failedEndpoints, url -> {
+            called.add(url);
+            throw new IllegalStateException("Connection refused");
+        })).isInstanceOf(ReplicaFailedException.class).hasCauseInstanceOf(IllegalStateException.class);
+        String retried = router.execute(provider, "conversation-1", failedEndpoints, url -> url);
+
+        assertThat(failedEndpoints).containsExactly(called.getFirst());
+        assertThat(retried).isNotEqualTo(called.getFirst());
+    }
+
+    @Test
+    void execute_rethrowsFailure_whenNoOtherReplicaIsAvailable() {
+        var router = createRouter();
+        var provider = provider();
+        Set<String> failedEndpoints = new HashSet<>();
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            var failure = catchThrowable(() -> router.execute(provider, null, failedEndpoints, url -> {
+                throw new IllegalStateException("Connection refused");
+            }));
+            assertThat(failure).isInstanceOf(attempt == 0 ? ReplicaFailedException.class : IllegalStateException.class);
+        }
+
+        assertThat(failedEndpoints).containsExactlyInAnyOrder(PRIMARY, REPLICA);
+    }
+
+    @Test
+    void execute_routesConversationToSameReplica() {
+        var router = createRouter();
+        var provider = provider();
+        Set<String> conversation1 = new HashSet<>();
+        Set<String> conversation2 = new HashSet<>();
+
+        for (int i = 0; i < 10; i++) {
+            conversation1.add(router.execute(provider, "conversation-1", url -> url));
+            conversation2.add(router.execute(provider, "conversation-2", url -> url));
+        }
+
+        assertThat(conversation1).hasSize(1);
+        assertThat(conversation2).hasSize(1);
+        assertThat(router.routesByAffinity(provider, "conversation-1")).isTrue();
+        assertThat(router.meterRegistry.get(ProviderReplicaRouter.METRIC_NAME + ".affinity").tag("result", "home")
+                .counter().count()).isEqualTo(20);
+    }
+
+    @Test
+    void execute_spillsConversationOver_whenReplicaIsAboveLoadBound() throws Exception {
+        var router = createRouter();
+        var provider = provider();
+        String home = router.execute(provider, "conversation-1", url -> url);
+        var started = new CountDownLatch(2);
+        var release = new CountDownLatch(1);
+        Supplier<String> blocked = () -> router.execute(provider, "conversation-1", url -> {
+            started.countDown();
+            await(release);
+            return url;
+        });
+
+        try (var executor = Executors.newFixedThreadPool(2)) {
+            var running = List.of(CompletableFuture.supplyAsync(blocked, executor),
+                    CompletableFuture.supplyAsync(blocked, executor));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            String spilled = router.execute(provider, "conversation-1", url -> url);
+            release.countDown();
+
+            for (var call : running) {
+                assertThat(call.get(5, TimeUnit.SECONDS)).isEqualTo(home);
+            }
+            assertThat(spilled).isNotEqualTo(home);
+        }
+        assertThat(router.meterRegistry.get(ProviderReplicaRouter.METRIC_NAME + ".affinity").tag("result", "spillover")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void routesByAffinity_false_withoutConversationOrReplicas() {
+        var router = createRouter();
+        var provider = provider();
+
+        assertThat(router.routesByAffinity(provider, null)).isFalse();
+        provider.setReplicaUrls(null);
+        assertThat(router.routesByAffinity(provider, "conversation-1")).isFalse();
+    }
+
+    @Test
+    void execute_callsLlmUrl_withoutReplicas() {
+        var router = createRouter();
+        var provider = provider();
+        provider.setReplicaUrls(null);
+
+        assertThat(router.execute(provider, null, url -> url)).isEqualTo(PRIMARY);
+        assertThat(router.meterRegistry.find(ProviderReplicaRouter.METRIC_NAME + ".in.flight").gauge()).isNull();
+    }
+
+    @Test
+    void onEntityChange_removesReplicasOfChangedProvider() {
+        var router = createRouter();
+        router.execute(provider(), null, url -> url);
+
+        router.onEntityChange(new EntityChangeEvent("origin", "tenant", EntityType.PROVIDER, "provider-1"));
+
+        assertThat(router.meterRegistry.find(ProviderReplicaRouter.METRIC_NAME + ".in.flight").gauges()).isEmpty();
+    }
+
+    static ProviderReplicaRouter createRouter() {
+        DispatchConfig dispatchConfig = mock(DispatchConfig.class);
+        DispatchConfig.ProviderConfig providerConfig = mock(DispatchConfig.ProviderConfig.class);
+        DispatchConfig.ReplicaConfig replicaConfig = mock(DispatchConfig.ReplicaConfig.class);
+        when(replicaConfig.ejectionFailures()).thenReturn(3);
+        when(replicaConfig.ejectionTime()).thenReturn(30L);
+        when(replicaConfig.latencyFactor()).thenReturn(3.0);
+        when(replicaConfig.affinity()).thenReturn(true);
+        when(replicaConfig.affinityLoadFactor()).thenReturn(1.25);
+        when(providerConfig.replicas()).thenReturn(replicaConfig);
+        when(dispatchConfig.providerConfig()).thenReturn(providerConfig);
+
+        var router = new ProviderReplicaRouter();
+        router.dispatchConfig = dispatchConfig;
+        router.meterRegistry = new SimpleMeterRegistry();
+        return router;
+    }
+
+    private static Provider provider() {
+        var provider = new Provider();
+        provider.setId("provider-1");
+        provider.setName("mistral");
+        provider.setLlmUrl(PRIMARY);
+        provider.setReplicaUrls(Set.of(REPLICA));
+        return provider;
+    }
+
+    private static String slowReplica(CyclicBarrier barrier, String url) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+            if (url.equals(REPLICA)) {
+                Thread.sleep(60);
+            }
+            return url;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
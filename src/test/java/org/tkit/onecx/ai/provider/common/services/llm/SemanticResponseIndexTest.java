@@ -0,0 +1,85 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class SemanticResponseIndexTest extends AbstractTest {
+
+    private static final HashingEmbeddingModel MODEL = new HashingEmbeddingModel(512);
+
+    private static final float[][] HYPERPLANES = SemanticResponseIndex.hyperplanes(512, 42);
+
+    @Test
+    void embedding_isSimilar_forReorderedWording() {
+        var question = MODEL.vector("How do I reset my password?");
+
+        assertThat(dot(question, MODEL.vector("how can I reset my password"))).isGreaterThan(0.9);
+        assertThat(dot(question, MODEL.vector("How do I reset my username?"))).isLessThan(0.9);
+        assertThat(dot(question, MODEL.vector("What are the opening hours?"))).isLessThan(0.2);
+        assertThat(MODEL.embed("How do I reset my password?").content().vector()).containsExactly(question);
+    }
+
+    @Test
+    void find_returnsMostSimilarAnswer_aboveThreshold() {
+        var index = new SemanticResponseIndex(HYPERPLANES, 10, Duration.ofMinutes(1));
+        index.add(MODEL.vector("How do I reset my password?"), "password", 0.9);
+        index.add(MODEL.vector("What are the opening hours?"), "hours", 0.9);
+
+        assertThat(index.find(MODEL.vector("how can I reset my password"), 0.9)).isEqualTo("password");
+        assertThat(index.find(MODEL.vector("Where is the shop?"), 0.9)).isNull();
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.bytes()).isPositive();
+    }
+
+    @Test
+    void add_replacesSimilarAnswer_andDropsOldestBeyondMaximum() {
+        var index = new SemanticResponseIndex(HYPERPLANES, 2, Duration.ofMinutes(1));
+        index.add(MODEL.vector("How do I reset my password?"), "old", 0.9);
+        index.add(MODEL.vector("how can I reset my password"), "new", 0.9);
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.find(MODEL.vector("How do I reset my password?"), 0.9)).isEqualTo("new");
+
+        index.add(MODEL.vector("What are the opening hours?"), "hours", 0.9);
+        index.add(MODEL.vector("Where is the shop?"), "shop", 0.9);
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.find(MODEL.vector("How do I reset my password?"), 0.9)).isNull();
+    }
+
+    @Test
+    void find_usesHashBuckets_forLargeIndexes() {
+        var index = new SemanticResponseIndex(HYPERPLANES, 1000, Duration.ofMinutes(1));
+        for (int i = 0; i < 500; i++) {
+            index.add(MODEL.vector("question number " + i + " about topic" + i), "answer " + i, 0.99);
+        }
+
+        assertThat(index.size()).isEqualTo(500);
+        assertThat(index.find(MODEL.vector("question number 123 about topic123"), 0.99)).isEqualTo("answer 123");
+        assertThat(index.find(MODEL.vector("How do I reset my password?"), 0.9)).isNull();
+    }
+
+    @Test
+    void find_ignoresExpiredAnswers() {
+        var index = new SemanticResponseIndex(HYPERPLANES, 10, Duration.ZERO);
+        index.add(MODEL.vector("How do I reset my password?"), "password", 0.9);
+
+        assertThat(index.find(MODEL.vector("How do I reset my password?"), 0.9)).isNull();
+        assertThat(index.bytes()).isZero();
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
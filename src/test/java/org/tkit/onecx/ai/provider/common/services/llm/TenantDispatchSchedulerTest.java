@@ -0,0 +1,150 @@
+package org.tkit.onecx.ai.provider.common.services.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class TenantDispatchSchedulerTest extends AbstractTest {
+
+    @Test
+    void acquire_servesTenantsByWeight() throws Exception {
+        var scheduler = createScheduler(true, 1, 10, 5000, Map.of("tenant-a", 2));
+        List<String> served = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> waiting = new ArrayList<>();
+
+        var holder = scheduler.acquire("holder");
+        for (String tenant : List.of("tenant-a", "tenant-a", "tenant-a", "tenant-a", "tenant-b", "tenant-b")) {
+            double queued = queued(scheduler, tenant);
+            waiting.add(CompletableFuture.runAsync(() -> {
+                try (var slot = scheduler.acquire(tenant)) {
+                    served.add(tenant);
+                }
+            }, Thread::startVirtualThread));
+            while (queued(scheduler, tenant) == queued) {
+                Thread.sleep(5);
+            }
+        }
+        holder.close();
+        for (var future : waiting) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        // tenant-b is served before the later requests of tenant-a, tenant-a gets two slots per slot of tenant-b
+        assertThat(served).containsExactly("tenant-a", "tenant-a", "tenant-b", "tenant-a", "tenant-a", "tenant-b");
+        assertThat(scheduler.meterRegistry.get(TenantDispatchScheduler.METRIC_NAME + ".wait").tag("tenant", "tenant-b")
+                .timer().count()).isEqualTo(2);
+        assertThat(scheduler.meterRegistry.get(TenantDispatchScheduler.METRIC_NAME + ".running").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    void acquire_rejectsRequests_beyondQueueOfTenant() throws Exception {
+        var scheduler = createScheduler(true, 1, 1, 5000, Map.of());
+
+        var holder = scheduler.acquire("holder");
+        var queued = CompletableFuture.runAsync(() -> scheduler.acquire("tenant-a").close(),
+                Thread::startVirtualThread);
+        while (queued(scheduler, "tenant-a") == 0) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> scheduler.acquire("tenant-a")).isInstanceOf(ProviderOverloadedException.class);
+        assertThat(scheduler.meterRegistry.get(TenantDispatchScheduler.METRIC_NAME + ".rejected")
+                .tag("reason", "queue full").counter().count()).isEqualTo(1);
+
+        holder.close();
+        queued.get(5, TimeUnit.SECONDS);
+        assertThat(queued(scheduler, "tenant-a")).isZero();
+    }
+
+    @Test
+    void acquire_rejectsRequest_afterQueueTimeout() {
+        var scheduler = createScheduler(true, 1, 10, 50, Map.of());
+
+        try (var holder = scheduler.acquire(null)) {
+            assertThatThrownBy(() -> scheduler.acquire("tenant-a")).isInstanceOf(ProviderOverloadedException.class);
+            assertThat(queued(scheduler, "tenant-a")).isZero();
+        }
+        scheduler.acquire("tenant-a").close();
+    }
+
+    @Test
+    void acquire_doesNotDelayTenant_afterQueueTimeout() throws Exception {
+        var scheduler = createScheduler(true, 1, 10, 500, Map.of());
+        List<String> served = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> waiting = new ArrayList<>();
+
+        var holder = scheduler.acquire("holder");
+        assertThatThrownBy(() -> scheduler.acquire("tenant-a")).isInstanceOf(ProviderOverloadedException.class);
+        for (String tenant : List.of("tenant-a", "tenant-b")) {
+            waiting.add(CompletableFuture.runAsync(() -> {
+                try (var slot = scheduler.acquire(tenant)) {
+                    served.add(tenant);
+                }
+            }, Thread::startVirtualThread));
+            while (queued(scheduler, tenant) == 0) {
+                Thread.sleep(5);
+            }
+        }
+        holder.close();
+        for (var future : waiting) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        // the timed out request does not count, tenant-a queued first and is served first
+        assertThat(served).containsExactly("tenant-a", "tenant-b");
+    }
+
+    @Test
+    void acquire_returnsSlot_whenDisabled() {
+        var scheduler = createScheduler(false, 0, 0, 0, Map.of());
+
+        try (var slot = scheduler.acquire("tenant-a")) {
+            assertThat(slot).isNotNull();
+        }
+    }
+
+    static TenantDispatchScheduler createScheduler(boolean enabled, int maxConcurrent, int maxQueued, long timeout,
+            Map<String, Integer> weights) {
+        DispatchConfig dispatchConfig = mock(DispatchConfig.class);
+        DispatchConfig.SchedulerConfig schedulerConfig = mock(DispatchConfig.SchedulerConfig.class);
+        DispatchConfig.ProviderConfig providerConfig = mock(DispatchConfig.ProviderConfig.class);
+        when(dispatchConfig.schedulerConfig()).thenReturn(schedulerConfig);
+        when(dispatchConfig.providerConfig()).thenReturn(providerConfig);
+        when(providerConfig.retryAfter()).thenReturn(5L);
+        when(schedulerConfig.enabled()).thenReturn(enabled);
+        when(schedulerConfig.maxConcurrent()).thenReturn(maxConcurrent);
+        when(schedulerConfig.maxQueuedPerTenant()).thenReturn(maxQueued);
+        when(schedulerConfig.queueTimeout()).thenReturn(timeout);
+        when(schedulerConfig.defaultWeight()).thenReturn(1);
+        when(schedulerConfig.tenantWeights()).thenReturn(weights);
+
+        var scheduler = new TenantDispatchScheduler();
+        scheduler.dispatchConfig = dispatchConfig;
+        scheduler.meterRegistry = new SimpleMeterRegistry();
+        scheduler.init();
+        return scheduler;
+    }
+
+    private static double queued(TenantDispatchScheduler scheduler, String tenant) {
+        var gauge = scheduler.meterRegistry.find(TenantDispatchScheduler.METRIC_NAME + ".queued").tag("tenant", tenant)
+                .gauge();
+        return gauge != null ? gauge.value() : 0;
+    }
+}
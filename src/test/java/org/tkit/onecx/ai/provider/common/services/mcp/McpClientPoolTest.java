@@ -0,0 +1,185 @@
+package org.tkit.onecx.ai.provider.common.services.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.MCPServer;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import dev.langchain4j.mcp.client.McpClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class McpClientPoolTest extends AbstractTest {
+
+    @Test
+    void get_reusesClient_whileServerIsUnchanged() {
+        var pool = createPool();
+        var server = server("s-1", "http://mcp", 0);
+        var connects = new AtomicInteger();
+
+        var first = pool.get(server, s -> connect(connects));
+        var second = pool.get(server, s -> connect(connects));
+
+        assertThat(second).isSameAs(first);
+        assertThat(connects).hasValue(1);
+    }
+
+    @Test
+    void get_reconnects_andClosesOldClient_whenServerWasModified() throws Exception {
+        var pool = createPool();
+        var connects = new AtomicInteger();
+
+        var first = pool.get(server("s-1", "http://mcp", 0), s -> connect(connects));
+        var second = pool.get(server("s-1", "http://mcp", 1), s -> connect(connects));
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(connects).hasValue(2);
+
+        pool.onEntityChange(new EntityChangeEvent("origin", null, EntityType.MCP_SERVER, "s-1"));
+
+        verify(first).close();
+        verify(second).close();
+    }
+
+    @Test
+    void get_doesNotPoolClient_whenConnectFails() {
+        var pool = createPool();
+        var server = server("s-1", "http://mcp", 0);
+        var connects = new AtomicInteger();
+
+        try {
+            pool.get(server, s -> {
+                connects.incrementAndGet();
+                throw new IllegalStateException("down");
+            });
+        } catch (IllegalStateException _) {
+            // expected
+        }
+        pool.get(server, s -> connect(connects));
+
+        assertThat(connects).hasValue(2);
+    }
+
+    @Test
+    void evict_closesClient_andNextGetReconnects() throws Exception {
+        var pool = createPool();
+        var server = server("s-1", "http://mcp", 0);
+        var connects = new AtomicInteger();
+        var first = pool.get(server, s -> connect(connects));
+        doThrow(new Exception("close failed")).when(first).close();
+
+        pool.evict(first);
+        var second = pool.get(server, s -> connect(connects));
+
+        verify(first).close();
+        assertThat(second).isNotSameAs(first);
+        assertThat(connects).hasValue(2);
+    }
+
+    @Test
+    void evict_closesClient_onlyAfterCallOfOtherRequestFinished() throws Exception {
+        var pool = createPool();
+        var server = server("s-1", "http://mcp", 0);
+        var client = pool.get(server, s -> mock(McpClient.class));
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        var running = CompletableFuture.supplyAsync(() -> pool.execute(client, () -> {
+            started.countDown();
+            await(release);
+            return "result";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        // another request failed on the same client
+        pool.evict(client);
+
+        verify(client, never()).close();
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        verify(client).close();
+        assertThat(pool.get(server, s -> mock(McpClient.class))).isNotSameAs(client);
+    }
+
+    @Test
+    void execute_runsCall_onClosedClient() throws Exception {
+        var pool = createPool();
+        var client = pool.get(server("s-1", "http://mcp", 0), s -> mock(McpClient.class));
+        pool.evict(client);
+
+        assertThat(pool.execute(client, () -> "result")).isEqualTo("result");
+        verify(client).close();
+    }
+
+    @Test
+    void onEntityChange_ignoresOtherEntities() throws Exception {
+        var pool = createPool();
+        var client = pool.get(server("s-1", "http://mcp", 0), s -> mock(McpClient.class));
+
+        pool.onEntityChange(new EntityChangeEvent("origin", null, EntityType.PROVIDER, "s-1"));
+        pool.onEntityChange(new EntityChangeEvent("origin", null, EntityType.MCP_SERVER, "s-2"));
+
+        verify(client, never()).close();
+    }
+
+    @Test
+    void destroy_closesAllClients() throws Exception {
+        var pool = createPool();
+        var client1 = pool.get(server("s-1", "http://mcp-1", 0), s -> mock(McpClient.class));
+        var client2 = pool.get(server("s-2", "http://mcp-2", 0), s -> mock(McpClient.class));
+
+        pool.destroy();
+
+        verify(client1).close();
+        verify(client2).close();
+    }
+
+    static McpClientPool createPool() {
+        DispatchConfig dispatchConfig = mock(DispatchConfig.class);
+        DispatchConfig.MCPConfig mcpConfig = mock(DispatchConfig.MCPConfig.class);
+        when(dispatchConfig.mcpConfig()).thenReturn(mcpConfig);
+        when(mcpConfig.clientPoolMaxSize()).thenReturn(10L);
+        when(mcpConfig.clientPoolIdleTimeout()).thenReturn(60L);
+
+        var pool = new McpClientPool();
+        pool.dispatchConfig = dispatchConfig;
+        pool.meterRegistry = new SimpleMeterRegistry();
+        pool.init();
+        return pool;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static McpClient connect(AtomicInteger connects) {
+        connects.incrementAndGet();
+        return mock(McpClient.class);
+    }
+
+    private static MCPServer server(String id, String url, int modificationCount) {
+        MCPServer server = new MCPServer();
+        server.setId(id);
+        server.setUrl(url);
+        server.setModificationCount(modificationCount);
+        return server;
+    }
+}
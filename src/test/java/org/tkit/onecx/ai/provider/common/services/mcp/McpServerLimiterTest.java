@@ -0,0 +1,109 @@
+package org.tkit.onecx.ai.provider.common.services.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class McpServerLimiterTest extends AbstractTest {
+
+    @Test
+    void execute_limitsConcurrentCallsPerServer() throws Exception {
+        var limiter = createLimiter(2, 5);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var threads = new ArrayList<Thread>();
+
+        for (int i = 0; i < 6; i++) {
+            threads.add(Thread.ofVirtual().start(() -> limiter.execute("http://mcp", () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(100);
+                return running.decrementAndGet();
+            })));
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+
+        assertThat(maxRunning).hasValue(2);
+    }
+
+    @Test
+    void execute_doesNotShareLimitBetweenServers() throws Exception {
+        var limiter = createLimiter(1, 5);
+        var blocked = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var thread = Thread.ofVirtual().start(() -> limiter.execute("http://mcp-1", () -> {
+            blocked.countDown();
+            await(release);
+            return "done";
+        }));
+        assertThat(blocked.await(1, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(limiter.execute("http://mcp-2", () -> "other")).isEqualTo("other");
+
+        release.countDown();
+        thread.join();
+    }
+
+    @Test
+    void execute_throws_whenNoPermitBecomesFree() throws Exception {
+        var limiter = createLimiter(1, 0);
+        var blocked = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var thread = Thread.ofVirtual().start(() -> limiter.execute("http://mcp", () -> {
+            blocked.countDown();
+            await(release);
+            return "done";
+        }));
+        assertThat(blocked.await(1, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> limiter.execute("http://mcp", () -> "late"))
+                .isInstanceOf(McpServerBusyException.class)
+                .hasMessageContaining("http://mcp");
+
+        release.countDown();
+        thread.join();
+        assertThat(limiter.execute("http://mcp", () -> "next")).isEqualTo("next");
+    }
+
+    private static McpServerLimiter createLimiter(int concurrency, long timeout) {
+        DispatchConfig dispatchConfig = mock(DispatchConfig.class);
+        DispatchConfig.MCPConfig mcpConfig = mock(DispatchConfig.MCPConfig.class);
+        when(dispatchConfig.mcpConfig()).thenReturn(mcpConfig);
+        when(mcpConfig.toolCallConcurrency()).thenReturn(concurrency);
+        when(mcpConfig.maxTimeout()).thenReturn(timeout);
+
+        var limiter = new McpServerLimiter();
+        limiter.dispatchConfig = dispatchConfig;
+        return limiter;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
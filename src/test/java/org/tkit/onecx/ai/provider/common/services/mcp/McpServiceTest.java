@@ -1,16 +1,25 @@
 package org.tkit.onecx.ai.provider.common.services.mcp;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.microprofile.context.ManagedExecutor;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
@@ -18,11 +27,13 @@ import org.tkit.onecx.ai.provider.domain.models.Configuration;
 import org.tkit.onecx.ai.provider.domain.models.MCPServer;
 import org.tkit.onecx.ai.provider.test.AbstractTest;
 
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.mcp.client.DefaultMcpClient;
 import dev.langchain4j.mcp.client.McpClient;
 import dev.langchain4j.mcp.client.transport.http.StreamableHttpMcpTransport;
 import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.quarkus.test.junit.QuarkusTest;
 
 @QuarkusTest
@@ -57,6 +68,10 @@ class McpServiceTest extends AbstractTest {
     void createToolRegistry_mergesDiscoveredTools_andSkipsFailingServer() {
         var service = new TestableMcpService();
         service.dispatchConfig = dispatchConfig();
+        service.clientPool = McpClientPoolTest.createPool();
+        service.toolCatalog = McpToolCatalogTest.createCatalog();
+        service.executor = executor();
+        service.meterRegistry = new SimpleMeterRegistry();
 
         McpClient okClient = mock(McpClient.class);
         when(okClient.listTools()).thenReturn(List.of(toolSpec("tool-a"), toolSpec("tool-b")));
@@ -80,6 +95,10 @@ class McpServiceTest extends AbstractTest {
     void createToolRegistry_returnsEmpty_whenClientCreationThrows() {
         var service = new TestableMcpService();
         service.dispatchConfig = dispatchConfig();
+        service.clientPool = McpClientPoolTest.createPool();
+        service.toolCatalog = McpToolCatalogTest.createCatalog();
+        service.executor = executor();
+        service.meterRegistry = new SimpleMeterRegistry();
         service.registerClientCreationError("http://boom", new RuntimeException("cannot create client"));
 
         var config = new Configuration();
@@ -90,6 +109,166 @@ class McpServiceTest extends AbstractTest {
         assertThat(registry.tools()).isEmpty();
     }
 
+    @Test
+    void createToolRegistry_reusesPooledClient_acrossRequests() throws Exception {
+        var service = new TestableMcpService();
+        service.dispatchConfig = dispatchConfig();
+        service.clientPool = McpClientPoolTest.createPool();
+        service.toolCatalog = McpToolCatalogTest.createCatalog();
+        service.executor = executor();
+        service.meterRegistry = new SimpleMeterRegistry();
+
+        McpClient client = mock(McpClient.class);
+        when(client.listTools()).thenReturn(List.of(toolSpec("tool-a")));
+        service.registerClient("http://ok", client);
+
+        var config = new Configuration();
+        config.setMcpServers(Set.of(server("http://ok", null)));
+
+        var first = service.createToolRegistry(config);
+        var second = service.createToolRegistry(config);
+
+        assertThat(first.tools()).hasSize(1);
+        assertThat(second.findByName("tool-a")).get().extracting(McpTool::mcpClient).isSameAs(client);
+        assertThat(service.createdClients).hasValue(1);
+        verify(client, times(1)).checkHealth();
+        verify(client, times(1)).listTools();
+        verify(client, never()).close();
+    }
+
+    @Test
+    void createToolRegistry_evictsClient_whenListToolsFails() throws Exception {
+        var service = new TestableMcpService();
+        service.dispatchConfig = dispatchConfig();
+        service.clientPool = McpClientPoolTest.createPool();
+        service.toolCatalog = McpToolCatalogTest.createCatalog();
+        service.executor = executor();
+        service.meterRegistry = new SimpleMeterRegistry();
+
+        McpClient client = mock(McpClient.class);
+        when(client.listTools()).thenThrow(new RuntimeException("session expired"));
+        service.registerClient("http://ok", client);
+
+        var config = new Configuration();
+        config.setMcpServers(Set.of(server("http://ok", null)));
+
+        assertThat(service.createToolRegistry(config).tools()).isEmpty();
+        assertThat(service.createToolRegistry(config).tools()).isEmpty();
+
+        verify(client, times(2)).close();
+        assertThat(service.createdClients).hasValue(2);
+    }
+
+    @Test
+    void createToolRegistry_closesClient_whenHealthCheckFails() throws Exception {
+        var service = new TestableMcpService();
+        service.dispatchConfig = dispatchConfig();
+        service.clientPool = McpClientPoolTest.createPool();
+        service.toolCatalog = McpToolCatalogTest.createCatalog();
+        service.executor = executor();
+        service.meterRegistry = new SimpleMeterRegistry();
+
+        McpClient client = mock(McpClient.class);
+        doThrow(new RuntimeException("down")).when(client).checkHealth();
+        doThrow(new Exception("close failed")).when(client).close();
+        service.registerClient("http://down", client);
+
+        var config = new Configuration();
+        config.setMcpServers(Set.of(server("http://down", null)));
+
+        assertThat(service.createToolRegistry(config).tools()).isEmpty();
+        verify(client).close();
+    }
+
+    @Test
+    void evictClient_delegatesToPool() {
+        var service = new McpService();
+        service.clientPool = mock(McpClientPool.class);
+        McpClient client = mock(McpClient.class);
+
+        service.evictClient(client);
+
+        verify(service.clientPool).evict(client);
+    }
+
+    @Test
+    void executeTool_runsToolOnPooledClient() {
+        var service = new McpService();
+        service.clientPool = McpClientPoolTest.createPool();
+        McpTool tool = mock(McpTool.class);
+        ToolExecutionRequest request = ToolExecutionRequest.builder().id("1").name("tool").arguments("{}").build();
+        when(tool.mcpClient()).thenReturn(mock(McpClient.class));
+        when(tool.execute(request)).thenReturn("tool-ok");
+
+        assertThat(service.executeTool(tool, request)).isEqualTo("tool-ok");
+    }
+
+    @Test
+    void createToolRegistry_skipsServer_whenDiscoveryExceedsDeadline() {
+        var service = new TestableMcpService();
+        service.dispatchConfig = dispatchConfig();
+        service.clientPool = McpClientPoolTest.createPool();
+        service.toolCatalog = McpToolCatalogTest.createCatalog();
+        service.executor = executor();
+        service.meterRegistry = new SimpleMeterRegistry();
+
+        McpClient fastClient = mock(McpClient.class);
+        when(fastClient.listTools()).thenReturn(List.of(toolSpec("tool-a")));
+        service.registerClient("http://fast", fastClient);
+
+        McpClient slowClient = mock(McpClient.class);
+        when(slowClient.listTools()).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return List.of(toolSpec("tool-slow"));
+        });
+        service.registerClient("http://slow", slowClient);
+
+        var config = new Configuration();
+        config.setMcpServers(Set.of(server("http://fast", null), server("http://slow", null)));
+
+        long start = System.nanoTime();
+        var registry = service.createToolRegistry(config);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(registry.getToolSpecifications()).extracting(ToolSpecification::name).containsExactly("tool-a");
+        assertThat(elapsed).isLessThan(1500);
+        assertThat(service.meterRegistry.get(McpService.DISCOVERY_METRIC + ".timeouts").tag("server", "http://slow")
+                .counter().count()).isEqualTo(1);
+        assertThat(service.meterRegistry.get(McpService.DISCOVERY_METRIC).tag("server", "http://fast")
+                .tag("outcome", "success").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void createToolRegistry_discoversServersConcurrently() {
+        var service = new TestableMcpService();
+        service.dispatchConfig = dispatchConfig();
+        service.clientPool = McpClientPoolTest.createPool();
+        service.toolCatalog = McpToolCatalogTest.createCatalog();
+        service.executor = executor();
+        service.meterRegistry = new SimpleMeterRegistry();
+
+        Set<MCPServer> servers = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            McpClient client = mock(McpClient.class);
+            var name = "tool-" + i;
+            when(client.listTools()).thenAnswer(invocation -> {
+                Thread.sleep(300);
+                return List.of(toolSpec(name));
+            });
+            service.registerClient("http://mcp-" + i, client);
+            servers.add(server("http://mcp-" + i, null));
+        }
+        var config = new Configuration();
+        config.setMcpServers(servers);
+
+        long start = System.nanoTime();
+        var registry = service.createToolRegistry(config);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(registry.tools()).hasSize(4);
+        assertThat(elapsed).isLessThan(900);
+    }
+
     @Test
     void receiveToolSpecifications_returnsClientTools() {
         var service = serviceWithConfig();
@@ -164,9 +343,20 @@ class McpServiceTest extends AbstractTest {
     private static McpService serviceWithConfig() {
         var service = new McpService();
         service.dispatchConfig = dispatchConfig();
+        service.clientPool = McpClientPoolTest.createPool();
+        service.toolCatalog = McpToolCatalogTest.createCatalog();
+        service.executor = executor();
+        service.meterRegistry = new SimpleMeterRegistry();
         return service;
     }
 
+    private static ManagedExecutor executor() {
+        ManagedExecutor executor = mock(ManagedExecutor.class);
+        doAnswer(invocation -> Thread.ofVirtual().start(invocation.<Runnable> getArgument(0)))
+                .when(executor).execute(any());
+        return executor;
+    }
+
     private static DispatchConfig dispatchConfig() {
         DispatchConfig dispatchConfig = mock(DispatchConfig.class);
         DispatchConfig.MCPConfig mcpConfig = mock(DispatchConfig.MCPConfig.class);
@@ -175,6 +365,9 @@ class McpServiceTest extends AbstractTest {
         when(mcpConfig.logRequests()).thenReturn(false);
         when(mcpConfig.logResponse()).thenReturn(false);
         when(mcpConfig.maxToolExecutionRetries()).thenReturn(2L);
+        when(mcpConfig.clientPoolMaxSize()).thenReturn(10L);
+        when(mcpConfig.clientPoolIdleTimeout()).thenReturn(60L);
+        when(mcpConfig.discoveryTimeout()).thenReturn(500L);
         when(dispatchConfig.mcpConfig()).thenReturn(mcpConfig);
 
         return dispatchConfig;
@@ -198,6 +391,7 @@ class McpServiceTest extends AbstractTest {
     static class TestableMcpService extends McpService {
         private final Map<String, McpClient> clients = new HashMap<>();
         private final Map<String, RuntimeException> creationErrors = new HashMap<>();
+        final AtomicInteger createdClients = new AtomicInteger();
 
         void registerClient(String url, McpClient client) {
             clients.put(url, client);
@@ -213,6 +407,7 @@ class McpServiceTest extends AbstractTest {
             if (ex != null) {
                 throw ex;
             }
+            createdClients.incrementAndGet();
             return clients.get(mcpServer.getUrl());
         }
     }
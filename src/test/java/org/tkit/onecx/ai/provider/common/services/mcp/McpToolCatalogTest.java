@@ -0,0 +1,160 @@
+package org.tkit.onecx.ai.provider.common.services.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class McpToolCatalogTest extends AbstractTest {
+
+    private static final McpServerKey KEY = new McpServerKey("default", "s-1", "http://mcp", 0);
+
+    @Test
+    void get_loadsOnce_whileEntryIsFresh() {
+        var catalog = createCatalog(300);
+        var loads = new AtomicInteger();
+
+        var first = catalog.get(KEY, () -> load(loads, "tool-a"));
+        var second = catalog.get(KEY, () -> load(loads, "tool-b"));
+
+        assertThat(first).extracting(ToolSpecification::name).containsExactly("tool-a");
+        assertThat(second).isEqualTo(first);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void get_returnsStaleEntry_andRefreshesInBackground() {
+        var tasks = new ArrayList<Runnable>();
+        var catalog = createCatalog(0, tasks);
+        var loads = new AtomicInteger();
+        catalog.get(KEY, () -> load(loads, "tool-a"));
+
+        var stale = catalog.get(KEY, () -> load(loads, "tool-b"));
+        // refresh is already scheduled
+        catalog.get(KEY, () -> load(loads, "tool-c"));
+
+        assertThat(stale).extracting(ToolSpecification::name).containsExactly("tool-a");
+        assertThat(tasks).hasSize(1);
+
+        tasks.getFirst().run();
+
+        assertThat(loads).hasValue(2);
+        assertThat(catalog.get(KEY, () -> load(loads, "tool-d"))).extracting(ToolSpecification::name)
+                .containsExactly("tool-b");
+    }
+
+    @Test
+    void get_keepsStaleEntry_whenRefreshFails() {
+        var tasks = new ArrayList<Runnable>();
+        var catalog = createCatalog(0, tasks);
+        var loads = new AtomicInteger();
+        catalog.get(KEY, () -> load(loads, "tool-a"));
+
+        catalog.get(KEY, () -> {
+            throw new IllegalStateException("down");
+        });
+        tasks.getFirst().run();
+
+        assertThat(catalog.get(KEY, () -> load(loads, "tool-b"))).extracting(ToolSpecification::name)
+                .containsExactly("tool-a");
+        assertThat(tasks).hasSize(2);
+    }
+
+    @Test
+    void get_doesNotCacheEmptyOrFailedLoads() {
+        var catalog = createCatalog(300);
+        var loads = new AtomicInteger();
+
+        assertThat(catalog.get(KEY, List::of)).isEmpty();
+        assertThatThrownBy(() -> catalog.get(KEY, () -> {
+            throw new IllegalStateException("down");
+        })).isInstanceOf(IllegalStateException.class);
+        catalog.get(KEY, () -> load(loads, "tool-a"));
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void invalidate_andEntityChange_removeEntries() {
+        var catalog = createCatalog(300);
+        var loads = new AtomicInteger();
+        var otherKey = new McpServerKey("default", "s-2", "http://mcp-2", 0);
+        catalog.get(KEY, () -> load(loads, "tool-a"));
+        catalog.get(otherKey, () -> load(loads, "tool-b"));
+
+        catalog.invalidate(KEY);
+        catalog.get(KEY, () -> load(loads, "tool-a"));
+        assertThat(loads).hasValue(3);
+
+        catalog.onEntityChange(new EntityChangeEvent("origin", "default", EntityType.PROVIDER, "s-2"));
+        catalog.get(otherKey, () -> load(loads, "tool-b"));
+        assertThat(loads).hasValue(3);
+
+        catalog.onEntityChange(new EntityChangeEvent("origin", "default", EntityType.MCP_SERVER, "s-2"));
+        catalog.get(otherKey, () -> load(loads, "tool-b"));
+        assertThat(loads).hasValue(4);
+    }
+
+    static McpToolCatalog createCatalog() {
+        return createCatalog(300);
+    }
+
+    private static McpToolCatalog createCatalog(long ttl) {
+        return createCatalog(ttl, null);
+    }
+
+    private static McpToolCatalog createCatalog(long ttl, List<Runnable> tasks) {
+        DispatchConfig dispatchConfig = mock(DispatchConfig.class);
+        DispatchConfig.MCPConfig mcpConfig = mock(DispatchConfig.MCPConfig.class);
+        when(dispatchConfig.mcpConfig()).thenReturn(mcpConfig);
+        when(mcpConfig.clientPoolMaxSize()).thenReturn(10L);
+        when(mcpConfig.clientPoolIdleTimeout()).thenReturn(60L);
+        when(mcpConfig.toolCatalogTtl()).thenReturn(ttl);
+
+        ManagedExecutor executor = mock(ManagedExecutor.class);
+        doAnswer(invocation -> {
+            Runnable task = invocation.getArgument(0);
+            if (tasks != null) {
+                tasks.add(task);
+            } else {
+                task.run();
+            }
+            return null;
+        }).when(executor).execute(any());
+
+        var catalog = new McpToolCatalog();
+        catalog.dispatchConfig = dispatchConfig;
+        catalog.meterRegistry = new SimpleMeterRegistry();
+        catalog.executor = executor;
+        catalog.init();
+        return catalog;
+    }
+
+    private static List<ToolSpecification> load(AtomicInteger loads, String name) {
+        loads.incrementAndGet();
+        return List.of(ToolSpecification.builder()
+                .name(name)
+                .description("desc")
+                .parameters(JsonObjectSchema.builder().build())
+                .build());
+    }
+}
@@ -0,0 +1,66 @@
+package org.tkit.onecx.ai.provider.common.services.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class McpToolIndexTest extends AbstractTest {
+
+    private static final List<ToolSpecification> TOOLS = List.of(
+            tool("getWeatherForecast", "Returns the weather forecast for a city"),
+            tool("search_products", "Searches the product catalog by name or category"),
+            tool("create-order", "Creates an order for products in the shopping cart"),
+            tool("get_current_user", "Returns the profile of the current user"),
+            tool("list_orders", "Lists the orders of the current user"));
+
+    @Test
+    void top_ranksToolsByRelevance() {
+        var index = McpToolIndex.of(TOOLS);
+
+        assertThat(index.top("What will the weather be in Vienna tomorrow?", 2))
+                .extracting(ToolSpecification::name)
+                .startsWith("getWeatherForecast");
+        assertThat(index.top("show my orders", 2))
+                .extracting(ToolSpecification::name)
+                .containsExactly("list_orders");
+    }
+
+    @Test
+    void top_limitsResults_andSkipsToolsWithoutMatch() {
+        var index = McpToolIndex.of(TOOLS);
+
+        assertThat(index.top("current user orders products", 1)).hasSize(1);
+        assertThat(index.top("hello there", 3)).isEmpty();
+        assertThat(index.top("", 3)).isEmpty();
+        assertThat(index.top("orders", 0)).isEmpty();
+    }
+
+    @Test
+    void top_prefersNameMatches_andKeepsIndexOrderOnTies() {
+        var index = McpToolIndex.of(List.of(
+                tool("tool-a", "does things with invoices"),
+                tool("invoice", "does things"),
+                tool("tool-b", "does things with invoices")));
+
+        assertThat(index.top("invoice invoices", 3)).extracting(ToolSpecification::name)
+                .containsExactly("invoice", "tool-a", "tool-b");
+    }
+
+    @Test
+    void tokenize_splitsCamelSnakeAndKebabCase() {
+        assertThat(McpToolIndex.tokenize("getWeatherForecast search_products create-order v2 a 1"))
+                .containsExactly("get", "weather", "forecast", "search", "products", "create", "order", "v2", "1");
+        assertThat(McpToolIndex.tokenize(null)).isEmpty();
+    }
+
+    private static ToolSpecification tool(String name, String description) {
+        return ToolSpecification.builder().name(name).description(description).build();
+    }
+}
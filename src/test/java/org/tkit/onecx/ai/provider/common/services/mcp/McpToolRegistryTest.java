@@ -1,11 +1,7 @@
 package org.tkit.onecx.ai.provider.common.services.mcp;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.assertj.core.api.Assertions.assertThatCode;
-import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.verify;
 
 import java.util.List;
 
@@ -42,24 +38,6 @@ class McpToolRegistryTest extends AbstractTest {
         assertThat(result).isEmpty();
     }
 
-    @Test
-    void close_ignoresClientCloseExceptions_andClosesDistinctClientsOnce() throws Exception {
-        McpClient failingClient = mock(McpClient.class);
-        McpClient healthyClient = mock(McpClient.class);
-        doThrow(new Exception("close failed")).when(failingClient).close();
-
-        McpTool tool1 = new McpTool("http://mcp-1", toolSpec("tool-a"), failingClient);
-        McpTool tool2 = new McpTool("http://mcp-2", toolSpec("tool-b"), failingClient);
-        McpTool tool3 = new McpTool("http://mcp-3", toolSpec("tool-c"), healthyClient);
-
-        McpToolRegistry registry = new McpToolRegistry(List.of(tool1, tool2, tool3));
-
-        assertThatCode(registry::close).doesNotThrowAnyException();
-
-        verify(failingClient, times(1)).close();
-        verify(healthyClient, times(1)).close();
-    }
-
     private static ToolSpecification toolSpec(String name) {
         return ToolSpecification.builder()
                 .name(name)
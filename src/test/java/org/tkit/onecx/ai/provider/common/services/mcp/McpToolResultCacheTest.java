@@ -0,0 +1,169 @@
+package org.tkit.onecx.ai.provider.common.services.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.models.DispatchConfig;
+import org.tkit.onecx.ai.provider.common.services.events.EntityChangeEvent;
+import org.tkit.onecx.ai.provider.common.services.events.EntityType;
+import org.tkit.onecx.ai.provider.domain.models.MCPServer;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.mcp.client.McpClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class McpToolResultCacheTest extends AbstractTest {
+
+    @Test
+    void get_returnsCachedResult_forSameArgumentsInAnyOrder() {
+        var cache = createCache();
+        var tool = tool("get-user", policy("tenant-a", 60));
+        var executions = new AtomicInteger();
+
+        var first = cache.get(tool, request("{\"id\":1,\"filter\":{\"b\":2,\"a\":1}}"), () -> execute(executions));
+        var second = cache.get(tool, request("{ \"filter\": {\"a\":1,\"b\":2}, \"id\": 1 }"), () -> execute(executions));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(executions).hasValue(1);
+        assertThat(cache.meterRegistry.get(McpToolResultCache.SAVED_METRIC).timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void get_executesAgain_forDifferentArgumentsOrTenant() {
+        var cache = createCache();
+        var executions = new AtomicInteger();
+
+        cache.get(tool("get-user", policy("tenant-a", 60)), request("{\"id\":1}"), () -> execute(executions));
+        cache.get(tool("get-user", policy("tenant-a", 60)), request("{\"id\":2}"), () -> execute(executions));
+        cache.get(tool("get-user", policy("tenant-b", 60)), request("{\"id\":1}"), () -> execute(executions));
+
+        assertThat(executions).hasValue(3);
+    }
+
+    @Test
+    void get_alwaysExecutes_withoutPolicy() {
+        var cache = createCache();
+        var tool = tool("create-order", null);
+        var executions = new AtomicInteger();
+
+        cache.get(tool, request("{}"), () -> execute(executions));
+        cache.get(tool, request("{}"), () -> execute(executions));
+
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void get_doesNotCacheExceptions() {
+        var cache = createCache();
+        var tool = tool("get-user", policy("tenant-a", 60));
+        var executions = new AtomicInteger();
+
+        assertThatThrownBy(() -> cache.get(tool, request("{}"), () -> {
+            throw new IllegalStateException("down");
+        })).isInstanceOf(IllegalStateException.class);
+        cache.get(tool, request("{}"), () -> execute(executions));
+
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void get_expiresResult_afterToolTtl() throws Exception {
+        var cache = createCache();
+        var tool = tool("get-user", new McpToolCachePolicy("tenant-a", "s-1", Duration.ofMillis(50)));
+        var executions = new AtomicInteger();
+
+        cache.get(tool, request("{}"), () -> execute(executions));
+        Thread.sleep(100);
+        cache.get(tool, request("{}"), () -> execute(executions));
+
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void onEntityChange_removesResultsOfServer() {
+        var cache = createCache();
+        var tool = tool("get-user", policy("tenant-a", 60));
+        var executions = new AtomicInteger();
+        cache.get(tool, request("{}"), () -> execute(executions));
+
+        cache.onEntityChange(new EntityChangeEvent("origin", "tenant-a", EntityType.PROVIDER, "s-1"));
+        cache.get(tool, request("{}"), () -> execute(executions));
+        assertThat(executions).hasValue(1);
+
+        cache.onEntityChange(new EntityChangeEvent("origin", "tenant-a", EntityType.MCP_SERVER, "s-1"));
+        cache.get(tool, request("{}"), () -> execute(executions));
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void normalize_keepsInvalidAndEmptyArguments() {
+        var cache = createCache();
+
+        assertThat(cache.normalize(null)).isEqualTo("{}");
+        assertThat(cache.normalize(" ")).isEqualTo("{}");
+        assertThat(cache.normalize(" not-json ")).isEqualTo("not-json");
+    }
+
+    @Test
+    void policy_isResolvedFromServerSettings() {
+        var key = new McpServerKey("tenant-a", "s-1", "http://mcp", 0);
+        var server = new MCPServer();
+
+        assertThat(McpToolCachePolicy.of(key, server, "get-user")).isNull();
+
+        server.setToolCacheTtl(30);
+        assertThat(McpToolCachePolicy.of(key, server, "get-user"))
+                .isEqualTo(new McpToolCachePolicy("tenant-a", "s-1", Duration.ofSeconds(30)));
+        assertThat(McpToolCachePolicy.of(new McpServerKey(null, "s-1", "http://mcp", 0), server, "get-user")).isNull();
+
+        server.setCachedTools("get-user, list-products");
+        assertThat(McpToolCachePolicy.of(key, server, "list-products")).isNotNull();
+        assertThat(McpToolCachePolicy.of(key, server, "create-order")).isNull();
+
+        server.setToolCacheTtl(0);
+        assertThat(McpToolCachePolicy.of(key, server, "get-user")).isNull();
+    }
+
+    private static McpToolResultCache createCache() {
+        DispatchConfig dispatchConfig = mock(DispatchConfig.class);
+        DispatchConfig.MCPConfig mcpConfig = mock(DispatchConfig.MCPConfig.class);
+        when(dispatchConfig.mcpConfig()).thenReturn(mcpConfig);
+        when(mcpConfig.toolResultCacheMaxSize()).thenReturn(100L);
+
+        var cache = new McpToolResultCache();
+        cache.dispatchConfig = dispatchConfig;
+        cache.meterRegistry = new SimpleMeterRegistry();
+        cache.objectMapper = new ObjectMapper();
+        cache.init();
+        return cache;
+    }
+
+    private static McpToolCachePolicy policy(String tenantId, long ttl) {
+        return new McpToolCachePolicy(tenantId, "s-1", Duration.ofSeconds(ttl));
+    }
+
+    private static McpTool tool(String name, McpToolCachePolicy policy) {
+        var spec = ToolSpecification.builder().name(name).build();
+        return new McpTool("http://mcp", spec, mock(McpClient.class), policy);
+    }
+
+    private static ToolExecutionRequest request(String arguments) {
+        return ToolExecutionRequest.builder().id("1").name("tool").arguments(arguments).build();
+    }
+
+    private static String execute(AtomicInteger executions) {
+        return "result-" + executions.incrementAndGet();
+    }
+}
@@ -0,0 +1,100 @@
+package org.tkit.onecx.ai.provider.domain.daos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.inject.Inject;
+
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.services.configuration.ConfigurationCache;
+import org.tkit.onecx.ai.provider.domain.models.Configuration;
+import org.tkit.onecx.ai.provider.domain.models.MCPServer;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class ChangeNotifyingDAOTest extends AbstractTest {
+
+    @Inject
+    ProviderDAO providerDAO;
+
+    @Inject
+    MCPServerDAO mcpServerDAO;
+
+    @Inject
+    ConfigurationCache configurationCache;
+
+    @Test
+    void createProvider_invalidatesCache() {
+        cache("create-app");
+
+        var provider = providerDAO.create(createProvider("notify-create"));
+
+        assertThat(isCached("create-app")).isFalse();
+        providerDAO.deleteQueryById(provider.getId());
+    }
+
+    @Test
+    void updateAndDeleteMcpServer_invalidateCache() {
+        var mcpServer = mcpServerDAO.create(createMcpServer("notify-update"));
+
+        cache("update-app");
+        mcpServer.setDescription("changed");
+        mcpServerDAO.update(mcpServer);
+        assertThat(isCached("update-app")).isFalse();
+
+        cache("delete-app");
+        mcpServerDAO.deleteQueryById(mcpServer.getId());
+        assertThat(isCached("delete-app")).isFalse();
+    }
+
+    @Test
+    void write_invalidatesCacheOnlyAfterCommit() {
+        cache("commit-app");
+
+        QuarkusTransaction.begin();
+        var provider = providerDAO.create(createProvider("notify-commit"));
+        assertThat(isCached("commit-app")).isTrue();
+        QuarkusTransaction.commit();
+
+        assertThat(isCached("commit-app")).isFalse();
+        providerDAO.deleteQueryById(provider.getId());
+    }
+
+    @Test
+    void write_doesNotInvalidateCache_whenRolledBack() {
+        cache("rollback-app");
+
+        QuarkusTransaction.begin();
+        providerDAO.create(createProvider("notify-rollback"));
+        QuarkusTransaction.rollback();
+
+        assertThat(isCached("rollback-app")).isTrue();
+    }
+
+    private void cache(String value) {
+        configurationCache.get("APP_ID", value, Configuration::new);
+    }
+
+    private boolean isCached(String value) {
+        var reloaded = new Configuration();
+        return configurationCache.get("APP_ID", value, () -> reloaded) != reloaded;
+    }
+
+    private static Provider createProvider(String name) {
+        var provider = new Provider();
+        provider.setName(name);
+        provider.setModelName("model");
+        provider.setLlmUrl("http://" + name + ".url.org");
+        return provider;
+    }
+
+    private static MCPServer createMcpServer(String name) {
+        var mcpServer = new MCPServer();
+        mcpServer.setName(name);
+        mcpServer.setUrl("http://" + name + ".url.org");
+        return mcpServer;
+    }
+}
@@ -0,0 +1,133 @@
+package org.tkit.onecx.ai.provider.domain.daos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.regex.Pattern;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.tkit.onecx.ai.provider.common.services.configuration.ConfigurationMatcher;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+import org.tkit.onecx.ai.provider.test.StatementRecorder;
+import org.tkit.quarkus.test.WithDBData;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+@WithDBData(value = "data/testdata-dispatch-fetch.xml", deleteBeforeInsert = true, deleteAfterTest = true, rinseAndRepeat = true)
+class ConfigurationDAODispatchTest {
+
+    private static final Pattern TENANT_PARAMETER = Pattern.compile("tenant_id\\s*=\\s*$", Pattern.CASE_INSENSITIVE);
+
+    @Inject
+    ConfigurationDAO dao;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    StatementRecorder statementRecorder;
+
+    @Test
+    @Transactional
+    void findConfigurationForDispatch_loadsProvidersWithReplicasAndMcpServersWithoutMultiplyingRows() {
+        var statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        statementRecorder.start();
+
+        var configuration = dao.findConfigurationForDispatch("config-with-mcp");
+        var statements = statementRecorder.stop();
+
+        assertThat(configuration).isNotNull();
+        assertThat(Hibernate.isInitialized(configuration.getProvider())).isTrue();
+        assertThat(Hibernate.isInitialized(configuration.getMcpServers())).isTrue();
+        assertThat(configuration.getProvider().getModelName()).isEqualTo("model1");
+        assertThat(configuration.getMcpServers()).hasSize(3);
+        assertThat(Hibernate.isInitialized(configuration.getProvider().getReplicaUrls())).isTrue();
+        assertThat(configuration.getProvider().getReplicaUrls())
+                .containsExactlyInAnyOrder("http://replica-1.url.org", "http://replica-2.url.org");
+        assertThat(Hibernate.isInitialized(configuration.getFallbackProviders())).isTrue();
+        assertThat(configuration.getFallbackProviders()).extracting(Provider::getName).containsExactly("provider2");
+        assertThat(Hibernate.isInitialized(configuration.getFallbackProviders().getFirst().getReplicaUrls())).isTrue();
+        assertThat(configuration.getFallbackProviders().getFirst().getReplicaUrls())
+                .containsExactlyInAnyOrder("http://fallback-replica-1.url.org", "http://fallback-replica-2.url.org");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        // 2 replica URLs of the provider, 2 of the fallback provider and 3 MCP servers, fetched together 12 rows
+        assertThat(statements).hasSize(3);
+        assertThat(statements.stream().mapToInt(sql -> rowCount(sql, "config-with-mcp")).sum()).isEqualTo(7);
+        assertThat(em.unwrap(Session.class).isReadOnly(configuration)).isTrue();
+    }
+
+    @Test
+    @Transactional
+    void findConfigurationForDispatch_returnsNull_whenNotFound() {
+        assertThat(dao.findConfigurationForDispatch("does-not-exist")).isNull();
+    }
+
+    @Test
+    @Transactional
+    void findFilterValuesByFilterKey_doesNotLoadAssociations() {
+        var statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        var withAppIdFilterKey = dao.findFilterValuesByFilterKey("APP_ID");
+        var withoutFilterKey = dao.findFilterValuesByFilterKey(null);
+
+        assertThat(withAppIdFilterKey).containsExactly(
+                new ConfigurationDAO.FilterValue("config-app", "onecx-app-*"),
+                new ConfigurationDAO.FilterValue("config-portal", "*portal"),
+                new ConfigurationDAO.FilterValue("config-with-mcp", "onecx-*"),
+                new ConfigurationDAO.FilterValue("config-underscore", "a_b%*"));
+        assertThat(withoutFilterKey).containsExactly(new ConfigurationDAO.FilterValue("config-default", null));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    @Transactional
+    void findBestMatchingConfigurationId_returnsMostSpecificMatch() {
+        assertThat(dao.findBestMatchingConfigurationId("APP_ID", "onecx-app-admin")).isEqualTo("config-app");
+        assertThat(dao.findBestMatchingConfigurationId("APP_ID", "onecx-workspace")).isEqualTo("config-with-mcp");
+        assertThat(dao.findBestMatchingConfigurationId("APP_ID", "other")).isNull();
+        assertThat(dao.findBestMatchingConfigurationId(null, null)).isEqualTo("config-default");
+    }
+
+    @Test
+    @Transactional
+    void findBestMatchingConfigurationId_resolvesTiesLikeConfigurationMatcher() {
+        var matcher = ConfigurationMatcher.of(dao.findFilterValuesByFilterKey("APP_ID"));
+
+        assertThat(dao.findBestMatchingConfigurationId("APP_ID", "onecx-portal")).isEqualTo("config-portal");
+        assertThat(matcher.match("onecx-portal")).isEqualTo("config-portal");
+    }
+
+    @Test
+    @Transactional
+    void findBestMatchingConfigurationId_treatsLikeWildcardsLiterally() {
+        assertThat(dao.findBestMatchingConfigurationId("APP_ID", "a_b%-admin")).isEqualTo("config-underscore");
+        assertThat(dao.findBestMatchingConfigurationId("APP_ID", "axb%-admin")).isNull();
+        assertThat(dao.findBestMatchingConfigurationId("APP_ID", "a_bx-admin")).isNull();
+    }
+
+    /**
+     * Number of rows of the recorded statement, the tenant and the configuration id are the only parameters.
+     */
+    private int rowCount(String sql, String configurationId) {
+        var query = em.createNativeQuery("select count(*) from (" + sql + ") statement_rows");
+        var parameter = Pattern.compile("\\?").matcher(sql);
+        int position = 0;
+        while (parameter.find()) {
+            boolean tenant = TENANT_PARAMETER.matcher(sql.substring(0, parameter.start())).find();
+            query.setParameter(++position, tenant ? "default" : configurationId);
+        }
+        return ((Number) query.getSingleResult()).intValue();
+    }
+}
@@ -30,8 +30,12 @@ class ConfigurationDAOTest {
     void methodExceptionTests() {
         methodExceptionTests(() -> dao.findAIConfigurationsByCriteria(null),
                 ConfigurationDAO.ErrorKeys.ERROR_FIND_CONFIGURATIONS_BY_CRITERIA);
-        methodExceptionTests(() -> dao.findAllConfigurationsByFilterKey(null),
-                ConfigurationDAO.ErrorKeys.ERROR_FIND_CONFIGURATIONS_BY_FILTER_KEY);
+        methodExceptionTests(() -> dao.findFilterValuesByFilterKey(null),
+                ConfigurationDAO.ErrorKeys.ERROR_FIND_FILTER_VALUES_BY_FILTER_KEY);
+        methodExceptionTests(() -> dao.findConfigurationForDispatch("id"),
+                ConfigurationDAO.ErrorKeys.ERROR_FIND_CONFIGURATION_FOR_DISPATCH);
+        methodExceptionTests(() -> dao.findBestMatchingConfigurationId("APP_ID", "value"),
+                ConfigurationDAO.ErrorKeys.ERROR_FIND_BEST_MATCHING_CONFIGURATION);
     }
 
     void methodExceptionTests(Executable fn, Enum<?> key) {
@@ -0,0 +1,138 @@
+package org.tkit.onecx.ai.provider.rs.external.v1.controllers;
+
+import static io.restassured.RestAssured.given;
+import static jakarta.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockserver.client.MockServerClient;
+import org.mockserver.model.MediaType;
+import org.tkit.onecx.ai.provider.common.services.configuration.ConfigurationService;
+import org.tkit.onecx.ai.provider.domain.models.Configuration;
+import org.tkit.onecx.ai.provider.domain.models.Provider;
+import org.tkit.onecx.ai.provider.domain.models.enums.ProviderType;
+import org.tkit.onecx.ai.provider.test.AbstractTest;
+import org.tkit.quarkus.security.test.GenerateKeycloakClient;
+
+import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatMessageDTOV1;
+import gen.org.tkit.onecx.ai.provider.rs.external.v1.model.ChatRequestDTOV1;
+import io.quarkiverse.mockserver.test.InjectMockServerClient;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+/**
+ * Sends more concurrent chat requests to a slow model than the worker pool has threads.
+ */
+@QuarkusTest
+@TestProfile(DispatchRestV1ControllerLoadTest.SmallWorkerPoolProfile.class)
+@GenerateKeycloakClient(clientName = "testClient", scopes = { "ocx-ai:read" })
+class DispatchRestV1ControllerLoadTest extends AbstractTest {
+
+    private static final int WORKER_THREADS = 4;
+    private static final int CONCURRENT_REQUESTS = 40;
+    private static final long MODEL_DELAY_MILLIS = 500;
+
+    private static final String OLLAMA_OK_BODY = """
+            {"model":"mistral","created_at":"2026-01-01T00:00:00Z",
+             "message":{"role":"assistant","content":"pong"},
+             "done":true,"done_reason":"stop"}
+            """;
+
+    @InjectMock
+    ConfigurationService configurationService;
+
+    @InjectMockServerClient
+    MockServerClient mockServerClient;
+
+    @ConfigProperty(name = "quarkus.mockserver.endpoint")
+    String mockServerEndpoint;
+
+    @AfterEach
+    void resetMockserver() {
+        try {
+            mockServerClient.clear("MOCK");
+        } catch (Exception _) {
+            // mockId not existing
+        }
+    }
+
+    @Test
+    void chat_scalesBeyondWorkerPool_withSlowModel() throws Exception {
+        mockServerClient.when(request().withMethod("POST").withPath("/api/chat")).withId("MOCK")
+                .respond(response().withStatusCode(200).withContentType(MediaType.APPLICATION_JSON)
+                        .withBody(OLLAMA_OK_BODY).withDelay(TimeUnit.MILLISECONDS, MODEL_DELAY_MILLIS));
+        when(configurationService.findConfigurationsByRequestContext(any())).thenReturn(configuration());
+
+        var token = getKeycloakClientToken("testClient");
+        // warm up the pooled model and the security setup
+        given().auth().oauth2(token).contentType(APPLICATION_JSON).body(chatRequest("warm-up"))
+                .post("/v1/dispatch/chat")
+                .then().statusCode(200);
+
+        long start = System.nanoTime();
+        List<Future<Integer>> results = new ArrayList<>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                // distinct prompts, each request has to call the model
+                var request = chatRequest("ping " + i);
+                results.add(executor.submit(() -> given()
+                        .auth().oauth2(token)
+                        .contentType(APPLICATION_JSON)
+                        .body(request)
+                        .post("/v1/dispatch/chat")
+                        .statusCode()));
+            }
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        for (var result : results) {
+            assertThat(result.get()).isEqualTo(200);
+        }
+        // bound by the worker pool the requests would need CONCURRENT_REQUESTS / WORKER_THREADS model delays
+        assertThat(elapsedMillis).isLessThan(CONCURRENT_REQUESTS / WORKER_THREADS * MODEL_DELAY_MILLIS / 2);
+    }
+
+    private Configuration configuration() {
+        var provider = new Provider();
+        provider.setType(ProviderType.OLLAMA);
+        provider.setLlmUrl(mockServerEndpoint);
+        provider.setModelName("mistral");
+
+        var configuration = new Configuration();
+        configuration.setProvider(provider);
+        return configuration;
+    }
+
+    private static ChatRequestDTOV1 chatRequest(String prompt) {
+        var message = new ChatMessageDTOV1();
+        message.setMessage(prompt);
+        message.setType(ChatMessageDTOV1.TypeEnum.USER);
+        var request = new ChatRequestDTOV1();
+        request.setChatMessage(message);
+        return request;
+    }
+
+    public static class SmallWorkerPoolProfile implements QuarkusTestProfile {
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("quarkus.thread-pool.max-threads", String.valueOf(WORKER_THREADS),
+                    "onecx.ai.dispatch.provider.coalesce-requests", "false");
+        }
+    }
+}
@@ -42,4 +42,16 @@ class DispatchRestV1ControllerTest {
 
         verify(llmServiceFactory).chat(request);
     }
+
+    @Test
+    void chatStream_delegatesToFactory() {
+        ChatRequestDTOV1 request = new ChatRequestDTOV1();
+        when(llmServiceFactory.chatStream(request)).thenReturn(Response.ok().build());
+
+        try (Response response = controller.chatStream(request)) {
+            assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+        }
+
+        verify(llmServiceFactory).chatStream(request);
+    }
 }
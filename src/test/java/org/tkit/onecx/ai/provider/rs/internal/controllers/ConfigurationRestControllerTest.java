@@ -5,6 +5,8 @@ import static jakarta.ws.rs.core.MediaType.APPLICATION_JSON;
 import static jakarta.ws.rs.core.Response.Status.*;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 import org.tkit.onecx.ai.provider.test.AbstractTest;
 import org.tkit.quarkus.security.test.GenerateKeycloakClient;
@@ -44,6 +46,11 @@ class ConfigurationRestControllerTest extends AbstractTest {
         var configurationDto = new UpdateConfigurationRequestDTO();
         configurationDto.setName("custom-name-app-id");
         configurationDto.setModificationCount(0);
+        var fallbackProvider = new ProviderDTO();
+        fallbackProvider.setId("provider-DELETE_1");
+        fallbackProvider.setName("provider3");
+        fallbackProvider.setModelName("model3");
+        configurationDto.setFallbackProviders(List.of(fallbackProvider));
 
         //update none existing ai configuration
         given()
@@ -68,6 +75,7 @@ class ConfigurationRestControllerTest extends AbstractTest {
         assertThat(dto).isNotNull();
         assertThat(dto.getId()).isEqualTo("configuration-11-111");
         assertThat(dto.getName()).isEqualTo(configurationDto.getName());
+        assertThat(dto.getFallbackProviders()).extracting(ProviderDTO::getId).containsExactly("provider-DELETE_1");
 
         // update second time => optimistic lock exception
         given()
@@ -106,6 +114,8 @@ class ConfigurationRestControllerTest extends AbstractTest {
         assertThat(configurationDto).isNotNull();
         assertThat(configurationDto.getId()).isEqualTo("configuration-11-111");
         assertThat(configurationDto.getName()).isEqualTo("configuration1");
+        assertThat(configurationDto.getFallbackProviders()).extracting(ProviderDTO::getId)
+                .containsExactly("provider-22-222");
     }
 
     @Test
@@ -28,6 +28,8 @@ class MCPServerRestControllerTest extends AbstractTest {
         mcpServerDto.setName("MCPServer");
         mcpServerDto.setUrl("someUrl");
         mcpServerDto.setApiKey("someAPIkey");
+        mcpServerDto.setToolCacheTtl(60);
+        mcpServerDto.setCachedTools("get-user, list-products");
 
         var dto = given()
                 .auth().oauth2(getKeycloakClientToken("testClient"))
@@ -43,6 +45,8 @@ class MCPServerRestControllerTest extends AbstractTest {
         assertThat(dto).isNotNull();
         assertThat(dto.getName()).isEqualTo(mcpServerDto.getName());
         assertThat(dto.getUrl()).isEqualTo(mcpServerDto.getUrl());
+        assertThat(dto.getToolCacheTtl()).isEqualTo(60);
+        assertThat(dto.getCachedTools()).isEqualTo("get-user, list-products");
     }
 
     @Test
@@ -44,6 +44,7 @@ class ProviderHealthCheckTest extends AbstractTest {
         assertThat(dto).isNotNull();
         assertThat(dto.getStatus()).isEqualTo(ProviderHealthStatusDTO.StatusEnum.HEALTHY);
         assertThat(dto.getCheckedAt()).isNotNull();
+        assertThat(dto.getCircuitState()).isEqualTo(ProviderHealthStatusDTO.CircuitStateEnum.CLOSED);
     }
 
     @Test
@@ -6,6 +6,8 @@ import static jakarta.ws.rs.core.Response.Status.*;
 import static jakarta.ws.rs.core.Response.Status.NOT_FOUND;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 import org.tkit.onecx.ai.provider.test.AbstractTest;
 import org.tkit.quarkus.security.test.GenerateKeycloakClient;
@@ -27,6 +29,9 @@ class ProviderRestControllerTest extends AbstractTest {
         var providerDto = new CreateProviderRequestDTO();
         providerDto.setName("Provider");
         providerDto.setModelName("ModelName");
+        providerDto.setMaxConcurrentRequests(4);
+        providerDto.setMaxQueuedRequests(16);
+        providerDto.setReplicaUrls(List.of("http://ollama-2", "http://ollama-3"));
 
         var id = given()
                 .auth().oauth2(getKeycloakClientToken("testClient"))
@@ -42,6 +47,9 @@ class ProviderRestControllerTest extends AbstractTest {
         assertThat(id).isNotNull();
         assertThat(id.getName()).isEqualTo(providerDto.getName());
         assertThat(id.getModelName()).isEqualTo(providerDto.getModelName());
+        assertThat(id.getMaxConcurrentRequests()).isEqualTo(4);
+        assertThat(id.getMaxQueuedRequests()).isEqualTo(16);
+        assertThat(id.getReplicaUrls()).containsExactlyInAnyOrder("http://ollama-2", "http://ollama-3");
     }
 
     @Test
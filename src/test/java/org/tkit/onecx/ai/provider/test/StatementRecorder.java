@@ -0,0 +1,40 @@
+package org.tkit.onecx.ai.provider.test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import io.quarkus.hibernate.orm.PersistenceUnitExtension;
+
+/**
+ * Records the SQL statements prepared by Hibernate while recording is enabled.
+ */
+@ApplicationScoped
+@PersistenceUnitExtension
+public class StatementRecorder implements StatementInspector {
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+
+    private volatile boolean recording;
+
+    public void start() {
+        statements.clear();
+        recording = true;
+    }
+
+    public List<String> stop() {
+        recording = false;
+        return List.copyOf(statements);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (recording) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+}